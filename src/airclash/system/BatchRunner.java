@@ -0,0 +1,275 @@
+package airclash.system;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.phys2d.raw.Body;
+
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.ConsoleAppender;
+import org.apache.log4j.PatternLayout;
+
+import airclash.system.exceptions.InvalidResourceException;
+import airclash.system.gfx.TextureLoader;
+import airclash.system.xml.LevelLoader;
+import airclash.units.IUnit;
+import airclash.world.LevelDescription;
+
+/**
+ * Runs many short matches on a level at once, without a display, e.g. for
+ * balance tests and the tuning of AIs. The level file is parsed only once;
+ * every match builds its own Level, World and Player from the shared
+ * description, so the matches are completely independent and run on all
+ * cores. A match is driven by a script that is derived from its number: the
+ * selected unit changes direction and jumps at random ticks, so each match
+ * is different but can be repeated. The result of every match and the
+ * throughput are written to a CSV file.
+ *
+ * phys2d numbers its bodies and joints with static counters that are not
+ * thread safe, so the matches create all their bodies and joints through
+ * the Bodies class, which serializes the creation. A unit that creates
+ * bodies or joints with the phys2d constructors directly breaks the matches
+ * when more than one thread is used.
+ *
+ * Usage: <code>BatchRunner [level] [matches] [ticks] [csvfile] [threads]</code>
+ *
+ * @author Andreas Textor
+ */
+public class BatchRunner {
+	/** The number of matches to run if none is given. */
+	private static final int DEFAULT_MATCHES = 100;
+
+	/** The number of ticks per match if none is given. */
+	private static final int DEFAULT_TICKS = 1000;
+
+	/** The file the results are written to if none is given. */
+	private static final String DEFAULT_FILE = "batch.csv";
+
+	/** The unit changes its direction once in this many ticks on average. */
+	private static final int TURN_CHANCE = 200;
+
+	/** The unit tries to jump once in this many ticks on average. */
+	private static final int JUMP_CHANCE = 20;
+
+	/** Number of nanoseconds in a second. */
+	private static final double NANOS_PER_SECOND = 1000000000.0;
+
+	/** Number of nanoseconds in a millisecond. */
+	private static final double NANOS_PER_MILLI = 1000000.0;
+
+	/**
+	 * The result of one match.
+	 * @author Andreas Textor
+	 */
+	private static final class Result {
+		/** The number of the match. */
+		private final int match;
+
+		/** The number of ticks that were run. */
+		private final int ticks;
+
+		/** The wall time of the match in nanoseconds. */
+		private final long nanos;
+
+		/**
+		 * The positions of the player's units at the end of the match, as
+		 * x/y pairs.
+		 */
+		private final float[] positions;
+
+		/** The hash of the world at the end of the match. */
+		private final long hash;
+
+		/**
+		 * Constructor.
+		 * @param pMatch The number of the match
+		 * @param pTicks The number of ticks that were run
+		 * @param pNanos The wall time of the match in nanoseconds
+		 * @param pPositions The positions of the player's units
+		 * @param pHash The hash of the world
+		 */
+		private Result(final int pMatch, final int pTicks, final long pNanos,
+				final float[] pPositions, final long pHash) {
+			this.match = pMatch;
+			this.ticks = pTicks;
+			this.nanos = pNanos;
+			this.positions = pPositions;
+			this.hash = pHash;
+		}
+	}
+
+	/**
+	 * Starts the batch.
+	 * @param pArgs The commandline arguments: level name, number of matches,
+	 * ticks per match, csv file and number of threads
+	 */
+	public static void main(final String[] pArgs) {
+		BasicConfigurator.configure(new ConsoleAppender(
+				new PatternLayout("%d{HH:mm:ss} %-5p: %m%n")));
+		final String levelName = pArgs.length > 0 ? pArgs[0] : "level1";
+		final int matches = pArgs.length > 1 ? Integer.parseInt(pArgs[1]) : DEFAULT_MATCHES;
+		final int ticks = pArgs.length > 2 ? Integer.parseInt(pArgs[2]) : DEFAULT_TICKS;
+		final String file = pArgs.length > 3 ? pArgs[3] : DEFAULT_FILE;
+		final int threads = pArgs.length > 4 ? Integer.parseInt(pArgs[4])
+				: Runtime.getRuntime().availableProcessors();
+
+		TextureLoader.getInstance().setHeadless(true);
+		try {
+			final LevelDescription description = new LevelLoader(levelName).getDescription();
+			Core.LOGGER.info("Running " + matches + " matches of " + ticks + " ticks on "
+					+ threads + " threads");
+			final long start = System.nanoTime();
+			final List<Result> results = run(levelName, description, matches, ticks, threads);
+			final long nanos = Math.max(1, System.nanoTime() - start);
+			final double perMinute = matches * 60 * NANOS_PER_SECOND / nanos;
+			write(file, results, threads, nanos, perMinute);
+			Core.LOGGER.info(String.format(Locale.US, "%d matches in %.1f s, %.1f matches/min",
+					matches, nanos / NANOS_PER_SECOND, perMinute));
+		} catch (InvalidResourceException e) {
+			Core.LOGGER.error("Error while loading level", e);
+			System.exit(1);
+		} catch (IOException e) {
+			Core.LOGGER.error("Error while writing " + file, e);
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Runs the matches on a pool of threads.
+	 * @param pLevel The name of the level
+	 * @param pDescription The level description, shared by all matches
+	 * @param pMatches The number of matches
+	 * @param pTicks The number of ticks per match
+	 * @param pThreads The number of threads
+	 * @return The results, ordered by match
+	 * @throws InvalidResourceException Thrown when a match could not be set up
+	 */
+	private static List<Result> run(final String pLevel, final LevelDescription pDescription,
+			final int pMatches, final int pTicks, final int pThreads)
+			throws InvalidResourceException {
+		final ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, pThreads));
+		try {
+			final List<Future<Result>> futures = new ArrayList<Future<Result>>();
+			for (int i = 0; i < pMatches; i++) {
+				final int match = i;
+				futures.add(pool.submit(new Callable<Result>() {
+					/**
+					 * {@inheritDoc}
+					 */
+					public Result call() throws InvalidResourceException {
+						return play(pLevel, pDescription, match, pTicks);
+					}
+				}));
+			}
+			final List<Result> results = new ArrayList<Result>();
+			for (Future<Result> future : futures) {
+				results.add(future.get());
+			}
+			return results;
+		} catch (InterruptedException e) {
+			throw new IllegalStateException("Interrupted while running the batch", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof InvalidResourceException) {
+				throw (InvalidResourceException)e.getCause();
+			}
+			throw new IllegalStateException("Error in match", e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Plays one match.
+	 * @param pLevel The name of the level
+	 * @param pDescription The level description
+	 * @param pMatch The number of the match, which seeds its script
+	 * @param pTicks The number of ticks
+	 * @return The result
+	 * @throws InvalidResourceException Thrown when a texture can't be loaded
+	 */
+	private static Result play(final String pLevel, final LevelDescription pDescription,
+			final int pMatch, final int pTicks) throws InvalidResourceException {
+		final long start = System.nanoTime();
+		// The matches already use all cores, each one steps its islands alone
+		final Simulation simulation = new Simulation(pLevel, pDescription, "Batch" + pMatch,
+				null, Core.PROPERTIES.getInt(Properties.Prop.TICKRATE), 1);
+		simulation.reset();
+
+		final Random random = new Random(pMatch);
+		int movement = random.nextBoolean() ? Simulation.MOVE_LEFT : Simulation.MOVE_RIGHT;
+		simulation.handleCommand(Command.MOVE, movement, 0);
+		for (int i = 0; i < pTicks; i++) {
+			if (random.nextInt(TURN_CHANCE) == 0) {
+				movement ^= Simulation.MOVE_LEFT | Simulation.MOVE_RIGHT;
+				simulation.handleCommand(Command.MOVE, movement, 0);
+			}
+			if (random.nextInt(JUMP_CHANCE) == 0) {
+				simulation.handleCommand(Command.JUMP, 0, 0);
+			}
+			simulation.tick();
+		}
+
+		final List<IUnit> units = simulation.getPlayer().getUnits();
+		final float[] positions = new float[units.size() * 2];
+		for (int i = 0; i < units.size(); i++) {
+			final Body body = units.get(i).getBodyParts().get(0);
+			positions[i * 2] = body.getPosition().getX();
+			positions[i * 2 + 1] = body.getPosition().getY();
+		}
+		return new Result(pMatch, pTicks, System.nanoTime() - start, positions,
+				simulation.getLevel().computeHash());
+	}
+
+	/**
+	 * Writes the results into a CSV file. The last line is a comment with
+	 * the throughput of the whole batch.
+	 * @param pFile The file name
+	 * @param pResults The results
+	 * @param pThreads The number of threads
+	 * @param pNanos The wall time of the batch in nanoseconds
+	 * @param pPerMinute The number of matches per minute
+	 * @throws IOException Thrown when the file can't be written
+	 */
+	private static void write(final String pFile, final List<Result> pResults,
+			final int pThreads, final long pNanos, final double pPerMinute)
+			throws IOException {
+		final PrintWriter out = new PrintWriter(new FileWriter(pFile));
+		try {
+			final int units = pResults.isEmpty() ? 0 : pResults.get(0).positions.length / 2;
+			final StringBuilder header = new StringBuilder("match,ticks,ms,ticks_per_s");
+			for (int i = 0; i < units; i++) {
+				header.append(",unit").append(i).append("_x,unit").append(i).append("_y");
+			}
+			out.println(header.append(",hash"));
+			for (Result r : pResults) {
+				final StringBuilder line = new StringBuilder();
+				line.append(r.match).append(',').append(r.ticks).append(',');
+				line.append(String.format(Locale.US, "%.3f,%.0f", r.nanos / NANOS_PER_MILLI,
+						r.ticks * NANOS_PER_SECOND / Math.max(1, r.nanos)));
+				for (float p : r.positions) {
+					line.append(',').append(p);
+				}
+				line.append(',').append(String.format("%016x", r.hash));
+				out.println(line);
+			}
+			out.println(String.format(Locale.US,
+					"# matches=%d threads=%d seconds=%.3f matches_per_min=%.1f",
+					pResults.size(), pThreads, pNanos / NANOS_PER_SECOND, pPerMinute));
+		} finally {
+			out.close();
+		}
+		if (out.checkError()) {
+			throw new IOException("Error while writing " + pFile);
+		}
+	}
+}
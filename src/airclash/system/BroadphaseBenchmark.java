@@ -0,0 +1,157 @@
+package airclash.system;
+
+import java.util.Locale;
+import java.util.Random;
+
+import net.phys2d.math.Vector2f;
+import net.phys2d.raw.Body;
+import net.phys2d.raw.StaticBody;
+import net.phys2d.raw.World;
+import net.phys2d.raw.shapes.Box;
+
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.ConsoleAppender;
+import org.apache.log4j.PatternLayout;
+
+import airclash.system.exceptions.InvalidResourceException;
+import airclash.system.xml.LevelLoader;
+import airclash.units.buildings.Module;
+import airclash.world.Broadphase;
+import airclash.world.FilteredCollisionStrategy;
+import airclash.world.LevelDescription;
+
+/**
+ * Compares the broadphase strategies on the size of a level. For every body
+ * count, the same random boxes of up to the size of a module are dropped on
+ * the floor of an empty world, once per strategy, and the world is stepped
+ * for a while. The average time of a step, the part of it that was spent
+ * finding and testing pairs, and the number of candidate pairs and contact
+ * tests per step are printed.
+ *
+ * Usage: <code>BroadphaseBenchmark [level] [steps] [bodies...]</code>
+ *
+ * @author Andreas Textor
+ */
+public class BroadphaseBenchmark {
+	/** The number of steps per run if none is given. */
+	private static final int DEFAULT_STEPS = 300;
+
+	/** The body counts if none are given. */
+	private static final int[] DEFAULT_BODIES = {10, 100, 1000};
+
+	/** The number of solver iterations, as in the level. */
+	private static final int ITERATIONS = 10;
+
+	/** The gravity, as in the level. */
+	private static final Vector2f GRAVITY = new Vector2f(0, -10);
+
+	/** The seed of the positions and sizes of the boxes. */
+	private static final long SEED = 42;
+
+	/** The smallest edge length of a box. */
+	private static final int MIN_SIZE = Module.GRIDSIZE / 4;
+
+	/** The thickness of the floor and the walls. */
+	private static final float WALL = 10;
+
+	/** Number of nanoseconds in a millisecond. */
+	private static final double NANOS_PER_MILLI = 1000000.0;
+
+	/**
+	 * Starts the benchmark.
+	 * @param pArgs The commandline arguments: level name, number of steps and
+	 * the body counts
+	 */
+	public static void main(final String[] pArgs) {
+		BasicConfigurator.configure(new ConsoleAppender(
+				new PatternLayout("%d{HH:mm:ss} %-5p: %m%n")));
+		final String levelName = pArgs.length > 0 ? pArgs[0] : "level1";
+		final int steps = pArgs.length > 1 ? Integer.parseInt(pArgs[1]) : DEFAULT_STEPS;
+		int[] counts = DEFAULT_BODIES;
+		if (pArgs.length > 2) {
+			counts = new int[pArgs.length - 2];
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] = Integer.parseInt(pArgs[i + 2]);
+			}
+		}
+
+		final LevelDescription level;
+		try {
+			level = new LevelLoader(levelName).getDescription();
+		} catch (InvalidResourceException e) {
+			Core.LOGGER.error("Error while loading level", e);
+			System.exit(1);
+			return;
+		}
+
+		// The first round only warms up the JIT
+		for (Broadphase broadphase : Broadphase.values()) {
+			run(level, broadphase, counts[0], steps);
+		}
+		System.out.println(String.format("%-7s %-10s %9s %11s %9s %9s", "bodies", "broadphase",
+				"step(ms)", "collide(ms)", "pairs", "tests"));
+		for (int count : counts) {
+			for (Broadphase broadphase : Broadphase.values()) {
+				System.out.println(run(level, broadphase, count, steps));
+			}
+		}
+	}
+
+	/**
+	 * Drops boxes into an empty world and steps it.
+	 * @param pLevel The level, which gives the size of the world
+	 * @param pBroadphase The broadphase to use
+	 * @param pBodies The number of boxes
+	 * @param pSteps The number of steps
+	 * @return A line of the result table
+	 */
+	private static String run(final LevelDescription pLevel, final Broadphase pBroadphase,
+			final int pBodies, final int pSteps) {
+		final FilteredCollisionStrategy strategy =
+			new FilteredCollisionStrategy(pBroadphase.create(pLevel));
+		final World world = new World(GRAVITY, ITERATIONS, strategy);
+		world.enableRestingBodyDetection(1, 1, 1);
+
+		final float width = Math.max(pLevel.getWidth(), 4 * Module.GRIDSIZE);
+		final Body floor = new StaticBody("floor", new Box(width, WALL));
+		floor.setPosition(width / 2, -WALL / 2);
+		world.add(floor);
+		final Body left = new StaticBody("left", new Box(WALL, width * 2));
+		left.setPosition(-WALL / 2, width);
+		world.add(left);
+		final Body right = new StaticBody("right", new Box(WALL, width * 2));
+		right.setPosition(width + WALL / 2, width);
+		world.add(right);
+
+		// The boxes are placed in rows with space in between, so they don't
+		// overlap before they fall
+		final Random random = new Random(SEED);
+		final int perRow = Math.max(1, (int)(width / (2 * Module.GRIDSIZE)));
+		for (int i = 0; i < pBodies; i++) {
+			final float w = MIN_SIZE + random.nextInt(Module.GRIDSIZE - MIN_SIZE + 1);
+			final float h = MIN_SIZE + random.nextInt(Module.GRIDSIZE - MIN_SIZE + 1);
+			final Body box = new Body("box" + i, new Box(w, h), w * h / Module.GRIDSIZE);
+			box.setPosition((i % perRow + 0.5f) * 2 * Module.GRIDSIZE
+					+ random.nextFloat() * Module.GRIDSIZE / 2,
+					(i / perRow + 1) * 2 * Module.GRIDSIZE);
+			world.add(box);
+		}
+
+		long total = 0;
+		long collide = 0;
+		long pairs = 0;
+		long tests = 0;
+		for (int i = 0; i < pSteps; i++) {
+			strategy.resetCounters();
+			final long start = System.nanoTime();
+			world.step();
+			total += System.nanoTime() - start;
+			collide += strategy.getTime();
+			pairs += strategy.getCandidates();
+			tests += strategy.getTests();
+		}
+		return String.format(Locale.US, "%-7d %-10s %9.3f %11.3f %9d %9d", pBodies,
+				pBroadphase.toString().toLowerCase(), total / NANOS_PER_MILLI / pSteps,
+				collide / NANOS_PER_MILLI / pSteps, pairs / pSteps, tests / pSteps);
+	}
+}
@@ -0,0 +1,44 @@
+package airclash.system;
+
+/**
+ * The commands a player can give to the simulation. Each command has up to
+ * two int arguments, so that it can be stored in a CommandBuffer without
+ * creating objects.
+ *
+ * @author Andreas Textor
+ */
+public enum Command {
+	/**
+	 * Sets the movement of the selected unit, which is applied on every tick
+	 * until the next move command. Argument: a combination of the
+	 * Simulation.MOVE_ flags.
+	 */
+	MOVE,
+
+	/** Lets the selected unit jump. No arguments. */
+	JUMP,
+
+	/** Selects the next unit of the player. No arguments. */
+	SELECT_NEXT,
+
+	/** Places a hq module. Arguments: world x and y coordinate. */
+	PLACE_MODULE,
+
+	/**
+	 * Removes a module from the selected hq; modules that lose their
+	 * connection to the hq fall off. Arguments: world x and y coordinate.
+	 */
+	REMOVE_MODULE;
+
+	/** All commands, indexed by their ordinal. */
+	private static final Command[] VALUES = values();
+
+	/**
+	 * Returns the command with the given ordinal.
+	 * @param pOrdinal The ordinal
+	 * @return The command
+	 */
+	public static Command get(final int pOrdinal) {
+		return VALUES[pOrdinal];
+	}
+}
@@ -0,0 +1,108 @@
+package airclash.system;
+
+/**
+ * Preallocated ring buffer that passes commands from the thread that reads
+ * the input to the simulation thread. There must be exactly one thread that
+ * adds commands and one thread that drains them; neither of them locks or
+ * allocates memory. Each command is stored as three ints: the ordinal of the
+ * command and its two arguments.
+ *
+ * @author Andreas Textor
+ */
+public class CommandBuffer {
+	/** The number of ints a command takes. */
+	private static final int RECORD_SIZE = 3;
+
+	/** The commands. */
+	private final int[] records;
+
+	/** The capacity minus 1, used to wrap the positions. */
+	private final int mask;
+
+	/**
+	 * The number of commands that were drained. This is only written by the
+	 * consumer.
+	 */
+	private volatile long head = 0;
+
+	/**
+	 * The number of commands that were added. This is only written by the
+	 * producer; writing it publishes the command.
+	 */
+	private volatile long tail = 0;
+
+	/**
+	 * Constructor.
+	 * @param pCapacity The number of commands the buffer can hold. This is
+	 * rounded up to a power of two.
+	 */
+	public CommandBuffer(final int pCapacity) {
+		int capacity = 1;
+		while (capacity < pCapacity) {
+			capacity <<= 1;
+		}
+		this.records = new int[capacity * RECORD_SIZE];
+		this.mask = capacity - 1;
+	}
+
+	/**
+	 * Adds a command without arguments. This must only be called by the
+	 * producer thread.
+	 * @param pCommand The command
+	 * @return true if the command was added, false if the buffer is full
+	 */
+	public boolean add(final Command pCommand) {
+		return add(pCommand, 0, 0);
+	}
+
+	/**
+	 * Adds a command. This must only be called by the producer thread.
+	 * @param pCommand The command
+	 * @param pArg0 The first argument
+	 * @param pArg1 The second argument
+	 * @return true if the command was added, false if the buffer is full
+	 */
+	public boolean add(final Command pCommand, final int pArg0, final int pArg1) {
+		final long t = this.tail;
+		if (t - this.head > this.mask) {
+			return false;
+		}
+		final int index = (int)(t & this.mask) * RECORD_SIZE;
+		this.records[index] = pCommand.ordinal();
+		this.records[index + 1] = pArg0;
+		this.records[index + 2] = pArg1;
+		this.tail = t + 1;
+		return true;
+	}
+
+	/**
+	 * Passes all commands that were added so far to a handler, in the order
+	 * they were added. This must only be called by the consumer thread.
+	 * @param pHandler The handler
+	 * @return The number of commands that were drained
+	 */
+	public int drain(final ICommandHandler pHandler) {
+		final long t = this.tail;
+		long h = this.head;
+		final int count = (int)(t - h);
+		while (h < t) {
+			final int index = (int)(h & this.mask) * RECORD_SIZE;
+			final Command command = Command.get(this.records[index]);
+			final int arg0 = this.records[index + 1];
+			final int arg1 = this.records[index + 2];
+			h++;
+			// Free the slot before handling, the values are already copied
+			this.head = h;
+			pHandler.handleCommand(command, arg0, arg1);
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of commands that wait to be drained.
+	 * @return The number of commands
+	 */
+	public int size() {
+		return (int)(this.tail - this.head);
+	}
+}
@@ -3,7 +3,7 @@ package airclash.system;
 import java.awt.Dimension;
 
 import net.phys2d.math.ROVector2f;
-import net.phys2d.math.Vector2f;
+import net.phys2d.raw.Body;
 
 import org.apache.log4j.BasicConfigurator;
 import org.apache.log4j.ConsoleAppender;
@@ -18,15 +18,11 @@ import org.lwjgl.opengl.DisplayMode;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.glu.GLU;
 
-import airclash.system.exceptions.InvalidResourceException;
 import airclash.system.gfx.Gui;
 import airclash.system.gfx.Renderer;
-import airclash.units.IUnit;
-import airclash.units.Unit;
-import airclash.units.buildings.HQ;
-import airclash.units.buildings.Module;
-import airclash.units.vehicles.Scout;
+import airclash.system.gfx.TextureLoader;
 import airclash.world.Level;
+import airclash.world.WorldState;
 
 
 /**
@@ -57,23 +53,29 @@ public class Core {
 	/** The mouse button that was pressed. */
 	private int lastButtonDown = -1;
 
+	/** The mouse position of the last move or drag event passed to the gui. */
+	private int lastMouseX = -1;
+
+	/** The mouse position of the last move or drag event passed to the gui. */
+	private int lastMouseY = -1;
+
+	/** The movement flags of the last move command. */
+	private int lastMovement = 0;
+
 	/** The Gui object. This is responsible for frames, buttons etc. */
 	private Gui gui;
 	
 	/** The renderer that is used to display everything. */
 	private Renderer renderer;
 
-	/** The level where the action takes place. */
-	private Level level;
+	/** The simulation, e.g. the level and the player with its units. */
+	private Simulation simulation;
 	
 	/** The size of the window. */
 	private final Dimension windowSize = new Dimension(1024, 768);
 	
-	/** This is used to restrict the number of jumps of a vehicle per time. */
-	private int jumpTimeout = 0;
-	
-	/** The player. */
-	private Player player;
+	/** The thread that runs the simulation. */
+	private SimulationThread simulationThread;
 	
 	/** View offset (level scrolling). */
 	private int offsetX = 0;
@@ -84,6 +86,9 @@ public class Core {
 	/** Mouse mode: selection means placing a unit. */
 	private boolean selectionMode = false;
 	
+	/** Measures the duration of the phases of each frame. */
+	private final Profiler profiler = new Profiler(FRAMERATE);
+	
 	/**
 	 * Static constructor. Fill the default properties.
 	 */
@@ -91,6 +96,10 @@ public class Core {
 		PROPERTIES.set(Properties.Prop.FULLSCREEN, "0");
 		PROPERTIES.set(Properties.Prop.PLAYERNAME, "UnnamedPlayer");
 		PROPERTIES.set(Properties.Prop.DRAWCONTACTS, "0");
+		PROPERTIES.set(Properties.Prop.TICKRATE, "50");
+		PROPERTIES.set(Properties.Prop.CHUNKRADIUS, "600");
+		PROPERTIES.set(Properties.Prop.PHYSICSTHREADS,
+				String.valueOf(Runtime.getRuntime().availableProcessors()));
 	}
 	
 	/**
@@ -131,21 +140,22 @@ public class Core {
 			// Loading info
 			this.renderer = new Renderer(this);
 			this.renderer.drawLoadingScreen();
+			Display.update();
 			
 			// Create other stuff
+			TextureLoader.getInstance().packAtlas();
 			Keyboard.create();
 			this.gui = new Gui(this);
 			// Output log messages also to the game console
 			LOGGER.addAppender(new PrintStreamAppender(
 					this.gui.getConsole().getOut(), this.loggerLayout));
 
-			this.level = new Level();
-			this.level.load("level1");
-			
-			this.player = new Player(PROPERTIES.getString(Properties.Prop.PLAYERNAME));
-			this.player.addUnit(new Scout());
-//			this.player.addUnit(new Drone());
-			this.player.addUnit(new HQ(this.gui));
+			final int tickRate = PROPERTIES.getInt(Properties.Prop.TICKRATE);
+			this.simulation = new Simulation("level1",
+					PROPERTIES.getString(Properties.Prop.PLAYERNAME), this.gui, tickRate,
+					PROPERTIES.getInt(Properties.Prop.PHYSICSTHREADS));
+			this.simulationThread = new SimulationThread(this.simulation, tickRate,
+					this.profiler);
 			
 			// Register property listeners
 			registerPropertyListeners();
@@ -171,7 +181,18 @@ public class Core {
 			}
 		});
 		
-		PROPERTIES.registerListener(Properties.Prop.PLAYERNAME, this.player);
+		PROPERTIES.registerListener(Properties.Prop.PLAYERNAME, this.simulation.getPlayer());
+		
+		PROPERTIES.registerListener(Properties.Prop.TICKRATE, new IPropertyListener() {
+			@SuppressWarnings("synthetic-access")
+			public void changedEvent(final String pNewValue) {
+				try {
+					Core.this.simulationThread.setTickRate(Integer.parseInt(pNewValue));
+				} catch (NumberFormatException e) {
+					LOGGER.error("Invalid tick rate: " + pNewValue);
+				}
+			}
+		});
 	}
 
 	/**
@@ -192,22 +213,13 @@ public class Core {
 	}
 	
 	/**
-	 * Resets the units and the level.
+	 * Resets the units and the level. The reset is done by the simulation
+	 * thread before its next tick.
 	 */
 	public void reset() {
-		this.level.init();
-		final IUnit u1 = this.player.getUnits().get(0);
-//		final IUnit u2 = this.player.getUnits().get(1);
-		u1.setPosition(new Vector2f(330, 200));
-//		u2.setPosition(new Vector2f(330, 300));
-		this.level.addUnit(u1);
-//		this.level.addUnit(u2);
-		
-		final IUnit hq = this.player.getUnits().get(1);
-		hq.setPosition(new Vector2f(150, 200));
-		this.level.addUnit(hq);
-		
-		u1.select();
+		// The simulation forgets the movement, so it is sent again
+		this.lastMovement = 0;
+		this.simulationThread.reset();
 	}
 	
 	/**
@@ -220,28 +232,36 @@ public class Core {
 		// the loading process
 		System.gc();
 		LOGGER.info("Game start");
+		this.simulationThread.start();
 		while (!finished) {
 //			try {
+				final long frameStart = System.nanoTime();
 				readBufferedKeyboard();
 				readBufferedMouse();
+				final long inputEnd = System.nanoTime();
+				this.profiler.record(Profiler.Phase.INPUT, frameStart, inputEnd);
 				Display.update();
+				this.profiler.record(Profiler.Phase.DISPLAY, inputEnd, System.nanoTime());
 				
 				if (Display.isCloseRequested()) {
 					finished = true;
-				} else if (Display.isActive()) {
-					logic();
-					render();
-					Display.sync(FRAMERATE);
 				} else {
-					try {
-						Thread.sleep(100);
-					} catch (InterruptedException e) {
-					}
-					logic();
-	
-					// Only bother rendering if the window is visible or dirty
-					if (Display.isVisible() || Display.isDirty()) {
+					// The simulation thread keeps ticking on its own, even
+					// while the window is inactive
+					if (Display.isActive()) {
 						render();
+						this.profiler.record(Profiler.Phase.FRAME, frameStart, System.nanoTime());
+						Display.sync(FRAMERATE);
+					} else {
+						// Only bother rendering if the window is visible or dirty
+						if (Display.isVisible() || Display.isDirty()) {
+							render();
+						}
+						this.profiler.record(Profiler.Phase.FRAME, frameStart, System.nanoTime());
+						try {
+							Thread.sleep(100);
+						} catch (InterruptedException e) {
+						}
 					}
 				}
 //			} catch (Exception e) {
@@ -252,54 +272,56 @@ public class Core {
 	}
 	
 	/**
-	 * Game logic. This method is called every frame.
-	 */
-	private void logic() {
-		this.level.step();
-	}
-	
-	/**
-	 * Renders the scene.
+	 * Renders the scene. Everything that moves is drawn from the latest state
+	 * that was published by the simulation thread.
 	 */
 	private void render() {
+		final long worldStart = System.nanoTime();
 		// clear background
-		GL11.glClear(GL11.GL_COLOR_BUFFER_BIT);
-		GL11.glLoadIdentity();
+		this.renderer.beginFrame();
 		this.renderer.drawBackground();
-		
-		// Scroll the view
-		final ROVector2f pos = this.player.getSelectedUnit().getBodyParts().get(0).getPosition();
-		this.offsetX = (int)-pos.getX() + this.getWindowSize().width / 2;
-		this.offsetY = (int)(this.windowSize.getHeight() - pos.getY() - this.windowSize.height / 2);
-		if (this.offsetY > 0) {
-			this.offsetY = 0;
-		}
-		if (this.offsetX > 0) {
-			this.offsetX = 0;
-		}
-		if (this.offsetX < -this.level.getDescription().getWidth() + this.windowSize.width) {
-			this.offsetX = -this.level.getDescription().getWidth() + this.windowSize.width;
-		}
-		GL11.glTranslatef(this.offsetX, this.offsetY, 0);
-		
-		// Draw the world and units etc.
-		GL11.glEnable(GL11.GL_TEXTURE_2D);
-		this.level.drawWorld(this.renderer);
-		for (IUnit u : Unit.getModules()) {
-			u.draw(this.renderer);
-		}
-		for (IUnit u : Unit.getUnits()) {
-			u.draw(this.renderer);
+		final Level level = this.simulation.getLevel();
+		final WorldState state = level.acquireState();
+		try {
+			final float alpha = (System.nanoTime() - state.getCurrent().getTime())
+				/ (float)this.simulationThread.getTickLength();
+			this.renderer.setInterpolation(state.getPrevious(), state.getCurrent(),
+					Math.min(1.0f, Math.max(0.0f, alpha)));
+			
+			// Scroll the view
+			final Body focus = state.getCurrent().getFocus();
+			if (focus != null) {
+				final ROVector2f pos = this.renderer.getInterpolatedPosition(focus);
+				this.offsetX = (int)-pos.getX() + this.getWindowSize().width / 2;
+				this.offsetY = (int)(this.windowSize.getHeight() - pos.getY() - this.windowSize.height / 2);
+			}
+			if (this.offsetY > 0) {
+				this.offsetY = 0;
+			}
+			if (this.offsetX > 0) {
+				this.offsetX = 0;
+			}
+			if (this.offsetX < -level.getDescription().getWidth() + this.windowSize.width) {
+				this.offsetX = -level.getDescription().getWidth() + this.windowSize.width;
+			}
+			
+			// Draw the world and units etc.
+			this.renderer.drawWorld(level, state.getCurrent(), this.offsetX, this.offsetY);
+			
+			if (this.selectionMode) {
+				this.renderer.drawSelection(Mouse.getX() - this.offsetX, Mouse.getY() - this.offsetY);
+			}
+		} finally {
+			level.releaseState(state);
 		}
-		this.level.drawOverlay(this.renderer);
 		
-		if (this.selectionMode) {
-			this.renderer.drawSelection(Mouse.getX() - this.offsetX, Mouse.getY() - this.offsetY);
-		}
+		final long guiStart = System.nanoTime();
+		this.profiler.record(Profiler.Phase.WORLD, worldStart, guiStart);
 		
 		// Render GUI
-		GL11.glLoadIdentity();
+		this.renderer.resetTransform();
 		this.gui.draw(this.renderer);
+		this.profiler.record(Profiler.Phase.GUI, guiStart, System.nanoTime());
 	}
 
 	/**
@@ -333,10 +355,6 @@ public class Core {
 				}
 			}
 		} else {
-			if (this.jumpTimeout > 0) {
-				this.jumpTimeout--;
-			}
-			
 			// Check for keys that are not supposed to be triggered repetitively
 			while (Keyboard.next()) {
 				switch (Keyboard.getEventKey()) {
@@ -357,64 +375,64 @@ public class Core {
 					}
 					break;
 				case Keyboard.KEY_SPACE:
-					if (this.jumpTimeout == 0) {
-						this.player.getSelectedUnit().addForce(new Vector2f(0, 50000));
-						this.jumpTimeout = 60;
+					if (Keyboard.getEventKeyState()) {
+						sendCommand(Command.JUMP, 0, 0);
 					}
 					break;
 				case Keyboard.KEY_TAB:
 					if (!Keyboard.getEventKeyState()) {
-						this.player.selectNextUnit();
+						sendCommand(Command.SELECT_NEXT, 0, 0);
 					}
 					break;
 				default:
 					break;
 				}
 			}
-			
-			// Check for keys that can be hold down
-			
+		}
+		
+		// Check for keys that can be hold down. The movement is applied on
+		// every tick by the simulation, so it is only sent when it changes.
+		int movement = 0;
+		if (!this.gui.getConsole().isVisible()) {
 			// Left and right make the wheels move
 			if (Keyboard.isKeyDown(Keyboard.KEY_LEFT)) {
-				this.player.getSelectedUnit().move(IUnit.LEFT);
+				movement |= Simulation.MOVE_LEFT;
 			}
 			if (Keyboard.isKeyDown(Keyboard.KEY_RIGHT)) {
-				this.player.getSelectedUnit().move(IUnit.RIGHT);
+				movement |= Simulation.MOVE_RIGHT;
 			}
 			if (Keyboard.isKeyDown(Keyboard.KEY_UP)) {
-				this.player.getSelectedUnit().move(IUnit.UP);
+				movement |= Simulation.MOVE_UP;
 			}
 		}
+		if (movement != this.lastMovement && sendCommand(Command.MOVE, movement, 0)) {
+			this.lastMovement = movement;
+		}
 
 		// check keys, buffered
 		Keyboard.poll();
 	}
 
 	/**
-	 * Creates a new hq module.
-	 * @param pX The world x coordinate
-	 * @param pY The world y coordinate
+	 * Passes a command to the simulation thread. If the command buffer is
+	 * full, the command is dropped.
+	 * @param pCommand The command
+	 * @param pArg0 The first argument
+	 * @param pArg1 The second argument
+	 * @return true if the command was passed on
 	 */
-	private void createModule(final int pX, final int pY) {
-		try {
-			final HQ hq = (HQ)this.player.getSelectedUnit();
-			final Module mod = new HQ(this.gui);
-			final int x = pX / Module.GRIDSIZE
-				- (int)hq.getBody().getPosition().getX() / Module.GRIDSIZE;
-			final int y = pY / Module.GRIDSIZE
-				- (int)hq.getBody().getPosition().getY() / Module.GRIDSIZE;
-			if (hq.addModule(mod, x, y)) {
-				this.level.addUnit(hq);
-			} else {
-				mod.delete();
-			}
-		} catch (InvalidResourceException e) {
-			LOGGER.error("Placing module failed");
+	private boolean sendCommand(final Command pCommand, final int pArg0, final int pArg1) {
+		if (this.simulationThread.getCommands().add(pCommand, pArg0, pArg1)) {
+			return true;
 		}
+		LOGGER.warn("Command buffer full, dropping " + pCommand);
+		return false;
 	}
 
 	/**
-	 * reads a mouse in buffered mode.
+	 * reads a mouse in buffered mode. All pending button and wheel events are
+	 * passed to the gui, but mouse movement is merged into at most one move
+	 * or drag event per frame.
 	 */
 	private void readBufferedMouse() {
 		final int x = Mouse.getX();
@@ -425,35 +443,41 @@ public class Core {
 
 		// @todo the click count is not considered in LWJGL! #
 		
-		if (this.selectionMode && Mouse.getEventButtonState() && Mouse.getEventButton() == 0) {
-			this.selectionMode = false;
-			createModule(x - this.offsetX, y - this.offsetY);
+		while (Mouse.next()) {
+			final int button = Mouse.getEventButton();
+			if (button != -1) {
+				if (Mouse.getEventButtonState()) {
+					if (this.selectionMode && button == 0) {
+						this.selectionMode = false;
+						sendCommand(Command.PLACE_MODULE, x - this.offsetX, y - this.offsetY);
+					} else if (this.selectionMode && button == 1) {
+						this.selectionMode = false;
+						sendCommand(Command.REMOVE_MODULE, x - this.offsetX, y - this.offsetY);
+					}
+					this.lastButtonDown = button;
+					hitGUI |= this.gui.getDisplay().fireMousePressedEvent(x, y, EventHelper
+							.getMouseButton(button), 1);
+				} else if (button == this.lastButtonDown) {
+					hitGUI |= this.gui.getDisplay().fireMouseReleasedEvent(x, y, EventHelper
+							.getMouseButton(button), 1);
+					this.lastButtonDown = -1;
+				}
+			}
+			final int wheel = Mouse.getEventDWheel();
+			if (wheel != 0) {
+				hitGUI |= this.gui.getDisplay().fireMouseWheel(x, y, wheel > 0, 1);
+			}
 		}
 		
-		if (this.lastButtonDown != -1 && Mouse.isButtonDown(this.lastButtonDown)) {
-			hitGUI |= this.gui.getDisplay().fireMouseDraggedEvent(x, y, EventHelper
-					.getMouseButton(this.lastButtonDown));
-		} else {
-			if (Mouse.getDX() != 0 || Mouse.getDY() != 0) {
-				hitGUI |= this.gui.getDisplay().fireMouseMovedEvent(x, y);
-			}
-
+		if (x != this.lastMouseX || y != this.lastMouseY) {
 			if (this.lastButtonDown != -1) {
-				hitGUI |= this.gui.getDisplay().fireMouseReleasedEvent(x, y, EventHelper
-						.getMouseButton(this.lastButtonDown), 1);
-				this.lastButtonDown = -1;
-			}
-			while (Mouse.next()) {
-				if (Mouse.getEventButton() != -1 && Mouse.getEventButtonState()) {
-					this.lastButtonDown = Mouse.getEventButton();
-					hitGUI |= this.gui.getDisplay().fireMousePressedEvent(x, y, EventHelper
-							.getMouseButton(this.lastButtonDown), 1);
-				}
-				final int wheel = Mouse.getEventDWheel();
-				if (wheel != 0) {
-					hitGUI |= this.gui.getDisplay().fireMouseWheel(x, y, wheel > 0, 1);
-				}
+				hitGUI |= this.gui.getDisplay().fireMouseDraggedEvent(x, y, EventHelper
+						.getMouseButton(this.lastButtonDown));
+			} else {
+				hitGUI |= this.gui.getDisplay().fireMouseMovedEvent(x, y);
 			}
+			this.lastMouseX = x;
+			this.lastMouseY = y;
 		}
 	}
 	
@@ -461,6 +485,9 @@ public class Core {
 	 * Cleans up the test.
 	 */
 	private void cleanup() {
+		if (this.simulationThread != null && this.simulationThread.isAlive()) {
+			this.simulationThread.shutdown();
+		}
 		Display.destroy();
 	}
 	
@@ -519,7 +546,23 @@ public class Core {
 	 * @return The level
 	 */
 	public Level getLevel() {
-		return this.level;
+		return this.simulation.getLevel();
+	}
+
+	/**
+	 * Returns the thread that runs the simulation.
+	 * @return The simulation thread
+	 */
+	public SimulationThread getSimulationThread() {
+		return this.simulationThread;
+	}
+
+	/**
+	 * Returns the profiler that measures the phases of each frame.
+	 * @return The profiler
+	 */
+	public Profiler getProfiler() {
+		return this.profiler;
 	}
 
 }
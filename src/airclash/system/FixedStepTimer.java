@@ -0,0 +1,148 @@
+package airclash.system;
+
+/**
+ * Accumulator based scheduler for the game logic. Every frame, the elapsed
+ * real time is added to an accumulator, which is then consumed in fixed size
+ * ticks. This decouples the simulation speed from the frame rate: the number
+ * of ticks per second stays the same no matter how fast frames are drawn.
+ * The remainder of the accumulator is used to interpolate between the last
+ * two simulation states when rendering.
+ *
+ * @author Andreas Textor
+ */
+public class FixedStepTimer {
+	/** Number of nanoseconds in a second. */
+	private static final long NANOS_PER_SECOND = 1000000000L;
+
+	/** The length of a tick in nanoseconds. */
+	private long tickLength;
+
+	/**
+	 * The maximum number of ticks that are run in one frame. If a frame took
+	 * longer than that, the rest of the time is dropped, so that slow frames
+	 * can't cause more and more ticks to pile up.
+	 */
+	private int maxTicksPerFrame;
+
+	/** The time that was not yet consumed by ticks, in nanoseconds. */
+	private long accumulator = 0;
+
+	/** The time of the last call to advance(), or -1 if there was none. */
+	private long lastTime = -1;
+
+	/** The number of ticks that were run since the last reset. */
+	private long tick = 0;
+
+	/**
+	 * Constructor.
+	 * @param pTickRate The number of ticks per second
+	 * @param pMaxTicksPerFrame The maximum number of ticks to run per frame
+	 */
+	public FixedStepTimer(final int pTickRate, final int pMaxTicksPerFrame) {
+		setTickRate(pTickRate);
+		this.maxTicksPerFrame = pMaxTicksPerFrame;
+	}
+
+	/**
+	 * Changes the number of ticks per second. Values below 1 are ignored.
+	 * @param pTickRate The number of ticks per second
+	 */
+	public void setTickRate(final int pTickRate) {
+		if (pTickRate > 0) {
+			this.tickLength = NANOS_PER_SECOND / pTickRate;
+		}
+	}
+
+	/**
+	 * Returns the number of ticks per second.
+	 * @return The tick rate
+	 */
+	public int getTickRate() {
+		return (int)(NANOS_PER_SECOND / this.tickLength);
+	}
+
+	/**
+	 * Returns the length of a tick in nanoseconds.
+	 * @return The tick length
+	 */
+	public long getTickLength() {
+		return this.tickLength;
+	}
+
+	/**
+	 * Adds the time since the last call to the accumulator and returns the
+	 * number of ticks that are due now.
+	 * @return The number of ticks to run
+	 */
+	public int advance() {
+		return advance(System.nanoTime());
+	}
+
+	/**
+	 * Adds the time since the last call to the accumulator and returns the
+	 * number of ticks that are due at the given time.
+	 * @param pNow The current time in nanoseconds
+	 * @return The number of ticks to run
+	 */
+	public int advance(final long pNow) {
+		if (this.lastTime < 0) {
+			this.lastTime = pNow;
+		}
+		this.accumulator += pNow - this.lastTime;
+		this.lastTime = pNow;
+
+		long ticks = this.accumulator / this.tickLength;
+		if (ticks > this.maxTicksPerFrame) {
+			// Drop the backlog instead of trying to catch up
+			ticks = this.maxTicksPerFrame;
+			this.accumulator = this.accumulator % this.tickLength;
+		} else {
+			this.accumulator -= ticks * this.tickLength;
+		}
+		this.tick += ticks;
+		return (int)ticks;
+	}
+
+	/**
+	 * Returns how far the current time is between the last and the next tick.
+	 * @return The interpolation factor (0.0f - 1.0f)
+	 */
+	public float getAlpha() {
+		return (float)this.accumulator / this.tickLength;
+	}
+
+	/**
+	 * Returns the time until the next tick is due.
+	 * @return The time in nanoseconds
+	 */
+	public long getTimeToNextTick() {
+		return this.tickLength - this.accumulator;
+	}
+
+	/**
+	 * Returns the number of ticks that were run since the last reset.
+	 * @return The tick count
+	 */
+	public long getTick() {
+		return this.tick;
+	}
+
+	/**
+	 * Converts a duration to a number of ticks at the current tick rate.
+	 * Gameplay timers should count ticks instead of frames.
+	 * @param pSeconds The duration in seconds
+	 * @return The number of ticks, at least 1
+	 */
+	public int secondsToTicks(final float pSeconds) {
+		return Math.max(1, Math.round(pSeconds * NANOS_PER_SECOND / this.tickLength));
+	}
+
+	/**
+	 * Resets the timer. The next call to advance() starts measuring anew.
+	 */
+	public void reset() {
+		this.accumulator = 0;
+		this.lastTime = -1;
+		this.tick = 0;
+	}
+}
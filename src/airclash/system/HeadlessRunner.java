@@ -0,0 +1,119 @@
+package airclash.system;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.ConsoleAppender;
+import org.apache.log4j.PatternLayout;
+
+import airclash.system.exceptions.InvalidResourceException;
+import airclash.system.gfx.TextureLoader;
+
+/**
+ * Runs the simulation without a display as fast as possible. No OpenGL,
+ * keyboard or mouse functionality is used, so this can run on machines
+ * without a graphics device. The selected unit is driven back and forth and
+ * jumps whenever it can, so that physics and gameplay are exercised.
+ * The achieved ticks per second and the wall time per tick are logged.
+ * Optionally, the commands are recorded into a replay file.
+ *
+ * Usage: <code>HeadlessRunner [level] [ticks] [replayfile]</code>
+ *
+ * @author Andreas Textor
+ */
+public class HeadlessRunner {
+	/** The number of ticks to run if none is given. */
+	private static final int DEFAULT_TICKS = 10000;
+
+	/** The number of ticks between two progress reports. */
+	private static final int REPORT_INTERVAL = 1000;
+
+	/** The number of ticks after which the driving direction changes. */
+	private static final int TURN_INTERVAL = 500;
+
+	/** Number of nanoseconds in a second. */
+	private static final double NANOS_PER_SECOND = 1000000000.0;
+
+	/** Number of nanoseconds in a microsecond. */
+	private static final double NANOS_PER_MICRO = 1000.0;
+
+	/**
+	 * Starts the headless simulation.
+	 * @param pArgs The commandline arguments: level name, number of ticks and
+	 * replay file
+	 */
+	public static void main(final String[] pArgs) {
+		BasicConfigurator.configure(new ConsoleAppender(
+				new PatternLayout("%d{HH:mm:ss} %-5p: %m%n")));
+		final String levelName = pArgs.length > 0 ? pArgs[0] : "level1";
+		final int ticks = pArgs.length > 1 ? Integer.parseInt(pArgs[1]) : DEFAULT_TICKS;
+
+		TextureLoader.getInstance().setHeadless(true);
+		try {
+			final Simulation simulation = new Simulation(levelName, "Headless", null,
+					Core.PROPERTIES.getInt(Properties.Prop.TICKRATE),
+					Core.PROPERTIES.getInt(Properties.Prop.PHYSICSTHREADS));
+			simulation.reset();
+			if (pArgs.length > 2) {
+				final ReplayRecorder recorder = new ReplayRecorder(new File(pArgs[2]),
+						simulation, Core.PROPERTIES.getInt(Properties.Prop.TICKRATE));
+				run(simulation, recorder, ticks);
+				recorder.close();
+			} else {
+				run(simulation, simulation, ticks);
+			}
+			Core.LOGGER.info("Hash: " + String.format("%016x",
+					simulation.getLevel().computeHash()));
+		} catch (InvalidResourceException e) {
+			Core.LOGGER.error("Error while initializing headless simulation", e);
+			System.exit(1);
+		} catch (IOException e) {
+			Core.LOGGER.error("Error while writing replay", e);
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Runs the given number of ticks and logs the throughput.
+	 * @param pSimulation The simulation
+	 * @param pHandler The handler the commands are passed to, e.g. the
+	 * simulation or a recorder
+	 * @param pTicks The number of ticks
+	 */
+	public static void run(final Simulation pSimulation, final ICommandHandler pHandler,
+			final int pTicks) {
+		Core.LOGGER.info("Running " + pTicks + " ticks headless");
+		final long start = System.nanoTime();
+		long intervalStart = start;
+		for (int i = 1; i <= pTicks; i++) {
+			if (i % TURN_INTERVAL == 1) {
+				pHandler.handleCommand(Command.MOVE, (i / TURN_INTERVAL) % 2 == 0
+						? Simulation.MOVE_RIGHT : Simulation.MOVE_LEFT, 0);
+			}
+			pHandler.handleCommand(Command.JUMP, 0, 0);
+			pSimulation.tick();
+
+			if (i % REPORT_INTERVAL == 0) {
+				final long now = System.nanoTime();
+				report("Tick " + i, REPORT_INTERVAL, now - intervalStart);
+				intervalStart = now;
+			}
+		}
+		report("Total", pTicks, System.nanoTime() - start);
+		Core.LOGGER.info(pSimulation.getLevel().toString());
+	}
+
+	/**
+	 * Logs the throughput of a number of ticks.
+	 * @param pLabel The label of the report
+	 * @param pTicks The number of ticks
+	 * @param pNanos The wall time the ticks took in nanoseconds
+	 */
+	private static void report(final String pLabel, final int pTicks, final long pNanos) {
+		final double tps = pTicks * NANOS_PER_SECOND / Math.max(1, pNanos);
+		final double perTick = pNanos / NANOS_PER_MICRO / pTicks;
+		Core.LOGGER.info(pLabel + ": " + Math.round(tps) + " ticks/s, "
+				+ Math.round(perTick) + " us/tick");
+	}
+}
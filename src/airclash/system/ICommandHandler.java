@@ -0,0 +1,15 @@
+package airclash.system;
+
+/**
+ * Receives the commands from a CommandBuffer.
+ * @author Andreas Textor
+ */
+public interface ICommandHandler {
+	/**
+	 * Handles a command.
+	 * @param pCommand The command
+	 * @param pArg0 The first argument, or 0 if the command has none
+	 * @param pArg1 The second argument, or 0 if the command has none
+	 */
+	void handleCommand(Command pCommand, int pArg0, int pArg1);
+}
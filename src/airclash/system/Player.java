@@ -6,7 +6,8 @@ import java.util.List;
 import airclash.units.IUnit;
 
 /**
- * A player has a name, a list of units and a currently selected unit.
+ * A player has a name and a list of units. Which unit is selected is kept by
+ * the level.
  * 
  * @author Andreas Textor
  */
@@ -17,9 +18,6 @@ public class Player implements IPropertyListener {
 	/** The player's name. */
 	private String name;
 	
-	/** The index of the currently selected unit. */
-	private int currentUnit = 0;
-	
 	/**
 	 * Constructor.
 	 * @param pName The name of the player
@@ -46,33 +44,24 @@ public class Player implements IPropertyListener {
 	}
 	
 	/**
-	 * Returns the currently selected unit.
-	 * @return The currently selected unit.
+	 * Removes all units from the player's fleet.
 	 */
-	public IUnit getSelectedUnit() {
-		return this.units.get(this.currentUnit);
+	public void clearUnits() {
+		this.units.clear();
 	}
 	
 	/**
-	 * Selects the next unit of the fleet.
+	 * Returns the unit of the fleet that follows another one.
+	 * @param pUnit The current unit, may be null
+	 * @return The next unit, the first one if pUnit is the last or not in the
+	 * fleet, or null if the fleet is empty
 	 */
-	public void selectNextUnit() {
+	public IUnit getNextUnit(final IUnit pUnit) {
 		if (this.units.isEmpty()) {
-			return;
-		}
-		
-		this.currentUnit++;
-		if (this.currentUnit >= this.units.size()) {
-			this.currentUnit = 0;
-		}
-		final IUnit curUnit = getSelectedUnit();
-		for (IUnit u : this.units) {
-			if (u == curUnit) {
-				u.select();
-			} else {
-				u.unselect();
-			}
+			return null;
 		}
+		final int next = this.units.indexOf(pUnit) + 1;
+		return this.units.get(next >= this.units.size() ? 0 : next);
 	}
 	
 	/**
@@ -0,0 +1,231 @@
+package airclash.system;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * Low overhead profiler for the phases of a frame. The durations are recorded
+ * into fixed size histograms with logarithmic buckets, one histogram per phase
+ * and second for the last MAX_SECONDS seconds. Recording does not allocate
+ * memory, so the profiler can stay enabled all the time. Each phase must only
+ * be recorded by one thread; reading the statistics from another thread may
+ * see slightly outdated values, which is good enough for a report.
+ *
+ * @author Andreas Textor
+ */
+public class Profiler {
+	/**
+	 * The phases that are measured.
+	 * @author Andreas Textor
+	 */
+	public static enum Phase {
+		/** Reading keyboard and mouse. */
+		INPUT,
+
+		/** A simulation tick, measured on the simulation thread. */
+		SIMULATION,
+
+		/** Drawing the level and the units. */
+		WORLD,
+
+		/** Drawing the gui. */
+		GUI,
+
+		/** Display.update(), e.g. swapping the buffers. */
+		DISPLAY,
+
+		/** The whole frame without waiting for the next one. */
+		FRAME
+	}
+
+	/** The number of seconds the profiler keeps. */
+	public static final int MAX_SECONDS = 60;
+
+	/** Number of nanoseconds in a second. */
+	private static final long NANOS_PER_SECOND = 1000000000L;
+
+	/** Number of nanoseconds in a millisecond. */
+	private static final double NANOS_PER_MILLI = 1000000.0;
+
+	/**
+	 * The number of bits below the highest bit that select a sub bucket.
+	 * With 3 bits, each power of two is split into 8 buckets, so the relative
+	 * error of a value is at most 12.5 percent.
+	 */
+	private static final int SUB_BITS = 3;
+
+	/** The number of sub buckets per power of two. */
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+	/** The number of buckets, enough for durations of several hours. */
+	private static final int BUCKETS = 41 * SUB_BUCKETS;
+
+	/** The bucket counts per phase, second and bucket. */
+	private final int[][][] counts;
+
+	/** The maximum duration per phase and second. */
+	private final long[][] max;
+
+	/** The sum of all durations per phase and second. */
+	private final long[][] sum;
+
+	/** The second that a slot currently holds, per phase and slot. */
+	private final long[][] slotSecond;
+
+	/** The time a frame may take in nanoseconds. */
+	private final long frameBudget;
+
+	/** The time the profiler was created, seconds are counted from here. */
+	private final long origin = System.nanoTime();
+
+	/**
+	 * Constructor.
+	 * @param pFrameRate The desired frame rate, used to compute the frame budget
+	 */
+	public Profiler(final int pFrameRate) {
+		final int phases = Phase.values().length;
+		this.counts = new int[phases][MAX_SECONDS][BUCKETS];
+		this.max = new long[phases][MAX_SECONDS];
+		this.sum = new long[phases][MAX_SECONDS];
+		this.slotSecond = new long[phases][MAX_SECONDS];
+		for (long[] s : this.slotSecond) {
+			Arrays.fill(s, -1);
+		}
+		this.frameBudget = NANOS_PER_SECOND / pFrameRate;
+	}
+
+	/**
+	 * Records the duration of a phase.
+	 * @param pPhase The phase
+	 * @param pStart The start time as returned by System.nanoTime()
+	 * @param pEnd The end time as returned by System.nanoTime()
+	 */
+	public void record(final Phase pPhase, final long pStart, final long pEnd) {
+		final int p = pPhase.ordinal();
+		final long duration = Math.max(0, pEnd - pStart);
+		final long second = Math.max(0, pEnd - this.origin) / NANOS_PER_SECOND;
+		final int slot = (int)(second % MAX_SECONDS);
+		if (this.slotSecond[p][slot] != second) {
+			Arrays.fill(this.counts[p][slot], 0);
+			this.max[p][slot] = 0;
+			this.sum[p][slot] = 0;
+			this.slotSecond[p][slot] = second;
+		}
+		this.counts[p][slot][bucketOf(duration)]++;
+		this.sum[p][slot] += duration;
+		if (duration > this.max[p][slot]) {
+			this.max[p][slot] = duration;
+		}
+	}
+
+	/**
+	 * Returns the bucket of a duration.
+	 * @param pNanos The duration in nanoseconds
+	 * @return The bucket index
+	 */
+	private static int bucketOf(final long pNanos) {
+		if (pNanos < SUB_BUCKETS) {
+			return (int)pNanos;
+		}
+		final int exponent = 63 - Long.numberOfLeadingZeros(pNanos);
+		final int sub = (int)(pNanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		final int bucket = (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+		return Math.min(bucket, BUCKETS - 1);
+	}
+
+	/**
+	 * Returns the largest duration that falls into a bucket.
+	 * @param pBucket The bucket index
+	 * @return The duration in nanoseconds
+	 */
+	private static long upperBound(final int pBucket) {
+		if (pBucket < SUB_BUCKETS) {
+			return pBucket;
+		}
+		final int exponent = pBucket / SUB_BUCKETS + SUB_BITS - 1;
+		final long sub = pBucket % SUB_BUCKETS;
+		return ((SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS)) - 1;
+	}
+
+	/**
+	 * Returns the frame budget.
+	 * @return The time a frame may take in nanoseconds
+	 */
+	public long getFrameBudget() {
+		return this.frameBudget;
+	}
+
+	/**
+	 * Prints the percentiles of all phases over the last seconds.
+	 * @param pOut The stream to print to
+	 * @param pSeconds The number of seconds to evaluate (1 - MAX_SECONDS)
+	 */
+	public void report(final PrintStream pOut, final int pSeconds) {
+		final int seconds = Math.max(1, Math.min(MAX_SECONDS, pSeconds));
+		final long now = (System.nanoTime() - this.origin) / NANOS_PER_SECOND;
+		final int[] merged = new int[BUCKETS];
+
+		pOut.println("Last " + seconds + "s, times in ms:");
+		pOut.println(String.format("%-10s %7s %7s %7s %7s %7s %7s", "phase", "count",
+				"avg", "p50", "p95", "p99", "max"));
+		for (Phase phase : Phase.values()) {
+			final int p = phase.ordinal();
+			Arrays.fill(merged, 0);
+			long count = 0;
+			long total = 0;
+			long maximum = 0;
+			for (int slot = 0; slot < MAX_SECONDS; slot++) {
+				final long second = this.slotSecond[p][slot];
+				if (second < 0 || second <= now - seconds || second > now) {
+					continue;
+				}
+				for (int b = 0; b < BUCKETS; b++) {
+					merged[b] += this.counts[p][slot][b];
+					count += this.counts[p][slot][b];
+				}
+				total += this.sum[p][slot];
+				maximum = Math.max(maximum, this.max[p][slot]);
+			}
+			if (count == 0) {
+				pOut.println(String.format("%-10s %7d", phase.toString().toLowerCase(), 0));
+				continue;
+			}
+			pOut.println(String.format("%-10s %7d %7.2f %7.2f %7.2f %7.2f %7.2f",
+					phase.toString().toLowerCase(), count,
+					total / NANOS_PER_MILLI / count,
+					Math.min(maximum, percentile(merged, count, 0.50)) / NANOS_PER_MILLI,
+					Math.min(maximum, percentile(merged, count, 0.95)) / NANOS_PER_MILLI,
+					Math.min(maximum, percentile(merged, count, 0.99)) / NANOS_PER_MILLI,
+					maximum / NANOS_PER_MILLI));
+
+			if (phase == Phase.FRAME) {
+				pOut.println(String.format("Frame budget %.1f ms: avg %.0f%%, p95 %.0f%%, max %.0f%%",
+						this.frameBudget / NANOS_PER_MILLI,
+						100.0 * total / count / this.frameBudget,
+						100.0 * Math.min(maximum, percentile(merged, count, 0.95))
+						/ this.frameBudget,
+						100.0 * maximum / this.frameBudget));
+			}
+		}
+	}
+
+	/**
+	 * Computes a percentile from a histogram.
+	 * @param pBuckets The bucket counts
+	 * @param pCount The total count
+	 * @param pQuantile The quantile (0.0 - 1.0)
+	 * @return The upper bound of the bucket that contains the percentile
+	 */
+	private static long percentile(final int[] pBuckets, final long pCount,
+			final double pQuantile) {
+		final long rank = Math.max(1, (long)Math.ceil(pQuantile * pCount));
+		long seen = 0;
+		for (int b = 0; b < pBuckets.length; b++) {
+			seen += pBuckets[b];
+			if (seen >= rank) {
+				return upperBound(b);
+			}
+		}
+		return upperBound(pBuckets.length - 1);
+	}
+}
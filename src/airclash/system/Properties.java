@@ -42,7 +42,20 @@ public class Properties extends java.util.Properties {
 		PLAYERNAME(PropType.STRING),
 		
 		/** Draw contact points of objects. */
-		DRAWCONTACTS(PropType.BOOLEAN);
+		DRAWCONTACTS(PropType.BOOLEAN),
+		
+		/** Number of simulation ticks per second. */
+		TICKRATE(PropType.NUMBER),
+		
+		/** Distance in pixel around moving bodies where the floor is simulated. */
+		CHUNKRADIUS(PropType.NUMBER),
+		
+		/**
+		 * Number of threads that step the physics islands. 0 steps the whole
+		 * world at once, without islands. It is read when the simulation is
+		 * created.
+		 */
+		PHYSICSTHREADS(PropType.NUMBER);
 		
 		/** The type of this property. */
 		private PropType type;
@@ -98,7 +111,12 @@ public class Properties extends java.util.Properties {
 	 */
 	@Override
 	public Object setProperty(final String pKey, final String pValue) {
-		final Set<IPropertyListener> listenerSet = this.listeners.get(pKey);
+		Set<IPropertyListener> listenerSet = null;
+		for (Prop p : Prop.values()) {
+			if (p.toString().equals(pKey)) {
+				listenerSet = this.listeners.get(p);
+			}
+		}
 		if (listenerSet != null) {
 			for (IPropertyListener pl : listenerSet) {
 				pl.changedEvent(pValue);
@@ -136,6 +154,23 @@ public class Properties extends java.util.Properties {
 		return super.getProperty(pKey.toString());
 	}
 	
+	/**
+	 * Gets a property value of a number property.
+	 * @param pKey The property
+	 * @return The value, or 0 if the property is not a valid number
+	 */
+	public int getInt(final Prop pKey) {
+		int result = 0;
+		if (pKey.getType() == PropType.NUMBER) {
+			try {
+				result = Integer.parseInt(super.getProperty(pKey.toString()));
+			} catch (NumberFormatException e) {
+				result = 0;
+			}
+		}
+		return result;
+	}
+	
 	/**
 	 * Gets a property value of a boolean property.
 	 * @param pKey The property
@@ -0,0 +1,129 @@
+package airclash.system;
+
+import java.awt.Dimension;
+
+import net.phys2d.math.ROVector2f;
+import net.phys2d.raw.Body;
+
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.ConsoleAppender;
+import org.apache.log4j.PatternLayout;
+
+import airclash.system.exceptions.InvalidResourceException;
+import airclash.system.gfx.RecordingBackend;
+import airclash.system.gfx.Renderer;
+import airclash.system.gfx.TextureLoader;
+import airclash.world.Level;
+import airclash.world.WorldState;
+
+/**
+ * Measures the rendering without a display. The simulation is driven like
+ * in the HeadlessRunner, and after every tick the world is drawn, scrolled
+ * to the focus like in the game, onto a renderer that records instead of
+ * drawing. The average and maximum number of draw calls, vertices, texture
+ * binds and state changes per frame are logged, together with the part of
+ * the binds and state changes that were redundant.
+ *
+ * Usage: <code>RenderStatsRunner [level] [frames]</code>
+ *
+ * @author Andreas Textor
+ */
+public class RenderStatsRunner {
+	/** The number of frames to draw if none is given. */
+	private static final int DEFAULT_FRAMES = 2000;
+
+	/** The number of ticks after which the driving direction changes. */
+	private static final int TURN_INTERVAL = 500;
+
+	/** The size of the window that is simulated. */
+	private static final Dimension WINDOW_SIZE = new Dimension(1024, 768);
+
+	/** The names of the measured values. */
+	private static final String[] NAMES = {"draw calls", "vertices", "texture binds",
+		"redundant binds", "state changes", "redundant state changes", "commands"};
+
+	/**
+	 * Starts the measurement.
+	 * @param pArgs The commandline arguments: level name and number of frames
+	 */
+	public static void main(final String[] pArgs) {
+		BasicConfigurator.configure(new ConsoleAppender(
+				new PatternLayout("%d{HH:mm:ss} %-5p: %m%n")));
+		final String levelName = pArgs.length > 0 ? pArgs[0] : "level1";
+		final int frames = pArgs.length > 1 ? Integer.parseInt(pArgs[1]) : DEFAULT_FRAMES;
+
+		TextureLoader.getInstance().setHeadless(true);
+		try {
+			TextureLoader.getInstance().packAtlas();
+			final Simulation simulation = new Simulation(levelName, "Headless", null,
+					Core.PROPERTIES.getInt(Properties.Prop.TICKRATE),
+					Core.PROPERTIES.getInt(Properties.Prop.PHYSICSTHREADS));
+			simulation.reset();
+			final RecordingBackend backend = new RecordingBackend();
+			final Renderer renderer = new Renderer(backend, WINDOW_SIZE);
+			final long[] sum = new long[NAMES.length];
+			final int[] max = new int[NAMES.length];
+			final int[] frame = new int[NAMES.length];
+			for (int i = 1; i <= frames; i++) {
+				if (i % TURN_INTERVAL == 1) {
+					simulation.handleCommand(Command.MOVE, (i / TURN_INTERVAL) % 2 == 0
+							? Simulation.MOVE_RIGHT : Simulation.MOVE_LEFT, 0);
+				}
+				simulation.handleCommand(Command.JUMP, 0, 0);
+				simulation.tick();
+
+				backend.reset();
+				drawFrame(renderer, simulation.getLevel());
+				frame[0] = backend.getDrawCalls();
+				frame[1] = backend.getVertices();
+				frame[2] = backend.getTextureBinds();
+				frame[3] = backend.getRedundantBinds();
+				frame[4] = backend.getStateChanges();
+				frame[5] = backend.getRedundantStateChanges();
+				frame[6] = backend.getCommandCount();
+				for (int j = 0; j < NAMES.length; j++) {
+					sum[j] += frame[j];
+					max[j] = Math.max(max[j], frame[j]);
+				}
+			}
+			Core.LOGGER.info("Rendered " + frames + " frames, per frame:");
+			for (int j = 0; j < NAMES.length; j++) {
+				Core.LOGGER.info(String.format("%-24s avg %8.1f  max %6d", NAMES[j],
+						sum[j] / (double)frames, max[j]));
+			}
+		} catch (InvalidResourceException e) {
+			Core.LOGGER.error("Error while initializing headless simulation", e);
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Draws the world like Core.render() does, without the gui.
+	 * @param pRenderer The renderer
+	 * @param pLevel The level
+	 */
+	private static void drawFrame(final Renderer pRenderer, final Level pLevel) {
+		final WorldState state = pLevel.acquireState();
+		try {
+			pRenderer.setInterpolation(state.getPrevious(), state.getCurrent(), 1.0f);
+			pRenderer.beginFrame();
+			pRenderer.drawBackground();
+
+			int offsetX = 0;
+			int offsetY = 0;
+			final Body focus = state.getCurrent().getFocus();
+			if (focus != null) {
+				final ROVector2f pos = pRenderer.getInterpolatedPosition(focus);
+				offsetX = (int)-pos.getX() + WINDOW_SIZE.width / 2;
+				offsetY = (int)(WINDOW_SIZE.height - pos.getY() - WINDOW_SIZE.height / 2);
+			}
+			offsetX = Math.max(Math.min(offsetX, 0),
+					-pLevel.getDescription().getWidth() + WINDOW_SIZE.width);
+			offsetY = Math.min(offsetY, 0);
+			pRenderer.drawWorld(pLevel, state.getCurrent(), offsetX, offsetY);
+		} finally {
+			pLevel.releaseState(state);
+		}
+		pRenderer.resetTransform();
+	}
+}
@@ -0,0 +1,156 @@
+package airclash.system;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Reads a replay file that was written by a ReplayRecorder, one command at
+ * a time.
+ *
+ * @author Andreas Textor
+ */
+public class ReplayReader {
+	/** The file. */
+	private final DataInputStream in;
+
+	/** The name of the level. */
+	private final String levelName;
+
+	/** The number of ticks per second. */
+	private final int tickRate;
+
+	/** The tick of the current record. */
+	private long tick = 0;
+
+	/** The command of the current record, or null at the end. */
+	private Command command;
+
+	/** The first argument of the current record. */
+	private int arg0;
+
+	/** The second argument of the current record. */
+	private int arg1;
+
+	/**
+	 * Constructor. Reads the header of the file.
+	 * @param pFile The file to read
+	 * @throws IOException Thrown when the file can't be read or is no replay
+	 */
+	public ReplayReader(final File pFile) throws IOException {
+		this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(pFile)));
+		try {
+			if (this.in.readInt() != ReplayRecorder.MAGIC) {
+				throw new IOException(pFile + " is not a replay file");
+			}
+			final int version = this.in.readUnsignedByte();
+			if (version != ReplayRecorder.VERSION) {
+				throw new IOException("Unsupported replay version " + version);
+			}
+			this.levelName = this.in.readUTF();
+			this.tickRate = this.in.readInt();
+		} catch (IOException e) {
+			this.in.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads the next record.
+	 * @return true if a command was read, false if the end of the recording
+	 * was reached. getTick() returns the last tick of the recording then.
+	 * @throws IOException Thrown when the file can't be read
+	 */
+	public boolean next() throws IOException {
+		this.tick += readVarInt();
+		final int type = this.in.readUnsignedByte();
+		if (type == ReplayRecorder.END) {
+			this.command = null;
+			return false;
+		}
+		if (type >= Command.values().length) {
+			throw new IOException("Invalid command " + type);
+		}
+		this.command = Command.get(type);
+		int value = readVarInt();
+		this.arg0 = (value >>> 1) ^ -(value & 1);
+		value = readVarInt();
+		this.arg1 = (value >>> 1) ^ -(value & 1);
+		return true;
+	}
+
+	/**
+	 * Closes the file.
+	 * @throws IOException Thrown when the file can't be closed
+	 */
+	public void close() throws IOException {
+		this.in.close();
+	}
+
+	/**
+	 * Reads an unsigned int with 7 bits per byte.
+	 * @return The value
+	 * @throws IOException Thrown when the file can't be read
+	 */
+	private int readVarInt() throws IOException {
+		int value = 0;
+		int shift = 0;
+		int b;
+		do {
+			b = this.in.readUnsignedByte();
+			value |= (b & 0x7f) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0 && shift < 35);
+		return value;
+	}
+
+	/**
+	 * Returns the name of the level.
+	 * @return The level name
+	 */
+	public String getLevelName() {
+		return this.levelName;
+	}
+
+	/**
+	 * Returns the number of ticks per second of the recording.
+	 * @return The tick rate
+	 */
+	public int getTickRate() {
+		return this.tickRate;
+	}
+
+	/**
+	 * Returns the tick of the current record.
+	 * @return The tick
+	 */
+	public long getTick() {
+		return this.tick;
+	}
+
+	/**
+	 * Returns the command of the current record.
+	 * @return The command, or null at the end of the recording
+	 */
+	public Command getCommand() {
+		return this.command;
+	}
+
+	/**
+	 * Returns the first argument of the current record.
+	 * @return The argument
+	 */
+	public int getArg0() {
+		return this.arg0;
+	}
+
+	/**
+	 * Returns the second argument of the current record.
+	 * @return The argument
+	 */
+	public int getArg1() {
+		return this.arg1;
+	}
+}
@@ -0,0 +1,122 @@
+package airclash.system;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Records the commands of a player with the tick they were executed in, and
+ * passes them on to the simulation. The commands are written to a compact
+ * binary file that a ReplayRunner can play back.
+ *
+ * The file starts with a header: the MAGIC int, the VERSION byte, the name
+ * of the level, and the tick rate as int. It is followed by one record per
+ * command: the number of ticks since the previous record as unsigned
+ * variable length int, the ordinal of the command as byte, and the two
+ * arguments as signed variable length ints. The last record contains only
+ * the tick delta and the END byte; it marks the tick the recording stopped at.
+ *
+ * @author Andreas Textor
+ */
+public class ReplayRecorder implements ICommandHandler {
+	/** The first four bytes of a replay file: "ACRP". */
+	public static final int MAGIC = 0x41435250;
+
+	/** The version of the file format. */
+	public static final int VERSION = 1;
+
+	/** The command byte that marks the end of the recording. */
+	public static final int END = 0xff;
+
+	/** The simulation that executes the commands. */
+	private final Simulation simulation;
+
+	/** The file. */
+	private final DataOutputStream out;
+
+	/** The tick of the last record. */
+	private long lastTick = 0;
+
+	/** Determines if writing failed. The commands are still executed then. */
+	private boolean failed = false;
+
+	/**
+	 * Constructor. Writes the header of the file. The simulation should have
+	 * been reset right before, so that the replay starts from the same state.
+	 * @param pFile The file to write
+	 * @param pSimulation The simulation that executes the commands
+	 * @param pTickRate The number of ticks per second
+	 * @throws IOException Thrown when the file can't be written
+	 */
+	public ReplayRecorder(final File pFile, final Simulation pSimulation,
+			final int pTickRate) throws IOException {
+		this.simulation = pSimulation;
+		this.out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(pFile)));
+		this.out.writeInt(MAGIC);
+		this.out.writeByte(VERSION);
+		this.out.writeUTF(pSimulation.getLevelName());
+		this.out.writeInt(pTickRate);
+		this.lastTick = pSimulation.getLevel().getTick();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void handleCommand(final Command pCommand, final int pArg0, final int pArg1) {
+		if (!this.failed) {
+			try {
+				writeTick();
+				this.out.writeByte(pCommand.ordinal());
+				writeVarInt((pArg0 << 1) ^ (pArg0 >> 31));
+				writeVarInt((pArg1 << 1) ^ (pArg1 >> 31));
+			} catch (IOException e) {
+				Core.LOGGER.error("Error while writing replay, recording stopped", e);
+				this.failed = true;
+			}
+		}
+		this.simulation.handleCommand(pCommand, pArg0, pArg1);
+	}
+
+	/**
+	 * Writes the end of the recording and closes the file.
+	 * @throws IOException Thrown when the file can't be written
+	 */
+	public void close() throws IOException {
+		try {
+			if (!this.failed) {
+				writeTick();
+				this.out.writeByte(END);
+			}
+		} finally {
+			this.out.close();
+		}
+	}
+
+	/**
+	 * Writes the number of ticks since the last record.
+	 * @throws IOException Thrown when the file can't be written
+	 */
+	private void writeTick() throws IOException {
+		final long tick = this.simulation.getLevel().getTick();
+		writeVarInt((int)(tick - this.lastTick));
+		this.lastTick = tick;
+	}
+
+	/**
+	 * Writes an unsigned int with 7 bits per byte, so that small values only
+	 * take one byte.
+	 * @param pValue The value
+	 * @throws IOException Thrown when the file can't be written
+	 */
+	private void writeVarInt(final int pValue) throws IOException {
+		int value = pValue;
+		while ((value & ~0x7f) != 0) {
+			this.out.writeByte((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		this.out.writeByte(value);
+	}
+}
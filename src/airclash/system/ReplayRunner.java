@@ -0,0 +1,91 @@
+package airclash.system;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.ConsoleAppender;
+import org.apache.log4j.PatternLayout;
+
+import airclash.system.exceptions.InvalidResourceException;
+import airclash.system.gfx.TextureLoader;
+
+/**
+ * Plays a replay file back against a freshly loaded level, without a display
+ * and as fast as possible. The commands are executed at exactly the ticks they
+ * were recorded at, so the run ends in the same state as the recorded
+ * session. The hash of that state and the achieved ticks per second are
+ * printed, which makes replays usable as regression tests and benchmarks.
+ *
+ * Usage: <code>ReplayRunner file</code>
+ *
+ * @author Andreas Textor
+ */
+public class ReplayRunner {
+	/** Number of nanoseconds in a second. */
+	private static final double NANOS_PER_SECOND = 1000000000.0;
+
+	/**
+	 * Plays a replay file.
+	 * @param pArgs The commandline arguments: the replay file
+	 */
+	public static void main(final String[] pArgs) {
+		BasicConfigurator.configure(new ConsoleAppender(
+				new PatternLayout("%d{HH:mm:ss} %-5p: %m%n")));
+		if (pArgs.length != 1) {
+			System.err.println("Usage: ReplayRunner file");
+			System.exit(1);
+		}
+
+		TextureLoader.getInstance().setHeadless(true);
+		try {
+			final ReplayReader reader = new ReplayReader(new File(pArgs[0]));
+			try {
+				final Simulation simulation = new Simulation(reader.getLevelName(),
+						"Replay", null, reader.getTickRate(),
+						Core.PROPERTIES.getInt(Properties.Prop.PHYSICSTHREADS));
+				simulation.reset();
+				final long start = System.nanoTime();
+				final long ticks = run(reader, simulation);
+				final long nanos = Math.max(1, System.nanoTime() - start);
+				System.out.println("Ticks: " + ticks);
+				System.out.println("Ticks/s: " + Math.round(ticks * NANOS_PER_SECOND / nanos));
+				System.out.println("Hash: " + String.format("%016x",
+						simulation.getLevel().computeHash()));
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			Core.LOGGER.error("Error while reading replay", e);
+			System.exit(1);
+		} catch (InvalidResourceException e) {
+			Core.LOGGER.error("Error while loading level", e);
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Executes all commands of a replay at their ticks and runs the
+	 * simulation up to the end of the recording.
+	 * @param pReader The replay, positioned after the header
+	 * @param pSimulation The simulation, which must have been reset
+	 * @return The number of ticks that were run
+	 * @throws IOException Thrown when the replay can't be read
+	 */
+	public static long run(final ReplayReader pReader, final Simulation pSimulation)
+			throws IOException {
+		final long first = pSimulation.getLevel().getTick();
+		boolean more = true;
+		while (more) {
+			more = pReader.next();
+			while (pSimulation.getLevel().getTick() - first < pReader.getTick()) {
+				pSimulation.tick();
+			}
+			if (more) {
+				pSimulation.handleCommand(pReader.getCommand(), pReader.getArg0(),
+						pReader.getArg1());
+			}
+		}
+		return pSimulation.getLevel().getTick() - first;
+	}
+}
@@ -0,0 +1,372 @@
+package airclash.system;
+
+import net.phys2d.math.Vector2f;
+import net.phys2d.raw.Body;
+import airclash.system.exceptions.InvalidResourceException;
+import airclash.system.gfx.Gui;
+import airclash.units.IUnit;
+import airclash.units.buildings.Fragment;
+import airclash.units.buildings.HQ;
+import airclash.units.buildings.HQModule;
+import airclash.units.buildings.Module;
+import airclash.units.vehicles.Scout;
+import airclash.world.Level;
+import airclash.world.LevelDescription;
+import airclash.world.PhysicsSnapshot;
+
+/**
+ * The game simulation: a level, the player with its units and the gameplay
+ * state that is advanced tick by tick. This does not depend on a display, so
+ * it can be run by the Core as well as without any graphics. The player
+ * controls the simulation only through commands.
+ *
+ * @author Andreas Textor
+ */
+public class Simulation implements ICommandHandler {
+	/** Movement flag: move left. */
+	public static final int MOVE_LEFT = 1;
+
+	/** Movement flag: move right. */
+	public static final int MOVE_RIGHT = 2;
+
+	/** Movement flag: move up. */
+	public static final int MOVE_UP = 4;
+
+	/** The time between two jumps of a vehicle in seconds. */
+	private static final float JUMP_DELAY = 1.2f;
+
+	/** The force that is applied to a unit when it jumps. */
+	private static final Vector2f JUMP_FORCE = new Vector2f(0, 50000);
+
+	/** The level where the action takes place. */
+	private Level level;
+
+	/** The name of the level. */
+	private String levelName;
+
+	/** The player. */
+	private Player player;
+
+	/** The gui object, or null if the simulation runs without display. */
+	private Gui gui;
+
+	/**
+	 * The state of the level right after the first reset. Later resets
+	 * restore it instead of building the level again, or null if there was
+	 * no reset yet.
+	 */
+	private PhysicsSnapshot initialState = null;
+
+	/** The movement flags of the last move command. */
+	private int movement = 0;
+
+	/**
+	 * This is used to restrict the number of jumps of a vehicle per time.
+	 * The timeout is counted in ticks.
+	 */
+	private int jumpTimeout = 0;
+
+	/** The number of ticks to wait between two jumps. */
+	private int jumpDelay;
+
+	/**
+	 * Constructor. Loads the level and creates the player and its units.
+	 * @param pLevel The name of the level to load
+	 * @param pPlayerName The name of the player
+	 * @param pGui The gui object, or null if the simulation runs without display
+	 * @param pTickRate The number of ticks per second
+	 * @param pPhysicsThreads The number of threads that step the physics
+	 * islands, 0 to step the whole world at once
+	 * @throws InvalidResourceException Thrown when the level or a texture
+	 * can't be loaded
+	 */
+	public Simulation(final String pLevel, final String pPlayerName, final Gui pGui,
+			final int pTickRate, final int pPhysicsThreads) throws InvalidResourceException {
+		this(pLevel, null, pPlayerName, pGui, pTickRate, pPhysicsThreads);
+	}
+	
+	/**
+	 * Constructor. Creates the level from a description that was loaded
+	 * before, so that many simulations can share the parsed level. The
+	 * description is only read.
+	 * @param pLevel The name of the level
+	 * @param pDescription The description of the level, or null to load it
+	 * @param pPlayerName The name of the player
+	 * @param pGui The gui object, or null if the simulation runs without display
+	 * @param pTickRate The number of ticks per second
+	 * @param pPhysicsThreads The number of threads that step the physics
+	 * islands, 0 to step the whole world at once
+	 * @throws InvalidResourceException Thrown when the level or a texture
+	 * can't be loaded
+	 */
+	public Simulation(final String pLevel, final LevelDescription pDescription,
+			final String pPlayerName, final Gui pGui, final int pTickRate,
+			final int pPhysicsThreads) throws InvalidResourceException {
+		this.level = new Level(pPhysicsThreads);
+		if (pDescription != null) {
+			this.level.load(pDescription);
+		} else {
+			this.level.load(pLevel);
+		}
+		this.levelName = pLevel;
+
+		this.gui = pGui;
+		this.player = new Player(pPlayerName);
+		createUnits();
+
+		setTickRate(pTickRate);
+	}
+
+	/**
+	 * Gives the player a new set of units, which replace the ones it had.
+	 * @throws InvalidResourceException Thrown when a texture can't be loaded
+	 */
+	private void createUnits() throws InvalidResourceException {
+		final IUnit scout = new Scout();
+//		final IUnit drone = new Drone();
+		final IUnit hq = new HQ(this.gui);
+		for (IUnit u : this.player.getUnits()) {
+			u.delete();
+		}
+		this.player.clearUnits();
+		this.player.addUnit(scout);
+//		this.player.addUnit(drone);
+		this.player.addUnit(hq);
+	}
+
+	/**
+	 * Sets the number of ticks per second. This is used to convert gameplay
+	 * timers to ticks.
+	 * @param pTickRate The number of ticks per second
+	 */
+	public void setTickRate(final int pTickRate) {
+		this.jumpDelay = Math.max(1, Math.round(JUMP_DELAY * pTickRate));
+	}
+
+	/**
+	 * Resets the units and the level, so that the simulation continues the
+	 * same way after every reset as after the first one. If the units are
+	 * still the same as at the last reset, the state after that reset is
+	 * just restored.
+	 */
+	public void reset() {
+		this.jumpTimeout = 0;
+		this.movement = 0;
+		if (this.initialState == null || !this.level.restore(this.initialState)) {
+			rebuild();
+			this.initialState = this.level.snapshot();
+		}
+		this.level.getUnits().select(this.player.getUnits().get(0));
+		this.level.resetState(getFocus());
+	}
+
+	/**
+	 * Initializes the level and places the units again. A rebuild after the
+	 * first one means that the units changed, e.g. modules were built. Those
+	 * changes are not part of a recording, which starts from the reset state,
+	 * and a unit that moved keeps state that can't be reset, e.g. in its
+	 * joints. So the player gets new units, just like in a new simulation.
+	 */
+	private void rebuild() {
+		if (this.initialState != null) {
+			// Created before the level, so that the bodies are created in the
+			// same order as in a new simulation
+			try {
+				createUnits();
+			} catch (InvalidResourceException e) {
+				Core.LOGGER.error("Creating new units failed, keeping the old ones");
+			}
+		}
+		this.level.init();
+		final IUnit u1 = this.player.getUnits().get(0);
+//		final IUnit u2 = this.player.getUnits().get(1);
+		u1.setPosition(new Vector2f(330, 200));
+//		u2.setPosition(new Vector2f(330, 300));
+		this.level.addUnit(u1);
+//		this.level.addUnit(u2);
+
+		final IUnit hq = this.player.getUnits().get(1);
+		hq.setPosition(new Vector2f(150, 200));
+		this.level.addUnit(hq);
+	}
+
+	/**
+	 * Lets the selected unit jump, if the jump timeout has run out.
+	 * @return true if the unit jumped
+	 */
+	public boolean jump() {
+		final IUnit unit = getSelectedUnit();
+		if (this.jumpTimeout > 0 || unit == null) {
+			return false;
+		}
+		unit.addForce(JUMP_FORCE);
+		this.jumpTimeout = this.jumpDelay;
+		return true;
+	}
+
+	/**
+	 * Places a new hq module next to the selected hq. Nothing happens if the
+	 * selected unit is not a hq or the position is not free.
+	 * @param pX The world x coordinate
+	 * @param pY The world y coordinate
+	 */
+	public void placeModule(final int pX, final int pY) {
+		final IUnit unit = getSelectedUnit();
+		if (!(unit instanceof HQ)) {
+			return;
+		}
+		try {
+			final HQ hq = (HQ)unit;
+			final Module mod = new HQModule();
+			final int x = pX / Module.GRIDSIZE
+				- (int)hq.getOrigin().getX() / Module.GRIDSIZE;
+			final int y = pY / Module.GRIDSIZE
+				- (int)hq.getOrigin().getY() / Module.GRIDSIZE;
+			final Body old = hq.getBody();
+			if (hq.addModule(mod, x, y)) {
+				this.level.replaceBody(old, hq.getBody());
+				// The body moved to the new center of mass
+				this.level.resetState(getFocus());
+			} else {
+				mod.delete();
+			}
+		} catch (InvalidResourceException e) {
+			Core.LOGGER.error("Placing module failed");
+		}
+	}
+
+	/**
+	 * Removes a module from the selected hq. The modules that were only
+	 * connected to the hq through it fall off as fragments. Nothing happens
+	 * if the selected unit is not a hq or there is no module at the position.
+	 * @param pX The world x coordinate
+	 * @param pY The world y coordinate
+	 */
+	public void removeModule(final int pX, final int pY) {
+		final IUnit unit = getSelectedUnit();
+		if (!(unit instanceof HQ)) {
+			return;
+		}
+		final HQ hq = (HQ)unit;
+		final int x = pX / Module.GRIDSIZE - (int)hq.getOrigin().getX() / Module.GRIDSIZE;
+		final int y = pY / Module.GRIDSIZE - (int)hq.getOrigin().getY() / Module.GRIDSIZE;
+		final IUnit module = hq.removeModule(x, y);
+		if (module == null) {
+			return;
+		}
+		module.delete();
+		final Body old = hq.getBody();
+		for (Fragment f : hq.detachFragments()) {
+			this.level.addUnit(f);
+		}
+		this.level.replaceBody(old, hq.getBody());
+		this.level.resetState(getFocus());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void handleCommand(final Command pCommand, final int pArg0, final int pArg1) {
+		switch (pCommand) {
+		case MOVE:
+			this.movement = pArg0;
+			break;
+		case JUMP:
+			jump();
+			break;
+		case SELECT_NEXT:
+			this.level.getUnits().select(this.player.getNextUnit(getSelectedUnit()));
+			break;
+		case PLACE_MODULE:
+			placeModule(pArg0, pArg1);
+			break;
+		case REMOVE_MODULE:
+			removeModule(pArg0, pArg1);
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Advances the simulation by one tick and publishes the new state of the
+	 * world.
+	 */
+	public void tick() {
+		if (this.jumpTimeout > 0) {
+			this.jumpTimeout--;
+		}
+		moveSelectedUnit();
+		this.level.step();
+		this.level.publishState(getFocus());
+	}
+
+	/**
+	 * Applies the forces of the held movement keys to the selected unit.
+	 * This runs every tick, so it must not allocate.
+	 */
+	private void moveSelectedUnit() {
+		final IUnit unit = getSelectedUnit();
+		if (this.movement != 0 && unit != null) {
+			if ((this.movement & MOVE_LEFT) != 0) {
+				unit.move(IUnit.LEFT);
+			}
+			if ((this.movement & MOVE_RIGHT) != 0) {
+				unit.move(IUnit.RIGHT);
+			}
+			if ((this.movement & MOVE_UP) != 0) {
+				unit.move(IUnit.UP);
+			}
+		}
+	}
+
+	/**
+	 * Returns the body the view follows, which is the main body of the
+	 * selected unit.
+	 * @return The body, or null if no unit is selected
+	 */
+	private Body getFocus() {
+		final IUnit unit = getSelectedUnit();
+		return unit == null ? null : unit.getBodyParts().get(0);
+	}
+
+	/**
+	 * Returns the selected unit.
+	 * @return The unit, or null if no unit is selected
+	 */
+	public IUnit getSelectedUnit() {
+		return this.level.getUnits().getSelected();
+	}
+
+	/**
+	 * Returns the level.
+	 * @return The level
+	 */
+	public Level getLevel() {
+		return this.level;
+	}
+
+	/**
+	 * Returns the name of the level.
+	 * @return The level name
+	 */
+	public String getLevelName() {
+		return this.levelName;
+	}
+
+	/**
+	 * Returns the movement flags of the last move command.
+	 * @return A combination of the MOVE_ flags
+	 */
+	public int getMovement() {
+		return this.movement;
+	}
+
+	/**
+	 * Returns the player.
+	 * @return The player
+	 */
+	public Player getPlayer() {
+		return this.player;
+	}
+}
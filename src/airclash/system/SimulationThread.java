@@ -0,0 +1,242 @@
+package airclash.system;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Runs the simulation on its own thread, so that the cost of a physics step
+ * does not delay the drawing of frames. Ticks are scheduled by a
+ * FixedStepTimer. After every tick, the level publishes a new state that the
+ * render thread reads without locking. Player input is passed to this thread
+ * as commands in a CommandBuffer, everything else that changes the simulation
+ * with invokeLater().
+ *
+ * @author Andreas Textor
+ */
+public class SimulationThread extends Thread {
+	/** The maximum number of ticks that are run to catch up at once. */
+	private static final int MAX_CATCHUP_TICKS = 10;
+
+	/** The number of commands that can wait for the next tick. */
+	private static final int COMMAND_CAPACITY = 256;
+
+	/** Number of nanoseconds in a millisecond. */
+	private static final long NANOS_PER_MILLI = 1000000L;
+
+	/** The simulation. */
+	private final Simulation simulation;
+
+	/** The scheduler for the ticks. This is only used by this thread. */
+	private final FixedStepTimer timer;
+
+	/** The tasks that are run on this thread before the next tick. */
+	private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+
+	/** The commands of the player, added by the render thread. */
+	private final CommandBuffer commands = new CommandBuffer(COMMAND_CAPACITY);
+
+	/** The recorder of the commands, or null if nothing is recorded. */
+	private ReplayRecorder recorder = null;
+
+	/** The profiler that measures the ticks. */
+	private final Profiler profiler;
+
+	/** The length of a tick in nanoseconds, for other threads. */
+	private volatile long tickLength;
+
+	/** Determines if the thread should keep running. */
+	private volatile boolean running = true;
+
+	/**
+	 * Constructor.
+	 * @param pSimulation The simulation to run
+	 * @param pTickRate The number of ticks per second
+	 * @param pProfiler The profiler that measures the ticks
+	 */
+	public SimulationThread(final Simulation pSimulation, final int pTickRate,
+			final Profiler pProfiler) {
+		super("Simulation");
+		setDaemon(true);
+		this.simulation = pSimulation;
+		this.profiler = pProfiler;
+		this.timer = new FixedStepTimer(pTickRate, MAX_CATCHUP_TICKS);
+		this.tickLength = this.timer.getTickLength();
+	}
+
+	/**
+	 * Runs a task on the simulation thread before the next tick.
+	 * @param pTask The task
+	 */
+	public void invokeLater(final Runnable pTask) {
+		this.tasks.add(pTask);
+	}
+
+	/**
+	 * Returns the buffer for the commands of the player. Only one thread may
+	 * add commands to it.
+	 * @return The command buffer
+	 */
+	public CommandBuffer getCommands() {
+		return this.commands;
+	}
+
+	/**
+	 * Changes the number of ticks per second.
+	 * @param pTickRate The number of ticks per second
+	 */
+	public void setTickRate(final int pTickRate) {
+		invokeLater(new Runnable() {
+			@SuppressWarnings("synthetic-access")
+			public void run() {
+				// A replay has only one tick rate
+				closeRecorder();
+				SimulationThread.this.timer.setTickRate(pTickRate);
+				SimulationThread.this.simulation.setTickRate(pTickRate);
+				SimulationThread.this.tickLength =
+					SimulationThread.this.timer.getTickLength();
+			}
+		});
+	}
+
+	/**
+	 * Resets the simulation before the next tick. A running recording is
+	 * stopped.
+	 */
+	public void reset() {
+		invokeLater(new Runnable() {
+			@SuppressWarnings("synthetic-access")
+			public void run() {
+				closeRecorder();
+				SimulationThread.this.simulation.reset();
+			}
+		});
+	}
+
+	/**
+	 * Resets the simulation and starts to record the commands of the player
+	 * into a replay file. A running recording is stopped first.
+	 * @param pFile The replay file
+	 */
+	public void startRecording(final File pFile) {
+		invokeLater(new Runnable() {
+			@SuppressWarnings("synthetic-access")
+			public void run() {
+				closeRecorder();
+				final Simulation sim = SimulationThread.this.simulation;
+				sim.reset();
+				try {
+					final ReplayRecorder rec = new ReplayRecorder(pFile, sim,
+							SimulationThread.this.timer.getTickRate());
+					// Keys that are held down already were sent before
+					rec.handleCommand(Command.MOVE, sim.getMovement(), 0);
+					SimulationThread.this.recorder = rec;
+					Core.LOGGER.info("Recording to " + pFile);
+				} catch (IOException e) {
+					Core.LOGGER.error("Can't record to " + pFile, e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Stops the recording of the commands.
+	 */
+	public void stopRecording() {
+		invokeLater(new Runnable() {
+			@SuppressWarnings("synthetic-access")
+			public void run() {
+				closeRecorder();
+			}
+		});
+	}
+
+	/**
+	 * Closes the recorder, if there is one. This must be called on this
+	 * thread.
+	 */
+	private void closeRecorder() {
+		if (this.recorder == null) {
+			return;
+		}
+		try {
+			this.recorder.close();
+			Core.LOGGER.info("Recording stopped at tick "
+					+ this.simulation.getLevel().getTick());
+		} catch (IOException e) {
+			Core.LOGGER.error("Error while closing replay", e);
+		}
+		this.recorder = null;
+	}
+
+	/**
+	 * Returns the length of a tick.
+	 * @return The tick length in nanoseconds
+	 */
+	public long getTickLength() {
+		return this.tickLength;
+	}
+
+	/**
+	 * Stops the thread and waits until it has finished.
+	 */
+	public void shutdown() {
+		this.running = false;
+		interrupt();
+		try {
+			join();
+		} catch (InterruptedException e) {
+			Core.LOGGER.warn("Interrupted while stopping the simulation");
+		}
+	}
+
+	/**
+	 * The main loop of the thread: runs the due ticks and sleeps until the
+	 * next one.
+	 */
+	@Override
+	public void run() {
+		this.timer.reset();
+		while (this.running) {
+			final int ticks = this.timer.advance();
+			for (int i = 0; i < ticks && this.running; i++) {
+				final long start = System.nanoTime();
+				try {
+					tick();
+				} catch (RuntimeException e) {
+					Core.LOGGER.error("Error in simulation tick", e);
+				}
+				this.profiler.record(Profiler.Phase.SIMULATION, start, System.nanoTime());
+			}
+
+			final long wait = this.timer.getTimeToNextTick();
+			if (wait > 0) {
+				try {
+					Thread.sleep(wait / NANOS_PER_MILLI, (int)(wait % NANOS_PER_MILLI));
+				} catch (InterruptedException e) {
+					// shutdown() was called, the loop condition handles that
+				}
+			}
+		}
+		closeRecorder();
+	}
+
+	/**
+	 * Runs the pending tasks and commands and advances the simulation by one
+	 * tick.
+	 */
+	private void tick() {
+		Runnable task = this.tasks.poll();
+		while (task != null) {
+			task.run();
+			task = this.tasks.poll();
+		}
+		if (this.recorder != null) {
+			this.commands.drain(this.recorder);
+		} else {
+			this.commands.drain(this.simulation);
+		}
+		this.simulation.tick();
+	}
+}
@@ -47,6 +47,9 @@ public class Console extends org.fenggui.console.Console {
 		add(new PropertySetCommand());
 		add(new HelpCommand());
 		add(new LevelInfoCommand(pCore));
+		add(new PerfCommand(pCore));
+		add(new PhysicsCommand(pCore));
+		add(new RecordCommand(pCore));
 		
 		this.background = TextureLoader.getInstance().getTexture("console");
 	}
@@ -0,0 +1,84 @@
+package airclash.system.console;
+
+import java.io.PrintStream;
+
+import org.fenggui.console.Console;
+
+import airclash.system.Core;
+import airclash.system.Profiler;
+
+/**
+ * Perf console command. Prints the durations of the phases of a frame.
+ * @author Andreas Textor
+ */
+public class PerfCommand extends AbstractCommand {
+	/** The number of seconds that are evaluated if none are given. */
+	private static final int DEFAULT_SECONDS = 10;
+	
+	/** The core reference. */
+	private Core core;
+	
+	/**
+	 * Constructor.
+	 * @param pCore The core reference
+	 */
+	public PerfCommand(final Core pCore) {
+		this.core = pCore;
+	}
+	
+	/**
+	 * Validates the parameters. The perf command can be used without parameters
+	 * or with the number of seconds to evaluate.
+	 * @param pParams The array of parameters. pParams[0] is the command name.
+	 * @return true, if the commands are valid, false if otherwise.
+	 */
+	@Override
+	public boolean validateParams(final String[] pParams) {
+		if (validateNoParams(pParams)) {
+			return true;
+		}
+		if (pParams.length != 2 || !pParams[0].equals(getCommand())) {
+			return false;
+		}
+		try {
+			final int seconds = Integer.parseInt(pParams[1].trim());
+			return seconds >= 1 && seconds <= Profiler.MAX_SECONDS;
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Executes this command.
+	 * @param pOut The output print stream.
+	 * @param pSource The console that issued this command
+	 * @param pArgs The array of parameters. pArgs[0] is the command name.
+	 */
+	public void execute(final PrintStream pOut, final Console pSource,
+			final String[] pArgs) {
+		final int seconds = pArgs.length == 2
+			? Integer.parseInt(pArgs[1].trim()) : DEFAULT_SECONDS;
+		this.core.getProfiler().report(pOut, seconds);
+	}
+
+	/**
+	 * Returns the name of this command.
+	 * @return "perf"
+	 */
+	public String getCommand() {
+		return "perf";
+	}
+	
+	/**
+	 * Outputs help for this command.
+	 * @param pOut The print stream
+	 */
+	@Override
+	public void getHelp(final PrintStream pOut) {
+		pOut.println("Syntax: perf [seconds]");
+		pOut.println("Outputs p50/p95/p99/max of the input, simulation, world, gui and");
+		pOut.println("display phases and the use of the frame budget over the last");
+		pOut.println("seconds (1 - " + Profiler.MAX_SECONDS + ", default " + DEFAULT_SECONDS + ")");
+	}
+
+}
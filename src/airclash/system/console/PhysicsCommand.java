@@ -0,0 +1,93 @@
+package airclash.system.console;
+
+import java.io.PrintStream;
+
+import org.fenggui.console.Console;
+
+import airclash.system.Core;
+import airclash.world.PhysicsStats;
+
+/**
+ * Physics console command. Prints the physics counters of the last tick or
+ * of the slowest tick, per world step and for the whole tick.
+ * @author Andreas Textor
+ */
+public class PhysicsCommand extends AbstractCommand {
+	/** The parameter that selects the slowest tick. */
+	private static final String PEAK = "peak";
+	
+	/** The parameter that forgets the slowest tick. */
+	private static final String RESET = "reset";
+	
+	/** The core reference. */
+	private Core core;
+	
+	/**
+	 * Constructor.
+	 * @param pCore The core reference
+	 */
+	public PhysicsCommand(final Core pCore) {
+		this.core = pCore;
+	}
+	
+	/**
+	 * Validates the parameters. The physics command can be used without
+	 * parameters, with "peak" or with "reset".
+	 * @param pParams The array of parameters. pParams[0] is the command name.
+	 * @return true, if the commands are valid, false if otherwise.
+	 */
+	@Override
+	public boolean validateParams(final String[] pParams) {
+		if (validateNoParams(pParams)) {
+			return true;
+		}
+		return pParams.length == 2 && pParams[0].equals(getCommand())
+			&& (pParams[1].trim().equals(PEAK) || pParams[1].trim().equals(RESET));
+	}
+
+	/**
+	 * Executes this command.
+	 * @param pOut The output print stream.
+	 * @param pSource The console that issued this command
+	 * @param pArgs The array of parameters. pArgs[0] is the command name.
+	 */
+	public void execute(final PrintStream pOut, final Console pSource,
+			final String[] pArgs) {
+		final String mode = pArgs.length == 2 ? pArgs[1].trim() : "";
+		if (mode.equals(RESET)) {
+			this.core.getLevel().resetPeakStats();
+			pOut.println("Peak physics tick reset");
+			return;
+		}
+		final PhysicsStats stats = mode.equals(PEAK)
+			? this.core.getLevel().getPeakStats() : this.core.getLevel().getStats();
+		if (stats == null) {
+			pOut.println("No physics tick yet");
+			return;
+		}
+		stats.print(pOut);
+	}
+
+	/**
+	 * Returns the name of this command.
+	 * @return "physics"
+	 */
+	public String getCommand() {
+		return "physics";
+	}
+	
+	/**
+	 * Outputs help for this command.
+	 * @param pOut The print stream
+	 */
+	@Override
+	public void getHelp(final PrintStream pOut) {
+		pOut.println("Syntax: physics [peak|reset]");
+		pOut.println("Outputs the broadphase pairs, contact tests, arbiters, contacts,");
+		pOut.println("awake and resting bodies, the collision and solver times and the");
+		pOut.println("bytes allocated by phys2d of each world step of the last tick.");
+		pOut.println("With peak, the slowest tick since the last reset is shown; reset");
+		pOut.println("forgets it.");
+	}
+
+}
@@ -0,0 +1,73 @@
+package airclash.system.console;
+
+import java.io.File;
+import java.io.PrintStream;
+
+import org.fenggui.console.Console;
+
+import airclash.system.Core;
+
+/**
+ * Record console command. Starts and stops the recording of a replay.
+ * @author Andreas Textor
+ */
+public class RecordCommand extends AbstractCommand {
+	/** The core reference. */
+	private Core core;
+	
+	/**
+	 * Constructor.
+	 * @param pCore The core reference
+	 */
+	public RecordCommand(final Core pCore) {
+		this.core = pCore;
+	}
+	
+	/**
+	 * Validates the parameters. The record command needs a file name or "stop".
+	 * @param pParams The array of parameters. pParams[0] is the command name.
+	 * @return true, if the commands are valid, false if otherwise.
+	 */
+	@Override
+	public boolean validateParams(final String[] pParams) {
+		return pParams.length == 2
+			&& pParams[0].equals(getCommand())
+			&& pParams[1].trim().length() > 0;
+	}
+
+	/**
+	 * Executes this command.
+	 * @param pOut The output print stream.
+	 * @param pSource The console that issued this command
+	 * @param pArgs The array of parameters. pArgs[0] is the command name.
+	 */
+	public void execute(final PrintStream pOut, final Console pSource,
+			final String[] pArgs) {
+		final String arg = pArgs[1].trim();
+		if ("stop".equals(arg)) {
+			this.core.getSimulationThread().stopRecording();
+		} else {
+			this.core.getSimulationThread().startRecording(new File(arg));
+		}
+	}
+
+	/**
+	 * Returns the name of this command.
+	 * @return "record"
+	 */
+	public String getCommand() {
+		return "record";
+	}
+	
+	/**
+	 * Outputs help for this command.
+	 * @param pOut The print stream
+	 */
+	@Override
+	public void getHelp(final PrintStream pOut) {
+		pOut.println("Syntax: record <file> | record stop");
+		pOut.println("Resets the level and records all commands into a replay file,");
+		pOut.println("until record stop or the next reset. Play it back with ReplayRunner");
+	}
+
+}
@@ -0,0 +1,152 @@
+package airclash.system.gfx;
+
+import java.nio.FloatBuffer;
+
+import org.lwjgl.opengl.GL11;
+
+/**
+ * Draws with the immediate mode of OpenGL. Every call is passed on as it
+ * is, so this needs a current OpenGL context.
+ *
+ * @author Andreas Textor
+ */
+public class GLBackend implements RenderBackend {
+	/** The OpenGL mode of each primitive, indexed by its ordinal. */
+	private static final int[] MODES = {GL11.GL_QUADS, GL11.GL_QUAD_STRIP,
+		GL11.GL_POLYGON, GL11.GL_LINE_LOOP};
+
+	/** The distance between two vertices in a vertex buffer in bytes. */
+	private static final int STRIDE = 4 * 4;
+
+	/**
+	 * Constructor. Sets up the blending.
+	 */
+	public GLBackend() {
+		GL11.glEnable(GL11.GL_BLEND);
+		GL11.glColorMask(true, true, true, true);
+		GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void clear() {
+		GL11.glClear(GL11.GL_COLOR_BUFFER_BIT);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void loadIdentity() {
+		GL11.glLoadIdentity();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void translate(final float pX, final float pY) {
+		GL11.glTranslatef(pX, pY, 0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void pushMatrix() {
+		GL11.glPushMatrix();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void popMatrix() {
+		GL11.glPopMatrix();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void setBlending(final boolean pEnabled) {
+		if (pEnabled) {
+			GL11.glEnable(GL11.GL_BLEND);
+		} else {
+			GL11.glDisable(GL11.GL_BLEND);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void setTexturing(final boolean pEnabled) {
+		if (pEnabled) {
+			GL11.glEnable(GL11.GL_TEXTURE_2D);
+		} else {
+			GL11.glDisable(GL11.GL_TEXTURE_2D);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void bindTexture(final Texture pTexture) {
+		pTexture.bind();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void setColor(final float pR, final float pG, final float pB, final float pA) {
+		GL11.glColor4f(pR, pG, pB, pA);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void setLineWidth(final float pWidth) {
+		GL11.glLineWidth(pWidth);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void begin(final Primitive pPrimitive) {
+		GL11.glBegin(MODES[pPrimitive.ordinal()]);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void texCoord(final float pU, final float pV) {
+		GL11.glTexCoord2f(pU, pV);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void vertex(final float pX, final float pY) {
+		GL11.glVertex2f(pX, pY);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void end() {
+		GL11.glEnd();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void drawQuads(final Texture pTexture, final FloatBuffer pVertices,
+			final int pFirst, final int pCount) {
+		pTexture.bind();
+		GL11.glEnableClientState(GL11.GL_VERTEX_ARRAY);
+		GL11.glEnableClientState(GL11.GL_TEXTURE_COORD_ARRAY);
+		pVertices.position(0);
+		GL11.glVertexPointer(2, STRIDE, pVertices);
+		pVertices.position(2);
+		GL11.glTexCoordPointer(2, STRIDE, pVertices);
+		GL11.glDrawArrays(GL11.GL_QUADS, pFirst * 4, pCount * 4);
+		GL11.glDisableClientState(GL11.GL_TEXTURE_COORD_ARRAY);
+		GL11.glDisableClientState(GL11.GL_VERTEX_ARRAY);
+	}
+}
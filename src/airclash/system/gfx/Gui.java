@@ -3,10 +3,12 @@ package airclash.system.gfx;
 import org.fenggui.Button;
 import org.fenggui.Display;
 import org.fenggui.FengGUI;
+import org.fenggui.Label;
 import org.fenggui.composites.Window;
 import org.fenggui.event.ButtonPressedEvent;
 import org.fenggui.event.IButtonPressedListener;
 import org.fenggui.event.mouse.MouseButton;
+import org.fenggui.layout.RowLayout;
 import org.fenggui.render.lwjgl.LWJGLBinding;
 import org.fenggui.theme.ITheme;
 import org.fenggui.theme.XMLTheme;
@@ -16,6 +18,7 @@ import org.lwjgl.opengl.glu.GLU;
 import airclash.system.Core;
 import airclash.system.console.Console;
 import airclash.system.exceptions.InvalidResourceException;
+import airclash.units.buildings.BuildingStats;
 
 /**
  * This class is responsible for building and maintaining the GUI, e.g.
@@ -39,6 +42,24 @@ public class Gui {
 	/** The game console. */
 	private Console console = null;
 	
+	/**
+	 * The requested visibility of the main menu. Units change this from the
+	 * simulation thread, the frame itself is only changed when drawing.
+	 */
+	private volatile boolean mainMenuVisible = true;
+	
+	/** The label that shows the totals of the selected building. */
+	private Label statsLabel = null;
+	
+	/**
+	 * The totals of the selected building, set from the simulation thread.
+	 * The label is only updated when this changes.
+	 */
+	private volatile BuildingStats buildingStats = null;
+	
+	/** The totals the label shows. */
+	private BuildingStats shownStats = null;
+	
 	/**
 	 * Constructor.
 	 * @param pCore The core object.
@@ -82,16 +103,29 @@ public class Gui {
 				Gui.this.core.gridSelect();
 			}
 		});
+		this.frame.getContentContainer().setLayoutManager(new RowLayout(false));
 		this.frame.getContentContainer().addWidget(restart);
+		this.statsLabel = new Label("");
+		this.frame.getContentContainer().addWidget(this.statsLabel);
 //		this.frame.pack();
 	}
 	
 	/**
-	 * Sets the main menu visible or invisible.
+	 * Sets the main menu visible or invisible. This may be called from any
+	 * thread; the change takes effect when the gui is drawn next.
 	 * @param pVisible Visibility
 	 */
 	public void setMainMenuVisible(final boolean pVisible) {
-		this.frame.setVisible(pVisible);
+		this.mainMenuVisible = pVisible;
+	}
+	
+	/**
+	 * Shows the totals of a building in the main menu. This may be called
+	 * from any thread; the totals must not be changed afterwards.
+	 * @param pStats The totals
+	 */
+	public void setBuildingStats(final BuildingStats pStats) {
+		this.buildingStats = pStats;
 	}
 	
 	/**
@@ -132,11 +166,21 @@ public class Gui {
 	 * @param pRenderer The renderer to draw on
 	 */
 	public void draw(final Renderer pRenderer) {
+		if (this.frame.isVisible() != this.mainMenuVisible) {
+			this.frame.setVisible(this.mainMenuVisible);
+		}
+		final BuildingStats stats = this.buildingStats;
+		if (stats != this.shownStats) {
+			this.shownStats = stats;
+			this.statsLabel.setText(stats.format());
+			this.frame.layout();
+		}
 		if (this.console.isVisible()) {
 			pRenderer.drawImage(this.console.getBackground(),
 					0, this.core.getWindowSize().height - this.consoleHeight,
 					this.core.getWindowSize().width, this.core.getWindowSize().height / 2);
 		}
+		pRenderer.flush();
 		GL11.glLoadIdentity();
 		GLU.gluLookAt(10, 8, 8, 0, 0, 0, 0, 0, 1);
 		this.display.display();
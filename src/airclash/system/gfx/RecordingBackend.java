@@ -0,0 +1,393 @@
+package airclash.system.gfx;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the drawing operations instead of drawing, so rendering can be
+ * measured and checked without a display. Every operation is stored as a
+ * command with up to four float arguments; textures are stored as an index
+ * into the list of bound textures.
+ *
+ * Besides the commands, the backend counts the draw calls (one per
+ * primitive or vertex buffer draw), the vertices, the texture binds and the state changes. Binds
+ * and state changes that set what was already set are counted separately
+ * as redundant. The counters and commands are cleared by reset(), e.g. at
+ * the start of every frame.
+ *
+ * @author Andreas Textor
+ */
+public class RecordingBackend implements RenderBackend {
+	/**
+	 * The recorded operations.
+	 * @author Andreas Textor
+	 */
+	public static enum Op {
+		/** clear(). */
+		CLEAR,
+		/** loadIdentity(). */
+		LOAD_IDENTITY,
+		/** translate(x, y). */
+		TRANSLATE,
+		/** pushMatrix(). */
+		PUSH_MATRIX,
+		/** popMatrix(). */
+		POP_MATRIX,
+		/** setBlending(enabled), the argument is 1 or 0. */
+		BLENDING,
+		/** setTexturing(enabled), the argument is 1 or 0. */
+		TEXTURING,
+		/** bindTexture(texture), the argument is the index of the texture. */
+		BIND_TEXTURE,
+		/** setColor(r, g, b, a). */
+		COLOR,
+		/** setLineWidth(width). */
+		LINE_WIDTH,
+		/** begin(primitive), the argument is the ordinal of the primitive. */
+		BEGIN,
+		/** texCoord(u, v). */
+		TEX_COORD,
+		/** vertex(x, y). */
+		VERTEX,
+		/** end(). */
+		END,
+		/**
+		 * drawQuads(texture, vertices, first, count), the arguments are the
+		 * index of the texture, first and count.
+		 */
+		DRAW_QUADS
+	}
+
+	/** The number of arguments stored per command. */
+	private static final int ARGS = 4;
+
+	/** The initial number of commands. */
+	private static final int INITIAL_CAPACITY = 256;
+
+	/** All operations, indexed by their ordinal. */
+	private static final Op[] OPS = Op.values();
+
+	/** The ordinal of the operation of each command. */
+	private int[] ops = new int[INITIAL_CAPACITY];
+
+	/** The arguments, ARGS per command. */
+	private float[] args = new float[INITIAL_CAPACITY * ARGS];
+
+	/** The number of commands. */
+	private int count = 0;
+
+	/** The textures that were bound, in the order of the binds. */
+	private final List<Texture> textures = new ArrayList<Texture>();
+
+	/** The number of primitives and vertex buffers that were drawn. */
+	private int drawCalls = 0;
+
+	/** The number of vertices. */
+	private int vertices = 0;
+
+	/** The number of texture binds. */
+	private int textureBinds = 0;
+
+	/** The number of texture binds of the texture that was already bound. */
+	private int redundantBinds = 0;
+
+	/** The number of calls that set blending, texturing, color or line width. */
+	private int stateChanges = 0;
+
+	/** The number of state changes that set the state that was already set. */
+	private int redundantStateChanges = 0;
+
+	/** The texture that is bound, null if unknown. */
+	private Texture boundTexture = null;
+
+	/** The blending state, null if unknown. */
+	private Boolean blending = null;
+
+	/** The texturing state, null if unknown. */
+	private Boolean texturing = null;
+
+	/** The current color, valid if colorSet is true. */
+	private final float[] color = new float[4];
+
+	/** true if a color was set since the last reset. */
+	private boolean colorSet = false;
+
+	/** The current line width, NaN if unknown. */
+	private float lineWidth = Float.NaN;
+
+	/**
+	 * Removes all commands and sets the counters to 0. The state of the
+	 * backend is forgotten, so the first state changes afterwards are never
+	 * counted as redundant.
+	 */
+	public void reset() {
+		this.count = 0;
+		this.textures.clear();
+		this.drawCalls = 0;
+		this.vertices = 0;
+		this.textureBinds = 0;
+		this.redundantBinds = 0;
+		this.stateChanges = 0;
+		this.redundantStateChanges = 0;
+		this.boundTexture = null;
+		this.blending = null;
+		this.texturing = null;
+		this.colorSet = false;
+		this.lineWidth = Float.NaN;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void clear() {
+		record(Op.CLEAR, 0, 0, 0, 0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void loadIdentity() {
+		record(Op.LOAD_IDENTITY, 0, 0, 0, 0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void translate(final float pX, final float pY) {
+		record(Op.TRANSLATE, pX, pY, 0, 0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void pushMatrix() {
+		record(Op.PUSH_MATRIX, 0, 0, 0, 0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void popMatrix() {
+		record(Op.POP_MATRIX, 0, 0, 0, 0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void setBlending(final boolean pEnabled) {
+		record(Op.BLENDING, pEnabled ? 1 : 0, 0, 0, 0);
+		countState(this.blending != null && this.blending.booleanValue() == pEnabled);
+		this.blending = Boolean.valueOf(pEnabled);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void setTexturing(final boolean pEnabled) {
+		record(Op.TEXTURING, pEnabled ? 1 : 0, 0, 0, 0);
+		countState(this.texturing != null && this.texturing.booleanValue() == pEnabled);
+		this.texturing = Boolean.valueOf(pEnabled);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void bindTexture(final Texture pTexture) {
+		record(Op.BIND_TEXTURE, this.textures.size(), 0, 0, 0);
+		this.textures.add(pTexture);
+		this.textureBinds++;
+		if (pTexture == this.boundTexture) {
+			this.redundantBinds++;
+		}
+		this.boundTexture = pTexture;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void setColor(final float pR, final float pG, final float pB, final float pA) {
+		record(Op.COLOR, pR, pG, pB, pA);
+		countState(this.colorSet && this.color[0] == pR && this.color[1] == pG
+				&& this.color[2] == pB && this.color[3] == pA);
+		this.color[0] = pR;
+		this.color[1] = pG;
+		this.color[2] = pB;
+		this.color[3] = pA;
+		this.colorSet = true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void setLineWidth(final float pWidth) {
+		record(Op.LINE_WIDTH, pWidth, 0, 0, 0);
+		countState(this.lineWidth == pWidth);
+		this.lineWidth = pWidth;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void begin(final Primitive pPrimitive) {
+		record(Op.BEGIN, pPrimitive.ordinal(), 0, 0, 0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void texCoord(final float pU, final float pV) {
+		record(Op.TEX_COORD, pU, pV, 0, 0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void vertex(final float pX, final float pY) {
+		record(Op.VERTEX, pX, pY, 0, 0);
+		this.vertices++;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void end() {
+		record(Op.END, 0, 0, 0, 0);
+		this.drawCalls++;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void drawQuads(final Texture pTexture, final FloatBuffer pVertices,
+			final int pFirst, final int pCount) {
+		bindTexture(pTexture);
+		record(Op.DRAW_QUADS, this.textures.size() - 1, pFirst, pCount, 0);
+		this.drawCalls++;
+		this.vertices += pCount * 4;
+	}
+
+	/**
+	 * Counts a state change.
+	 * @param pRedundant true if the state was already set
+	 */
+	private void countState(final boolean pRedundant) {
+		this.stateChanges++;
+		if (pRedundant) {
+			this.redundantStateChanges++;
+		}
+	}
+
+	/**
+	 * Appends a command.
+	 * @param pOp The operation
+	 * @param pA0 The first argument
+	 * @param pA1 The second argument
+	 * @param pA2 The third argument
+	 * @param pA3 The fourth argument
+	 */
+	private void record(final Op pOp, final float pA0, final float pA1, final float pA2,
+			final float pA3) {
+		if (this.count == this.ops.length) {
+			final int[] o = new int[this.count * 2];
+			final float[] a = new float[this.count * 2 * ARGS];
+			System.arraycopy(this.ops, 0, o, 0, this.count);
+			System.arraycopy(this.args, 0, a, 0, this.count * ARGS);
+			this.ops = o;
+			this.args = a;
+		}
+		final int i = this.count * ARGS;
+		this.ops[this.count] = pOp.ordinal();
+		this.args[i] = pA0;
+		this.args[i + 1] = pA1;
+		this.args[i + 2] = pA2;
+		this.args[i + 3] = pA3;
+		this.count++;
+	}
+
+	/**
+	 * Returns the number of recorded commands.
+	 * @return The command count
+	 */
+	public int getCommandCount() {
+		return this.count;
+	}
+
+	/**
+	 * Returns the operation of a command.
+	 * @param pIndex The index of the command (0 - getCommandCount() - 1)
+	 * @return The operation
+	 */
+	public Op getOp(final int pIndex) {
+		return OPS[this.ops[pIndex]];
+	}
+
+	/**
+	 * Returns an argument of a command.
+	 * @param pIndex The index of the command (0 - getCommandCount() - 1)
+	 * @param pArg The index of the argument (0 - 3)
+	 * @return The argument, 0 if the operation has fewer arguments
+	 */
+	public float getArg(final int pIndex, final int pArg) {
+		return this.args[pIndex * ARGS + pArg];
+	}
+
+	/**
+	 * Returns a texture that was bound.
+	 * @param pIndex The argument of the BIND_TEXTURE command
+	 * @return The texture
+	 */
+	public Texture getTexture(final int pIndex) {
+		return this.textures.get(pIndex);
+	}
+
+	/**
+	 * Returns the number of primitives and vertex buffers that were drawn.
+	 * @return The draw call count
+	 */
+	public int getDrawCalls() {
+		return this.drawCalls;
+	}
+
+	/**
+	 * Returns the number of vertices.
+	 * @return The vertex count
+	 */
+	public int getVertices() {
+		return this.vertices;
+	}
+
+	/**
+	 * Returns the number of texture binds.
+	 * @return The bind count
+	 */
+	public int getTextureBinds() {
+		return this.textureBinds;
+	}
+
+	/**
+	 * Returns the number of binds of the texture that was already bound.
+	 * @return The redundant bind count
+	 */
+	public int getRedundantBinds() {
+		return this.redundantBinds;
+	}
+
+	/**
+	 * Returns the number of calls that set blending, texturing, color or
+	 * line width.
+	 * @return The state change count
+	 */
+	public int getStateChanges() {
+		return this.stateChanges;
+	}
+
+	/**
+	 * Returns the number of state changes that set the state that was
+	 * already set.
+	 * @return The redundant state change count
+	 */
+	public int getRedundantStateChanges() {
+		return this.redundantStateChanges;
+	}
+}
@@ -0,0 +1,129 @@
+package airclash.system.gfx;
+
+import java.nio.FloatBuffer;
+
+/**
+ * The drawing operations the Renderer is built on. They follow the
+ * immediate mode of OpenGL: state is set, then primitives are drawn vertex
+ * by vertex between begin() and end(). GLBackend passes them on to OpenGL,
+ * RecordingBackend records them, so that rendering can be measured without
+ * a display.
+ *
+ * @author Andreas Textor
+ */
+public interface RenderBackend {
+	/**
+	 * The kinds of primitives.
+	 * @author Andreas Textor
+	 */
+	enum Primitive {
+		/** Every four vertices form a quad. */
+		QUADS,
+
+		/** Every two vertices form a quad with the two before. */
+		QUAD_STRIP,
+
+		/** All vertices form one convex polygon. */
+		POLYGON,
+
+		/** All vertices form a closed line. */
+		LINE_LOOP
+	}
+
+	/**
+	 * Clears the screen.
+	 */
+	void clear();
+
+	/**
+	 * Resets the transformation.
+	 */
+	void loadIdentity();
+
+	/**
+	 * Moves everything that is drawn afterwards.
+	 * @param pX The x offset
+	 * @param pY The y offset
+	 */
+	void translate(float pX, float pY);
+
+	/**
+	 * Saves the transformation.
+	 */
+	void pushMatrix();
+
+	/**
+	 * Restores the transformation that was saved last.
+	 */
+	void popMatrix();
+
+	/**
+	 * Enables or disables alpha blending.
+	 * @param pEnabled true to enable
+	 */
+	void setBlending(boolean pEnabled);
+
+	/**
+	 * Enables or disables texturing.
+	 * @param pEnabled true to enable
+	 */
+	void setTexturing(boolean pEnabled);
+
+	/**
+	 * Makes a texture the current one.
+	 * @param pTexture The texture
+	 */
+	void bindTexture(Texture pTexture);
+
+	/**
+	 * Sets the color of the following vertices.
+	 * @param pR red (0.0f - 1.0f)
+	 * @param pG green (0.0f - 1.0f)
+	 * @param pB blue (0.0f - 1.0f)
+	 * @param pA alpha (1.0f = opaque, 0.0f = translucent)
+	 */
+	void setColor(float pR, float pG, float pB, float pA);
+
+	/**
+	 * Sets the width of lines.
+	 * @param pWidth The width in pixels
+	 */
+	void setLineWidth(float pWidth);
+
+	/**
+	 * Starts a primitive.
+	 * @param pPrimitive The kind of primitive
+	 */
+	void begin(Primitive pPrimitive);
+
+	/**
+	 * Sets the texture coordinate of the next vertex.
+	 * @param pU The horizontal coordinate
+	 * @param pV The vertical coordinate
+	 */
+	void texCoord(float pU, float pV);
+
+	/**
+	 * Adds a vertex to the current primitive.
+	 * @param pX The x coordinate
+	 * @param pY The y coordinate
+	 */
+	void vertex(float pX, float pY);
+
+	/**
+	 * Ends the current primitive.
+	 */
+	void end();
+
+	/**
+	 * Draws textured quads from a vertex buffer with a single draw call. The
+	 * buffer holds four vertices per quad, and four floats per vertex: x, y
+	 * and the texture coordinates u, v. The texture is bound, the other
+	 * state, e.g. the color, is used as it is.
+	 * @param pTexture The texture of the quads
+	 * @param pVertices The vertices
+	 * @param pFirst The index of the first quad to draw
+	 * @param pCount The number of quads to draw
+	 */
+	void drawQuads(Texture pTexture, FloatBuffer pVertices, int pFirst, int pCount);
+}
@@ -9,29 +9,184 @@ import net.phys2d.raw.shapes.Circle;
 import net.phys2d.raw.shapes.Line;
 import net.phys2d.raw.shapes.Polygon;
 
-import org.lwjgl.opengl.Display;
-import org.lwjgl.opengl.GL11;
+import java.awt.Dimension;
 
 import airclash.system.Core;
+import airclash.system.gfx.RenderBackend.Primitive;
+import airclash.units.IUnit;
 import airclash.units.buildings.Module;
+import airclash.units.buildings.StructureLayout;
+import airclash.world.Level;
+import airclash.world.WorldSnapshot;
 
 /**
- * This class is reponsible for displaying graphics onto the window.
+ * This class is reponsible for displaying graphics onto the window. All
+ * drawing goes through a RenderBackend, so the same drawing code can run
+ * on OpenGL or be recorded without a display.
+ *
+ * Images and boxes are collected in a SpriteBatch and drawn with one draw
+ * call per texture when the batch is flushed. Every other kind of drawing
+ * flushes the batch first, so it ends up on top of the quads that were
+ * drawn before it, as do changes of the transformation.
  * @author Andreas Textor
  */
 public class Renderer {
-	/** The Core object reference. */
-	private Core core;
+	/** The backend that does the drawing. */
+	private final RenderBackend backend;
+	
+	/** The size of the window. */
+	private final Dimension windowSize;
+	
+	/** The maximum number of quads that are drawn with one flush. */
+	private static final int BATCH_SIZE = 2048;
+	
+	/** The images and boxes that were not drawn yet. */
+	private final SpriteBatch batch;
+	
+	/** The state of the world after the previous tick. */
+	private WorldSnapshot previousState = null;
+	
+	/** The state of the world after the current tick. */
+	private WorldSnapshot currentState = null;
+	
+	/** The interpolation factor between the previous and the current state. */
+	private float alpha = 1.0f;
+	
+	/** The interpolated position of the body that is currently drawn. */
+	private final Vector2f position = new Vector2f();
+	
+	/** The interpolated rotation of the body that is currently drawn. */
+	private float rotation = 0.0f;
+	
+	/** The position of a part of the body that is currently drawn. */
+	private final Vector2f partPosition = new Vector2f();
 	
 	/**
-	 * Constructor. This is intended to be called from the core object.
+	 * Constructor. This is intended to be called from the core object, and
+	 * draws with OpenGL.
 	 * @param pCore The core object reference.
 	 */
 	public Renderer(final Core pCore) {
-		this.core = pCore;
-		GL11.glEnable(GL11.GL_BLEND);
-		GL11.glColorMask(true, true, true, true);
-		GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
+		this(new GLBackend(), pCore.getWindowSize());
+	}
+	
+	/**
+	 * Constructor.
+	 * @param pBackend The backend that does the drawing
+	 * @param pWindowSize The size of the window
+	 */
+	public Renderer(final RenderBackend pBackend, final Dimension pWindowSize) {
+		this.backend = pBackend;
+		this.windowSize = pWindowSize;
+		this.batch = new SpriteBatch(pBackend, BATCH_SIZE);
+	}
+	
+	/**
+	 * Draws the images and boxes that were collected. This has to be called
+	 * before anything else draws on the screen, e.g. the gui.
+	 */
+	public void flush() {
+		this.batch.flush();
+	}
+	
+	/**
+	 * Starts a new frame: clears the screen and resets the transformation.
+	 */
+	public void beginFrame() {
+		flush();
+		this.backend.clear();
+		this.backend.loadIdentity();
+	}
+	
+	/**
+	 * Resets the transformation, e.g. to draw the gui after the world.
+	 */
+	public void resetTransform() {
+		flush();
+		this.backend.loadIdentity();
+	}
+	
+	/**
+	 * Draws the visible part of the level, the units and the overlay of the
+	 * level. The view stays scrolled afterwards, so that more can be drawn
+	 * in world coordinates.
+	 * @param pLevel The level
+	 * @param pSnapshot The state to take the units from
+	 * @param pOffsetX The x offset of the view (level scrolling)
+	 * @param pOffsetY The y offset of the view
+	 */
+	public void drawWorld(final Level pLevel, final WorldSnapshot pSnapshot,
+			final int pOffsetX, final int pOffsetY) {
+		flush();
+		this.backend.translate(pOffsetX, pOffsetY);
+		this.backend.setTexturing(true);
+		pLevel.drawWorld(this, -pOffsetX, -pOffsetX + this.windowSize.width);
+		// Structures are drawn from the layout of the snapshot, their cells
+		// may change while this runs
+		final IUnit[] units = pSnapshot.getUnits();
+		for (int i = 0; i < units.length; i++) {
+			final StructureLayout layout = pSnapshot.getLayout(i);
+			if (layout != null) {
+				layout.draw(this);
+			} else {
+				units[i].draw(this);
+			}
+		}
+		pLevel.drawOverlay(this, pSnapshot);
+	}
+	
+	/**
+	 * Sets the states that the bodies are drawn from. Moveable bodies are
+	 * drawn at a position between the previous and the current state, so that
+	 * the movement looks smooth even if the frame rate differs from the tick
+	 * rate. Bodies not contained in the states are drawn where they are.
+	 * @param pPrevious The state after the previous tick
+	 * @param pCurrent The state after the current tick
+	 * @param pAlpha The interpolation factor (0.0f - 1.0f)
+	 */
+	public void setInterpolation(final WorldSnapshot pPrevious,
+			final WorldSnapshot pCurrent, final float pAlpha) {
+		this.previousState = pPrevious;
+		this.currentState = pCurrent;
+		this.alpha = pAlpha;
+	}
+	
+	/**
+	 * Computes the interpolated position and rotation of a body and stores
+	 * them in the position and rotation fields.
+	 * @param pBody The body
+	 */
+	private void interpolate(final Body pBody) {
+		final int cur = this.currentState == null ? -1 : this.currentState.indexOf(pBody);
+		if (cur < 0) {
+			this.position.set(pBody.getPosition());
+			this.rotation = pBody.getRotation();
+			return;
+		}
+		final float x = this.currentState.getX(cur);
+		final float y = this.currentState.getY(cur);
+		final float r = this.currentState.getRotation(cur);
+		final int prev = this.previousState.indexOf(pBody);
+		if (prev < 0) {
+			this.position.set(x, y);
+			this.rotation = r;
+		} else {
+			final float a = this.alpha;
+			this.position.set(this.previousState.getX(prev) * (1 - a) + x * a,
+					this.previousState.getY(prev) * (1 - a) + y * a);
+			this.rotation = this.previousState.getRotation(prev) * (1 - a) + r * a;
+		}
+	}
+	
+	/**
+	 * Returns the position a body is drawn at. The returned vector is reused
+	 * by the renderer, so it is only valid until the next draw call.
+	 * @param pBody The body
+	 * @return The interpolated position
+	 */
+	public ROVector2f getInterpolatedPosition(final Body pBody) {
+		interpolate(pBody);
+		return this.position;
 	}
 	
 //	/**
@@ -61,29 +216,34 @@ public class Renderer {
 	 * @param pTex The texture for the block
 	 */
 	public void drawBoxBody(final Body pBody, final Box pBox, final Texture pTex) {
-		final Vector2f[] pts = pBox.getPoints(pBody.getPosition(), pBody.getRotation());
+		drawBoxBody(pBody, 0, 0, pBox, pTex);
+	}
+	
+	/**
+	 * Draws a box that is a part of a body, e.g. a module of a building.
+	 * @param pBody The body
+	 * @param pOffsetX The x offset of the center of the box from the body,
+	 * before the body is rotated
+	 * @param pOffsetY The y offset of the center of the box
+	 * @param pBox The box
+	 * @param pTex The texture for the block
+	 */
+	public void drawBoxBody(final Body pBody, final float pOffsetX, final float pOffsetY,
+			final Box pBox, final Texture pTex) {
+		interpolate(pBody);
+		final float cos = (float)Math.cos(this.rotation);
+		final float sin = (float)Math.sin(this.rotation);
+		this.partPosition.set(this.position.x + cos * pOffsetX - sin * pOffsetY,
+				this.position.y + sin * pOffsetX + cos * pOffsetY);
+		final Vector2f[] pts = pBox.getPoints(this.partPosition, this.rotation);
 		
 		final Vector2f v1 = pts[0];
 		final Vector2f v2 = pts[1];
 		final Vector2f v3 = pts[2];
 		final Vector2f v4 = pts[3];
 		
-		GL11.glEnable(GL11.GL_BLEND);
-		GL11.glEnable(GL11.GL_TEXTURE_2D);
-		
-		pTex.bind();
-		GL11.glColor3f(1.0f, 1.0f, 1.0f);
-		GL11.glBegin(GL11.GL_QUADS);
-		
-		GL11.glTexCoord2f(0, pTex.getHeight());
-		GL11.glVertex2f((int)v1.x, (int)v1.y);
-		GL11.glTexCoord2f(pTex.getWidth(), pTex.getHeight());
-		GL11.glVertex2f((int)v2.x, (int)v2.y);
-		GL11.glTexCoord2f(pTex.getWidth(), 0);
-		GL11.glVertex2f((int)v3.x, (int)v3.y);
-		GL11.glTexCoord2f(0, 0);
-		GL11.glVertex2f((int)v4.x, (int)v4.y);
-		GL11.glEnd();
+		this.batch.add(pTex, (int)v1.x, (int)v1.y, (int)v2.x, (int)v2.y,
+				(int)v3.x, (int)v3.y, (int)v4.x, (int)v4.y);
 	}
 	
 	/**
@@ -93,14 +253,16 @@ public class Renderer {
 	 * @param pLine The line to be drawn
 	 */
 	public void drawLineBody(final Body pBody, final Line pLine) {
-		final Vector2f[] verts = pLine.getVertices(pBody.getPosition(), pBody.getRotation());
+		flush();
+		interpolate(pBody);
+		final Vector2f[] verts = pLine.getVertices(this.position, this.rotation);
 		
-		GL11.glLineWidth(1.0f);
-		GL11.glColor3f(1.0f, 1.0f, 1.0f);
-		GL11.glBegin(GL11.GL_LINE_LOOP);
-		GL11.glVertex2i((int)verts[0].getX(), (int)verts[0].getY());
-		GL11.glVertex2i((int)verts[1].getX(), (int)verts[1].getY());
-		GL11.glEnd();
+		this.backend.setLineWidth(1.0f);
+		this.backend.setColor(1.0f, 1.0f, 1.0f, 1);
+		this.backend.begin(Primitive.LINE_LOOP);
+		this.backend.vertex((int)verts[0].getX(), (int)verts[0].getY());
+		this.backend.vertex((int)verts[1].getX(), (int)verts[1].getY());
+		this.backend.end();
 	}
 		
 	/**
@@ -112,19 +274,48 @@ public class Renderer {
 	 */
 	public void drawPolygonBody(final Body pBody, final Polygon pPoly,
 			final Texture pTex) {
-		final ROVector2f[] verts = pPoly.getVertices(pBody.getPosition(), pBody.getRotation());
-		GL11.glColor3f(1.0f, 1.0f, 1.0f);
-		GL11.glEnable(GL11.GL_TEXTURE_2D);
-		pTex.bind();
+		interpolate(pBody);
+		flush();
+		final ROVector2f[] verts = pPoly.getVertices(this.position, this.rotation);
+		this.backend.setColor(1.0f, 1.0f, 1.0f, 1);
+		this.backend.setTexturing(true);
+		this.backend.bindTexture(pTex);
 		
-		GL11.glBegin(GL11.GL_POLYGON);
+		this.backend.begin(Primitive.POLYGON);
 		for (int i = 0; i < verts.length; i++) {
 			final int x = (int)(0.5f + verts[i].getX());
 			final int y = (int)(0.5f + verts[i].getY());
-			GL11.glTexCoord2f(x / (float)pTex.getImageWidth(), y / (float)pTex.getImageHeight());
-			GL11.glVertex2i(x, y);
+			this.backend.texCoord(x / (float)pTex.getImageWidth(), y / (float)pTex.getImageHeight());
+			this.backend.vertex(x, y);
 		}
-		GL11.glEnd();
+		this.backend.end();
+	}
+	
+	/**
+	 * Draws the level floor between a floor line and y = 0. Every segment of
+	 * the line becomes one quad of a strip, so the floor may be concave.
+	 * @param pX The x coordinates of the floor line, sorted
+	 * @param pY The y coordinates of the floor line
+	 * @param pTex The texture of the floor
+	 */
+	public void drawTerrain(final float[] pX, final float[] pY, final Texture pTex) {
+		flush();
+		this.backend.setColor(1.0f, 1.0f, 1.0f, 1);
+		this.backend.setTexturing(true);
+		this.backend.bindTexture(pTex);
+		
+		final float texWidth = pTex.getImageWidth();
+		final float texHeight = pTex.getImageHeight();
+		this.backend.begin(Primitive.QUAD_STRIP);
+		for (int i = 0; i < pX.length; i++) {
+			final int x = (int)(0.5f + pX[i]);
+			final int y = (int)(0.5f + pY[i]);
+			this.backend.texCoord(x / texWidth, 0);
+			this.backend.vertex(x, 0);
+			this.backend.texCoord(x / texWidth, y / texHeight);
+			this.backend.vertex(x, y);
+		}
+		this.backend.end();
 	}
 	
 	/**
@@ -135,15 +326,17 @@ public class Renderer {
 	 */
 	public void drawCircleBody(final Body pBody, final Circle pCircle) {
 		final int numSegments = (int)pCircle.getRadius() / 10 + 10;
-		GL11.glColor3f(0, 0, 0);
-		GL11.glDisable(GL11.GL_BLEND);
-    	GL11.glBegin(GL11.GL_POLYGON);
+		flush();
+		interpolate(pBody);
+		this.backend.setColor(0, 0, 0, 1);
+		this.backend.setBlending(false);
+    	this.backend.begin(Primitive.POLYGON);
     	for (float angle = 0; angle <= 2 * Math.PI; angle += Math.PI / numSegments) {
     		final float x = (float)(pCircle.getRadius() * 2 * Math.cos(angle) / 2);
     		final float y = (float)(pCircle.getRadius() * 2 * Math.sin(angle) / 2);
-    		GL11.glVertex2f(x + pBody.getPosition().getX(), y + pBody.getPosition().getY());
+    		this.backend.vertex(x + this.position.getX(), y + this.position.getY());
     	}
-    	GL11.glEnd();
+    	this.backend.end();
 	}
 	
 	
@@ -153,9 +346,17 @@ public class Renderer {
 	 * @param pContact The contact to draw
 	 */
 	public void drawContact(final Contact pContact) {
-		final int x = (int)pContact.getPosition().getX();
-		final int y = (int)pContact.getPosition().getY();
-		drawSimpleBox(x, y, 4, 4, 1.0f, 1.0f, 0.0f, 1.0f);
+		drawContact((int)pContact.getPosition().getX(), (int)pContact.getPosition().getY());
+	}
+	
+	/**
+	 * Draw a contact point at a given position.
+	 * 
+	 * @param pX The x coordinate
+	 * @param pY The y coordinate
+	 */
+	public void drawContact(final int pX, final int pY) {
+		drawSimpleBox(pX, pY, 4, 4, 1.0f, 1.0f, 0.0f, 1.0f);
 	}
 	
 	/**
@@ -181,28 +382,28 @@ public class Renderer {
 	public void drawSimpleBox(final int pX, final int pY, final int pWidth,
 			final int pHeight, final float pR, final float pG, final float pB,
 			final float pA) {
-		GL11.glEnable(GL11.GL_BLEND);
-		GL11.glDisable(GL11.GL_TEXTURE_2D);
-		GL11.glColor4f(pR, pG, pB, pA);
-		GL11.glBegin(GL11.GL_QUADS);
-		GL11.glVertex2f(pX - pWidth / 2, pY + pHeight / 2);
-		GL11.glVertex2f(pX + pWidth / 2, pY + pHeight / 2);
-		GL11.glVertex2f(pX + pWidth / 2, pY - pHeight / 2);
-		GL11.glVertex2f(pX - pWidth / 2, pY - pHeight / 2);
-		GL11.glEnd();
+		flush();
+		this.backend.setBlending(true);
+		this.backend.setTexturing(false);
+		this.backend.setColor(pR, pG, pB, pA);
+		this.backend.begin(Primitive.QUADS);
+		this.backend.vertex(pX - pWidth / 2, pY + pHeight / 2);
+		this.backend.vertex(pX + pWidth / 2, pY + pHeight / 2);
+		this.backend.vertex(pX + pWidth / 2, pY - pHeight / 2);
+		this.backend.vertex(pX - pWidth / 2, pY - pHeight / 2);
+		this.backend.end();
 	}
 
 	/**
-	 * Displays the loading screen while the other systems are initialized.
+	 * Draws the loading screen while the other systems are initialized. It
+	 * is shown by the next update of the display.
 	 */
 	public void drawLoadingScreen() {
-		GL11.glClear(GL11.GL_COLOR_BUFFER_BIT);
-		GL11.glLoadIdentity();
-		GL11.glEnable(GL11.GL_TEXTURE_2D);
+		beginFrame();
 		final Sprite s = new Sprite("loading");
-		s.draw(this.core.getWindowSize().width / 2 - s.getWidth() / 2,
-				this.core.getWindowSize().height / 2 - s.getHeight() / 2);
-		Display.update();
+		s.draw(this, this.windowSize.width / 2 - s.getWidth() / 2,
+				this.windowSize.height / 2 - s.getHeight() / 2);
+		flush();
 	}
 	
 	/**
@@ -215,26 +416,8 @@ public class Renderer {
 	 */
 	public void drawImage(final Texture pTex, final int pX, final int pY,
 			final int pWidth, final int pHeight) {
-		GL11.glEnable(GL11.GL_TEXTURE_2D);
-		pTex.bind();
-		GL11.glColor3f(1, 1, 1);
-		GL11.glPushMatrix();
-		GL11.glTranslatef(pX, pY, 0);
-
-		// draw a quad textured to match the sprite
-		GL11.glBegin(GL11.GL_QUADS);
-		
-		GL11.glTexCoord2f(0, pTex.getHeight());
-		GL11.glVertex2f(0, 0);
-		GL11.glTexCoord2f(0, 0);
-		GL11.glVertex2f(0, pHeight);
-		GL11.glTexCoord2f(pTex.getWidth(), 0);
-		GL11.glVertex2f(pWidth, pHeight);
-		GL11.glTexCoord2f(pTex.getWidth(), pTex.getHeight());
-		GL11.glVertex2f(pWidth, 0);
-		GL11.glEnd();
-		
-		GL11.glPopMatrix();
+		this.batch.add(pTex, pX, pY, pX + pWidth, pY, pX + pWidth, pY + pHeight,
+				pX, pY + pHeight);
 	}
 	
 	/**
@@ -251,19 +434,20 @@ public class Renderer {
 	 * Draws the level background.
 	 */
 	public void drawBackground() {
-		GL11.glDisable(GL11.GL_TEXTURE_2D);
-		GL11.glColor3f(1, 1, 1);
+		flush();
+		this.backend.setTexturing(false);
+		this.backend.setColor(1, 1, 1, 1);
 	
 		// draw a quad textured to match the sprite
-		GL11.glBegin(GL11.GL_QUADS);
-		GL11.glColor3f(0.17f, 0.184f, 0.54f);
-		GL11.glVertex2f(0, 0);
-		GL11.glColor3f(1, 1, 1);
-		GL11.glVertex2f(0, this.core.getWindowSize().width);
-		GL11.glVertex2f(this.core.getWindowSize().width,
-				this.core.getWindowSize().height);
-		GL11.glColor3f(0.17f, 0.184f, 0.54f);
-		GL11.glVertex2f(this.core.getWindowSize().width, 0);
-		GL11.glEnd();
+		this.backend.begin(Primitive.QUADS);
+		this.backend.setColor(0.17f, 0.184f, 0.54f, 1);
+		this.backend.vertex(0, 0);
+		this.backend.setColor(1, 1, 1, 1);
+		this.backend.vertex(0, this.windowSize.width);
+		this.backend.vertex(this.windowSize.width,
+				this.windowSize.height);
+		this.backend.setColor(0.17f, 0.184f, 0.54f, 1);
+		this.backend.vertex(this.windowSize.width, 0);
+		this.backend.end();
 	}
 }
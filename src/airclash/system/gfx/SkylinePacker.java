@@ -0,0 +1,175 @@
+package airclash.system.gfx;
+
+/**
+ * Places rectangles on a page without overlap, e.g. images on a texture
+ * atlas. The packer keeps the skyline of the page, i.e. the top edge of
+ * the rectangles that were placed so far, as a list of horizontal
+ * segments. A new rectangle is put on the skyline where its top edge ends
+ * up lowest, and further left on a tie. This wastes little space if the
+ * rectangles are added from the highest to the lowest.
+ *
+ * @author Andreas Textor
+ */
+class SkylinePacker {
+	/** The width of the page. */
+	private final int width;
+
+	/** The height of the page. */
+	private final int height;
+
+	/** The x coordinate of the left end of each segment of the skyline. */
+	private final int[] segX;
+
+	/** The y coordinate of each segment of the skyline. */
+	private final int[] segY;
+
+	/** The width of each segment of the skyline. */
+	private final int[] segWidth;
+
+	/** The number of segments. */
+	private int count;
+
+	/** The x coordinate of the rectangle that was added last. */
+	private int lastX = 0;
+
+	/** The y coordinate of the rectangle that was added last. */
+	private int lastY = 0;
+
+	/**
+	 * Constructor. The page starts empty, with a skyline of one segment at
+	 * y = 0.
+	 * @param pWidth The width of the page
+	 * @param pHeight The height of the page
+	 */
+	SkylinePacker(final int pWidth, final int pHeight) {
+		this.width = pWidth;
+		this.height = pHeight;
+		// Every segment is at least 1 wide, and one more is needed while
+		// a rectangle is inserted
+		this.segX = new int[pWidth + 1];
+		this.segY = new int[pWidth + 1];
+		this.segWidth = new int[pWidth + 1];
+		this.segWidth[0] = pWidth;
+		this.count = 1;
+	}
+
+	/**
+	 * Places a rectangle on the page. Its position can be read with
+	 * getLastX() and getLastY().
+	 * @param pWidth The width of the rectangle
+	 * @param pHeight The height of the rectangle
+	 * @return true if the rectangle was placed, false if there is no room
+	 * left for it
+	 */
+	boolean add(final int pWidth, final int pHeight) {
+		int best = -1;
+		int bestTop = Integer.MAX_VALUE;
+		for (int i = 0; i < this.count; i++) {
+			final int y = fit(i, pWidth, pHeight);
+			if (y >= 0 && y + pHeight < bestTop) {
+				best = i;
+				bestTop = y + pHeight;
+			}
+		}
+		if (best < 0) {
+			return false;
+		}
+		this.lastX = this.segX[best];
+		this.lastY = bestTop - pHeight;
+		insert(best, this.lastX, bestTop, pWidth);
+		return true;
+	}
+
+	/**
+	 * Finds the height at which a rectangle fits when its left edge is at the
+	 * start of a segment.
+	 * @param pIndex The index of the segment
+	 * @param pWidth The width of the rectangle
+	 * @param pHeight The height of the rectangle
+	 * @return The y coordinate of the bottom of the rectangle, or -1 if it
+	 * does not fit
+	 */
+	private int fit(final int pIndex, final int pWidth, final int pHeight) {
+		if (this.segX[pIndex] + pWidth > this.width) {
+			return -1;
+		}
+		int y = 0;
+		int left = pWidth;
+		for (int i = pIndex; left > 0; i++) {
+			y = Math.max(y, this.segY[i]);
+			if (y + pHeight > this.height) {
+				return -1;
+			}
+			left -= this.segWidth[i];
+		}
+		return y;
+	}
+
+	/**
+	 * Puts a new segment into the skyline, before the segment at an index.
+	 * The segments it covers are shortened or removed, and neighbours at
+	 * the same height are merged.
+	 * @param pIndex The index of the new segment
+	 * @param pX The x coordinate of the left end
+	 * @param pY The y coordinate
+	 * @param pWidth The width
+	 */
+	private void insert(final int pIndex, final int pX, final int pY, final int pWidth) {
+		System.arraycopy(this.segX, pIndex, this.segX, pIndex + 1, this.count - pIndex);
+		System.arraycopy(this.segY, pIndex, this.segY, pIndex + 1, this.count - pIndex);
+		System.arraycopy(this.segWidth, pIndex, this.segWidth, pIndex + 1, this.count - pIndex);
+		this.segX[pIndex] = pX;
+		this.segY[pIndex] = pY;
+		this.segWidth[pIndex] = pWidth;
+		this.count++;
+
+		final int right = pX + pWidth;
+		final int next = pIndex + 1;
+		while (next < this.count && this.segX[next] < right) {
+			final int end = this.segX[next] + this.segWidth[next];
+			if (end <= right) {
+				remove(next);
+			} else {
+				this.segX[next] = right;
+				this.segWidth[next] = end - right;
+				break;
+			}
+		}
+
+		for (int i = 0; i < this.count - 1; i++) {
+			if (this.segY[i] == this.segY[i + 1]) {
+				this.segWidth[i] += this.segWidth[i + 1];
+				remove(i + 1);
+				i--;
+			}
+		}
+	}
+
+	/**
+	 * Removes a segment from the skyline.
+	 * @param pIndex The index of the segment
+	 */
+	private void remove(final int pIndex) {
+		final int moved = this.count - pIndex - 1;
+		System.arraycopy(this.segX, pIndex + 1, this.segX, pIndex, moved);
+		System.arraycopy(this.segY, pIndex + 1, this.segY, pIndex, moved);
+		System.arraycopy(this.segWidth, pIndex + 1, this.segWidth, pIndex, moved);
+		this.count--;
+	}
+
+	/**
+	 * Returns the x coordinate of the rectangle that was added last.
+	 * @return The x coordinate of the left edge
+	 */
+	int getLastX() {
+		return this.lastX;
+	}
+
+	/**
+	 * Returns the y coordinate of the rectangle that was added last.
+	 * @return The y coordinate of the bottom edge
+	 */
+	int getLastY() {
+		return this.lastY;
+	}
+}
@@ -1,12 +1,10 @@
 package airclash.system.gfx;
 
-import org.lwjgl.opengl.GL11;
-
 import airclash.system.Core;
 import airclash.system.exceptions.InvalidResourceException;
 
 /**
- * Implementation of sprite that uses an OpenGL quad and a texture
+ * Implementation of sprite that uses a textured quad of the renderer
  * to render a given image to the screen.
  * 
  * @author Kevin Glass
@@ -62,35 +60,12 @@ public class Sprite {
 	/**
 	 * Draw the sprite at the specified location.
 	 * 
+	 * @param pRenderer The renderer to draw on
 	 * @param pX The x location at which to draw this sprite
 	 * @param pY The y location at which to draw this sprite
 	 */
-	public void draw(final int pX, final int pY) {
-		// store the current model matrix
-		GL11.glPushMatrix();
-
-		// bind to the appropriate texture for this sprite
-		this.texture.bind();
-
-		// translate to the right location and prepare to draw
-		GL11.glTranslatef(pX, pY, 0);
-		GL11.glColor3f(1, 1, 1);
-
-		// draw a quad textured to match the sprite
-		GL11.glBegin(GL11.GL_QUADS);
-		
-		GL11.glTexCoord2f(0, this.texture.getHeight());
-		GL11.glVertex2f(0, 0);
-		GL11.glTexCoord2f(0, 0);
-		GL11.glVertex2f(0, this.height);
-		GL11.glTexCoord2f(this.texture.getWidth(), 0);
-		GL11.glVertex2f(this.width, this.height);
-		GL11.glTexCoord2f(this.texture.getWidth(), this.texture.getHeight());
-		GL11.glVertex2f(this.width, 0);
-		GL11.glEnd();
-
-		// restore the model view matrix to prevent contamination
-		GL11.glPopMatrix();
+	public void draw(final Renderer pRenderer, final int pX, final int pY) {
+		pRenderer.drawImage(this.texture, pX, pY, this.width, this.height);
 	}
 
 }
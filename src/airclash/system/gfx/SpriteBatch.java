@@ -0,0 +1,186 @@
+package airclash.system.gfx;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * Collects textured quads and draws them with as few draw calls as
+ * possible. The quads are grouped by the texture that is bound to draw
+ * them, i.e. images on the same atlas page share a group, when the batch is
+ * flushed, and every group is drawn with a single call from one vertex
+ * buffer that is allocated once. So quads with the same texture may be
+ * drawn in another order than they were added, relative to quads with
+ * other textures; anything that has to be drawn on top of the quads must
+ * be drawn after a flush.
+ *
+ * Every vertex has the layout x, y, u, v.
+ *
+ * @author Andreas Textor
+ */
+class SpriteBatch {
+	/** The number of floats per vertex. */
+	static final int FLOATS_PER_VERTEX = 4;
+
+	/** The number of floats per quad. */
+	static final int FLOATS_PER_QUAD = 4 * FLOATS_PER_VERTEX;
+
+	/** The backend that draws the quads. */
+	private final RenderBackend backend;
+
+	/** The maximum number of quads, the batch is flushed when it is full. */
+	private final int capacity;
+
+	/** The vertices of the quads in the order they were added. */
+	private final float[] quads;
+
+	/** The texture that is bound to draw each quad. */
+	private final Texture[] textures;
+
+	/** The group of each quad, used while flushing. */
+	private final int[] groups;
+
+	/** The texture of each group, used while flushing. */
+	private final Texture[] groupTextures;
+
+	/** The first quad of each group in the buffer, used while flushing. */
+	private final int[] groupStart;
+
+	/** The number of quads of each group, used while flushing. */
+	private final int[] groupSize;
+
+	/** The vertices of the quads, sorted by group. */
+	private final FloatBuffer buffer;
+
+	/** The number of quads. */
+	private int count = 0;
+
+	/**
+	 * Constructor.
+	 * @param pBackend The backend that draws the quads
+	 * @param pCapacity The maximum number of quads per flush
+	 */
+	SpriteBatch(final RenderBackend pBackend, final int pCapacity) {
+		this.backend = pBackend;
+		this.capacity = pCapacity;
+		this.quads = new float[pCapacity * FLOATS_PER_QUAD];
+		this.textures = new Texture[pCapacity];
+		this.groups = new int[pCapacity];
+		this.groupTextures = new Texture[pCapacity];
+		this.groupStart = new int[pCapacity];
+		this.groupSize = new int[pCapacity];
+		final ByteBuffer bytes = ByteBuffer.allocateDirect(4 * pCapacity * FLOATS_PER_QUAD);
+		bytes.order(ByteOrder.nativeOrder());
+		this.buffer = bytes.asFloatBuffer();
+	}
+
+	/**
+	 * Adds a quad that shows the whole image of a texture. The corners are
+	 * given in order around the quad and show the bottom left, bottom right,
+	 * top right and top left corner of the image.
+	 * @param pTex The texture
+	 * @param pX1 The x coordinate of the first corner
+	 * @param pY1 The y coordinate of the first corner
+	 * @param pX2 The x coordinate of the second corner
+	 * @param pY2 The y coordinate of the second corner
+	 * @param pX3 The x coordinate of the third corner
+	 * @param pY3 The y coordinate of the third corner
+	 * @param pX4 The x coordinate of the fourth corner
+	 * @param pY4 The y coordinate of the fourth corner
+	 */
+	void add(final Texture pTex, final float pX1, final float pY1, final float pX2,
+			final float pY2, final float pX3, final float pY3, final float pX4,
+			final float pY4) {
+		if (this.count == this.capacity) {
+			flush();
+		}
+		final float u0 = pTex.getMinU();
+		final float v0 = pTex.getMinV();
+		final float u1 = pTex.getMaxU();
+		final float v1 = pTex.getMaxV();
+		final float[] q = this.quads;
+		int i = this.count * FLOATS_PER_QUAD;
+		q[i++] = pX1;
+		q[i++] = pY1;
+		q[i++] = u0;
+		q[i++] = v1;
+		q[i++] = pX2;
+		q[i++] = pY2;
+		q[i++] = u1;
+		q[i++] = v1;
+		q[i++] = pX3;
+		q[i++] = pY3;
+		q[i++] = u1;
+		q[i++] = v0;
+		q[i++] = pX4;
+		q[i++] = pY4;
+		q[i++] = u0;
+		q[i] = v0;
+		this.textures[this.count] = pTex.getPage();
+		this.count++;
+	}
+
+	/**
+	 * Checks if there are quads that were not drawn yet.
+	 * @return true if the batch is empty
+	 */
+	boolean isEmpty() {
+		return this.count == 0;
+	}
+
+	/**
+	 * Draws all quads that were added, one draw call per texture, and
+	 * empties the batch.
+	 */
+	void flush() {
+		if (this.count == 0) {
+			return;
+		}
+		// Find the group of every quad. Quads of the same texture usually
+		// follow each other, so the group of the previous quad is tried first
+		int numGroups = 0;
+		int last = -1;
+		for (int i = 0; i < this.count; i++) {
+			final Texture tex = this.textures[i];
+			if (last < 0 || this.groupTextures[last] != tex) {
+				last = -1;
+				for (int g = 0; g < numGroups; g++) {
+					if (this.groupTextures[g] == tex) {
+						last = g;
+						break;
+					}
+				}
+				if (last < 0) {
+					last = numGroups++;
+					this.groupTextures[last] = tex;
+					this.groupSize[last] = 0;
+				}
+			}
+			this.groups[i] = last;
+			this.groupSize[last]++;
+		}
+
+		// Copy the quads into the buffer, sorted by group
+		int start = 0;
+		for (int g = 0; g < numGroups; g++) {
+			this.groupStart[g] = start;
+			start += this.groupSize[g];
+			this.groupSize[g] = 0;
+		}
+		for (int i = 0; i < this.count; i++) {
+			final int g = this.groups[i];
+			this.buffer.position((this.groupStart[g] + this.groupSize[g]) * FLOATS_PER_QUAD);
+			this.buffer.put(this.quads, i * FLOATS_PER_QUAD, FLOATS_PER_QUAD);
+			this.groupSize[g]++;
+		}
+
+		this.backend.setBlending(true);
+		this.backend.setTexturing(true);
+		this.backend.setColor(1, 1, 1, 1);
+		for (int g = 0; g < numGroups; g++) {
+			this.backend.drawQuads(this.groupTextures[g], this.buffer, this.groupStart[g],
+					this.groupSize[g]);
+		}
+		this.count = 0;
+	}
+}
@@ -11,6 +11,11 @@ import org.lwjgl.opengl.GL11;
  * considerably bigged that the source image and hence the texture
  * mapping coordinates need to be adjusted to matchup drawing the
  * sprite against the texture.
+ * 
+ * A texture may also be one image on a page of a texture atlas, which is
+ * a texture that holds several images. It then binds the page, and the
+ * texture coordinates of the image are given by getMinU() to getMaxV().
+ * Images on an atlas page can't be drawn repeated.
  *
  * @author Kevin Glass
  * @author Brian Matzon
@@ -40,6 +45,15 @@ public class Texture {
     /** The ratio of the height of the image to the texture. */
     private float heightRatio;
     
+    /** The texture that is bound to draw this one, e.g. its atlas page. */
+    private final Texture page;
+    
+    /** The left texture coordinate of the image. */
+    private float minU = 0;
+    
+    /** The top texture coordinate of the image. */
+    private float minV = 0;
+    
     /**
      * Create a new texture.
      *
@@ -49,6 +63,36 @@ public class Texture {
     public Texture(final int pTarget, final int pTextureID) {
         this.target = pTarget;
         this.textureID = pTextureID;
+        this.page = this;
+    }
+    
+    /**
+     * Create a texture for an image on a page of a texture atlas. The size
+     * of the page must be set.
+     *
+     * @param pPage The atlas page
+     * @param pX The x coordinate of the image on the page in pixels
+     * @param pY The y coordinate of the image on the page in pixels
+     * @param pWidth The width of the image
+     * @param pHeight The height of the image
+     */
+    public Texture(final Texture pPage, final int pX, final int pY, final int pWidth,
+            final int pHeight) {
+        this.target = pPage.target;
+        this.textureID = pPage.textureID;
+        this.page = pPage;
+        this.width = pWidth;
+        this.height = pHeight;
+        this.texWidth = pPage.texWidth;
+        this.texHeight = pPage.texHeight;
+        setWidth();
+        setHeight();
+        if (this.texWidth != 0) {
+            this.minU = ((float)pX) / this.texWidth;
+        }
+        if (this.texHeight != 0) {
+            this.minV = ((float)pY) / this.texHeight;
+        }
     }
     
     /**
@@ -114,6 +158,53 @@ public class Texture {
         return this.widthRatio;
     }
     
+    /**
+     * Get the texture that is bound to draw this one. This is the atlas page
+     * if the texture is an image on an atlas, and the texture itself
+     * otherwise.
+     *
+     * @return The bound texture
+     */
+    public Texture getPage() {
+        return this.page;
+    }
+    
+    /**
+     * Get the left texture coordinate of the image.
+     *
+     * @return The left texture coordinate
+     */
+    public float getMinU() {
+        return this.minU;
+    }
+    
+    /**
+     * Get the top texture coordinate of the image.
+     *
+     * @return The top texture coordinate
+     */
+    public float getMinV() {
+        return this.minV;
+    }
+    
+    /**
+     * Get the right texture coordinate of the image.
+     *
+     * @return The right texture coordinate
+     */
+    public float getMaxU() {
+        return this.minU + this.widthRatio;
+    }
+    
+    /**
+     * Get the bottom texture coordinate of the image.
+     *
+     * @return The bottom texture coordinate
+     */
+    public float getMaxV() {
+        return this.minV + this.heightRatio;
+    }
+    
     /**
      * Set the height of this texture.
      *
@@ -12,14 +12,19 @@ import java.awt.image.DataBufferByte;
 import java.awt.image.Raster;
 import java.awt.image.WritableRaster;
 import java.io.BufferedInputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Map;
 
 import javax.imageio.ImageIO;
@@ -38,13 +43,40 @@ import airclash.system.exceptions.InvalidResourceException;
  * a intermediate image which the source image is copied into. In turn,
  * this image is used as source for the OpenGL texture.
  * 
- * This class is a singleton.
+ * The images in the texture directory, e.g. those of the units, can be
+ * packed onto the pages of a texture atlas with packAtlas(), so that they
+ * can be drawn without switching the texture in between.
+ * 
+ * This class is a singleton. Textures may be requested from several threads,
+ * e.g. by levels that are simulated in parallel.
  *
  * @author Kevin Glass
  * @author Brian Matzon
  * @author Andreas Textor
  */
 public final class TextureLoader {
+	/** The directory the textures are loaded from. */
+	private static final String TEXTURE_DIRECTORY = "data/textures/";
+	
+	/** The file name extension of the textures. */
+	private static final String TEXTURE_EXTENSION = ".png";
+	
+	/**
+	 * The textures that are drawn repeated, like the floor of the level.
+	 * Their texture coordinates go beyond the image, so packAtlas() leaves
+	 * them out.
+	 */
+	private static final String[] REPEATED_TEXTURES = {"brick"};
+	
+	/** The width and height of an atlas page. */
+	private static final int ATLAS_SIZE = 512;
+	
+	/**
+	 * The free space between the images on an atlas page, so that the
+	 * filtering does not mix in the neighbouring images.
+	 */
+	private static final int ATLAS_PADDING = 2;
+	
 	/** The table of textures that have been loaded in this loader. */
 	private Map<String, Texture> table = new HashMap<String, Texture>();
 
@@ -57,11 +89,17 @@ public final class TextureLoader {
 	/** The singleton instance. */
 	private static TextureLoader instance = null;
 	
+	/**
+	 * If set, no OpenGL calls are made and textures are only placeholders.
+	 * This is used when the game runs without a display.
+	 */
+	private volatile boolean headless = false;
+	
 	/**
 	 * Returns the singleton instance.
 	 * @return The singleton instance
 	 */
-	public static TextureLoader getInstance() {
+	public static synchronized TextureLoader getInstance() {
 		if (instance == null) {
 			instance = new TextureLoader();
 		}
@@ -82,6 +120,24 @@ public final class TextureLoader {
 				false, false, Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
 	}
 
+	/**
+	 * Enables or disables the headless mode. In headless mode, getTexture()
+	 * returns textures that are not backed by an OpenGL texture, so units and
+	 * levels can be created without a display.
+	 * @param pHeadless true to enable the headless mode
+	 */
+	public void setHeadless(final boolean pHeadless) {
+		this.headless = pHeadless;
+	}
+	
+	/**
+	 * Returns whether the loader runs in headless mode.
+	 * @return true if no OpenGL textures are created
+	 */
+	public boolean isHeadless() {
+		return this.headless;
+	}
+
 	/**
 	 * Create a new texture ID.
 	 *
@@ -100,13 +156,20 @@ public final class TextureLoader {
 	 * @return The loaded texture
 	 * @throws InvalidResourceException Indicates a failure to access the resource
 	 */
-	public Texture getTexture(final String pResourceName) throws InvalidResourceException {
+	public synchronized Texture getTexture(final String pResourceName)
+			throws InvalidResourceException {
 		try {
 			Texture tex = this.table.get(pResourceName);
 	
 			if (tex != null) {
 				return tex;
 			}
+			
+			if (this.headless) {
+				tex = new Texture(GL11.GL_TEXTURE_2D, 0);
+				this.table.put(pResourceName, tex);
+				return tex;
+			}
 	
 			tex = getTexture(pResourceName,
 					// target
@@ -125,6 +188,130 @@ public final class TextureLoader {
 		}
 	}
 
+	/**
+	 * Packs all images in the texture directory onto atlas pages, except
+	 * for the REPEATED_TEXTURES, see packAtlas(String[]). Images that are
+	 * larger than a page are loaded on their own.
+	 *
+	 * @throws InvalidResourceException Indicates a failure to access an image
+	 */
+	public void packAtlas() throws InvalidResourceException {
+		packAtlas(findAtlasTextures());
+	}
+	
+	/**
+	 * Lists the images in the texture directory that may be packed onto the
+	 * atlas pages, sorted by name, so that the pages are always packed the
+	 * same way.
+	 *
+	 * @return The names of the images
+	 * @throws InvalidResourceException Indicates that the directory can't be read
+	 */
+	private static String[] findAtlasTextures() throws InvalidResourceException {
+		final String[] files = new File(TEXTURE_DIRECTORY).list();
+		if (files == null) {
+			throw new InvalidResourceException("Can't read " + TEXTURE_DIRECTORY);
+		}
+		Arrays.sort(files);
+		final List<String> names = new ArrayList<String>();
+		for (String file : files) {
+			if (!file.endsWith(TEXTURE_EXTENSION)) {
+				continue;
+			}
+			final String name = file.substring(0, file.length() - TEXTURE_EXTENSION.length());
+			if (!Arrays.asList(REPEATED_TEXTURES).contains(name)) {
+				names.add(name);
+			}
+		}
+		return names.toArray(new String[names.size()]);
+	}
+	
+	/**
+	 * Packs images onto as few atlas pages as possible, and makes getTexture()
+	 * return the images on the pages from now on. Images that were already
+	 * loaded on their own, or that are larger than a page, are left as they
+	 * are. Images that are drawn repeated, like the floor of the level, must
+	 * not be packed.
+	 *
+	 * @param pResourceNames The names of the images
+	 * @throws InvalidResourceException Indicates a failure to access an image
+	 */
+	public synchronized void packAtlas(final String[] pResourceNames)
+			throws InvalidResourceException {
+		final List<String> names = new ArrayList<String>();
+		for (String name : pResourceNames) {
+			if (!this.table.containsKey(name) && !names.contains(name)) {
+				names.add(name);
+			}
+		}
+		if (this.headless) {
+			// Images on the same page are still drawn together
+			final Texture page = new Texture(GL11.GL_TEXTURE_2D, 0);
+			for (String name : names) {
+				this.table.put(name, new Texture(page, 0, 0, 0, 0));
+			}
+			return;
+		}
+		
+		final BufferedImage[] images = new BufferedImage[names.size()];
+		final Integer[] order = new Integer[names.size()];
+		try {
+			for (int i = 0; i < images.length; i++) {
+				images[i] = loadImage(TEXTURE_DIRECTORY + names.get(i) + TEXTURE_EXTENSION);
+				order[i] = Integer.valueOf(i);
+			}
+		} catch (IOException e) {
+			throw new InvalidResourceException("Error while loading texture", e);
+		}
+		// The skyline packer works best from the highest to the lowest image
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(final Integer pA, final Integer pB) {
+				return images[pB.intValue()].getHeight() - images[pA.intValue()].getHeight();
+			}
+		});
+		
+		final List<SkylinePacker> packers = new ArrayList<SkylinePacker>();
+		final List<BufferedImage> pages = new ArrayList<BufferedImage>();
+		final List<Texture> pageTextures = new ArrayList<Texture>();
+		for (Integer index : order) {
+			final BufferedImage image = images[index.intValue()];
+			final int width = image.getWidth() + ATLAS_PADDING;
+			final int height = image.getHeight() + ATLAS_PADDING;
+			if (width > ATLAS_SIZE || height > ATLAS_SIZE) {
+				continue;
+			}
+			int p = 0;
+			while (p < packers.size() && !packers.get(p).add(width, height)) {
+				p++;
+			}
+			if (p == packers.size()) {
+				final SkylinePacker packer = new SkylinePacker(ATLAS_SIZE, ATLAS_SIZE);
+				packer.add(width, height);
+				packers.add(packer);
+				pages.add(createTexImage(ATLAS_SIZE, ATLAS_SIZE, true));
+				final Texture page = new Texture(GL11.GL_TEXTURE_2D, createTextureID());
+				page.setTextureWidth(ATLAS_SIZE);
+				page.setTextureHeight(ATLAS_SIZE);
+				page.setWidth(ATLAS_SIZE);
+				page.setHeight(ATLAS_SIZE);
+				pageTextures.add(page);
+			}
+			final int x = packers.get(p).getLastX();
+			final int y = packers.get(p).getLastY();
+			pages.get(p).getGraphics().drawImage(image, x, y, null);
+			this.table.put(names.get(index.intValue()), new Texture(pageTextures.get(p), x, y,
+					image.getWidth(), image.getHeight()));
+		}
+		
+		for (int p = 0; p < pages.size(); p++) {
+			pageTextures.get(p).bind();
+			GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR);
+			GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
+			GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA, ATLAS_SIZE, ATLAS_SIZE, 0,
+					GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, toByteBuffer(pages.get(p)));
+		}
+	}
+
 	/**
 	 * Load a texture into OpenGL from a image reference on
 	 * disk.
@@ -149,7 +336,8 @@ public final class TextureLoader {
 		// bind this texture
 		GL11.glBindTexture(pTarget, textureID);
 
-		final BufferedImage bufferedImage = loadImage("data/textures/" + pResourceName + ".png");
+		final BufferedImage bufferedImage = loadImage(TEXTURE_DIRECTORY + pResourceName
+				+ TEXTURE_EXTENSION);
 		texture.setWidth(bufferedImage.getWidth());
 		texture.setHeight(bufferedImage.getHeight());
 
@@ -198,10 +386,6 @@ public final class TextureLoader {
 	 */
 	private ByteBuffer convertImageData(final BufferedImage pBufferedImage,
 			final Texture pTexture) {
-		ByteBuffer imageBuffer = null;
-		WritableRaster raster;
-		BufferedImage texImage;
-
 		int texWidth = 2;
 		int texHeight = 2;
 
@@ -217,32 +401,60 @@ public final class TextureLoader {
 		pTexture.setTextureHeight(texHeight);
 		pTexture.setTextureWidth(texWidth);
 
+		final BufferedImage texImage = createTexImage(texWidth, texHeight,
+				pBufferedImage.getColorModel().hasAlpha());
+
+		// copy the source image into the produced image
+		texImage.getGraphics().drawImage(pBufferedImage, 0, 0, null);
+
+		return toByteBuffer(texImage);
+	}
+
+	/**
+	 * Creates an empty, transparent image in the format that OpenGL uses.
+	 *
+	 * @param pWidth The width of the image
+	 * @param pHeight The height of the image
+	 * @param pAlpha true for RGBA, false for RGB
+	 * @return The image
+	 */
+	private BufferedImage createTexImage(final int pWidth, final int pHeight,
+			final boolean pAlpha) {
+		WritableRaster raster;
+		BufferedImage texImage;
+
 		// create a raster that can be used by OpenGL as a source
 		// for a texture
-		if (pBufferedImage.getColorModel().hasAlpha()) {
+		if (pAlpha) {
 			raster = Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE,
-					texWidth, texHeight, 4, null);
+					pWidth, pHeight, 4, null);
 			texImage = new BufferedImage(this.glAlphaColorModel, raster, false,
 					new Hashtable<String, Texture>());
 		} else {
 			raster = Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE,
-					texWidth, texHeight, 3, null);
+					pWidth, pHeight, 3, null);
 			texImage = new BufferedImage(this.glColorModel, raster, false,
 					new Hashtable<String, Texture>());
 		}
 
-		// copy the source image into the produced image
 		final Graphics g = texImage.getGraphics();
 		g.setColor(new Color(0f, 0f, 0f, 0f));
-		g.fillRect(0, 0, texWidth, texHeight);
-		g.drawImage(pBufferedImage, 0, 0, null);
+		g.fillRect(0, 0, pWidth, pHeight);
+		return texImage;
+	}
 
-		// build a byte buffer from the temporary image
-		// that be used by OpenGL to produce a texture.
-		final byte[] data = ((DataBufferByte)texImage.getRaster().getDataBuffer())
+	/**
+	 * Copies the pixels of an image that was created by createTexImage() into
+	 * a buffer that can be used by OpenGL to produce a texture.
+	 *
+	 * @param pTexImage The image
+	 * @return A buffer containing the data
+	 */
+	private ByteBuffer toByteBuffer(final BufferedImage pTexImage) {
+		final byte[] data = ((DataBufferByte)pTexImage.getRaster().getDataBuffer())
 				.getData();
 
-		imageBuffer = ByteBuffer.allocateDirect(data.length);
+		final ByteBuffer imageBuffer = ByteBuffer.allocateDirect(data.length);
 		imageBuffer.order(ByteOrder.nativeOrder());
 		imageBuffer.put(data, 0, data.length);
 		imageBuffer.flip();
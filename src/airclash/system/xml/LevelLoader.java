@@ -15,10 +15,13 @@ import org.dom4j.Node;
 import org.dom4j.io.SAXReader;
 
 import airclash.system.exceptions.InvalidResourceException;
+import airclash.world.Broadphase;
 import airclash.world.LevelDescription;
 
 /**
- * This class loads a level from a  file.
+ * This class loads a level from a  file. The broadphase strategy may be
+ * chosen with a <code>broadphase</code> attribute of the svg element, e.g.
+ * <code>broadphase="grid"</code>; the default is the quad space strategy.
  * 
  * @author Andreas Textor
  */
@@ -56,6 +59,10 @@ public class LevelLoader implements IResourceLoader {
 	        	.replaceAll("[a-zA-Z]", "");
 	        
 	        parsePath(path, Integer.parseInt(height));
+	        this.description.setHeight(Integer.parseInt(height));
+	        this.description.setBroadphase(Broadphase.parse(
+	        		document.selectSingleNode("//svg").valueOf("@broadphase"),
+	        		Broadphase.QUADSPACE));
 		} catch (Exception e) {
 			throw new InvalidResourceException("Error while loading level", e);
 		}
@@ -1,6 +1,7 @@
 package airclash.units;
 
 import net.phys2d.raw.Body;
+import airclash.system.gfx.Renderer;
 
 /**
  * Interface that the building module classes must implement.
@@ -24,4 +25,21 @@ public interface IModule extends IUnit {
 	 * @return The body
 	 */
 	Body getBody();
+	
+	/**
+	 * Returns what the module adds to the building it is part of.
+	 * @return The values, which must not change
+	 */
+	ModuleStats getStats();
+	
+	/**
+	 * Draws the module as a part of a building, which is one body. The
+	 * module moves and rotates with that body.
+	 * @param pRenderer The renderer to draw on
+	 * @param pBody The body of the building
+	 * @param pOffsetX The x offset of the center of the module from the
+	 * body, before the body is rotated
+	 * @param pOffsetY The y offset of the center of the module
+	 */
+	void drawPart(Renderer pRenderer, Body pBody, float pOffsetX, float pOffsetY);
 }
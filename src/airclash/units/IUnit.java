@@ -2,6 +2,7 @@ package airclash.units;
 
 import java.util.List;
 
+import net.phys2d.math.ROVector2f;
 import net.phys2d.math.Vector2f;
 import net.phys2d.raw.Body;
 import net.phys2d.raw.Joint;
@@ -15,13 +16,13 @@ import airclash.system.IDrawable;
  */
 public interface IUnit extends IDrawable {
 	/** The vector indicating movement to the left. */
-	Vector2f LEFT = new Vector2f(-1, 0);
+	ROVector2f LEFT = new Vector2f(-1, 0);
 	
 	/** The vector indicating movement to the right. */
-	Vector2f RIGHT = new Vector2f(1, 0);
+	ROVector2f RIGHT = new Vector2f(1, 0);
 	
 	/** The vector indicating movement upwards. */
-	Vector2f UP = new Vector2f(0, 1);
+	ROVector2f UP = new Vector2f(0, 1);
 	
 	/**
 	 * Sets the unit to a specific position. The unit has to make sure
@@ -32,13 +33,16 @@ public interface IUnit extends IDrawable {
 	
 	/**
 	 * Returns the list of all parts of this unit that should be added to
-	 * the world (this means all parts the unit has).
+	 * the world (this means all parts the unit has). This is called often,
+	 * so the unit should return the same list every time instead of creating
+	 * a new one. The list must not be modified by the caller.
 	 * @return The list of parts
 	 */
 	List<Body> getBodyParts();
 	
 	/**
-	 * Returns the list of joints the unit has.
+	 * Returns the list of joints the unit has. The same rules as for
+	 * getBodyParts() apply.
 	 * @return The list of joints
 	 */
 	List<Joint> getJoints();
@@ -51,10 +55,12 @@ public interface IUnit extends IDrawable {
 	
 	/**
 	 * This unit is selected and receives a movement command (e.g. arrow keys).
+	 * This is called every tick while a key is held, so it should not
+	 * allocate memory.
 	 * @param pForce The force vector that indicates the direction. This has to
-	 * be a normalized vector.
+	 * be a normalized vector. It is only read.
 	 */
-	void move(Vector2f pForce);
+	void move(ROVector2f pForce);
 	
 	/**
 	 * This unit is the currently controlled unit.
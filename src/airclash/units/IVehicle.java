@@ -1,6 +1,7 @@
 package airclash.units;
 
 import net.phys2d.raw.Body;
+import airclash.world.Heightfield;
 
 /**
  * This interface determines units that are vehicles (= units that have wheels
@@ -14,4 +15,11 @@ public interface IVehicle extends IUnit {
 	 * @return The array of wheels
 	 */
 	Body[] getWheels();
+	
+	/**
+	 * Sets the floor of the level the vehicle drives on. It is used to find
+	 * out quickly if a wheel is on the ground.
+	 * @param pGround The floor, or null if the vehicle is not in a level
+	 */
+	void setGround(Heightfield pGround);
 }
@@ -0,0 +1,99 @@
+package airclash.units;
+
+/**
+ * What a building module adds to the building it is part of: its mass, the
+ * thrust of its engines, the power it produces and consumes, and the
+ * strength of its shields. The values don't change, so a building can keep
+ * running totals.
+ *
+ * @author Andreas Textor
+ */
+public final class ModuleStats {
+	/** The values of a module that adds nothing. */
+	public static final ModuleStats NONE = new ModuleStats(0, 0, 0, 0, 0, 0);
+
+	/** The mass. */
+	private final float mass;
+
+	/** The horizontal thrust. */
+	private final float thrustX;
+
+	/** The vertical thrust. */
+	private final float thrustY;
+
+	/** The power produced. */
+	private final float powerProduction;
+
+	/** The power consumed. */
+	private final float powerConsumption;
+
+	/** The shield strength. */
+	private final float shield;
+
+	/**
+	 * Constructor.
+	 * @param pMass The mass
+	 * @param pThrustX The thrust the module gives when moving sideways
+	 * @param pThrustY The thrust the module gives when moving up
+	 * @param pPowerProduction The power the module produces
+	 * @param pPowerConsumption The power the module consumes
+	 * @param pShield The shield strength
+	 */
+	public ModuleStats(final float pMass, final float pThrustX, final float pThrustY,
+			final float pPowerProduction, final float pPowerConsumption, final float pShield) {
+		this.mass = pMass;
+		this.thrustX = pThrustX;
+		this.thrustY = pThrustY;
+		this.powerProduction = pPowerProduction;
+		this.powerConsumption = pPowerConsumption;
+		this.shield = pShield;
+	}
+
+	/**
+	 * Returns the mass.
+	 * @return The mass
+	 */
+	public float getMass() {
+		return this.mass;
+	}
+
+	/**
+	 * Returns the thrust the module gives when moving sideways.
+	 * @return The horizontal thrust
+	 */
+	public float getThrustX() {
+		return this.thrustX;
+	}
+
+	/**
+	 * Returns the thrust the module gives when moving up.
+	 * @return The vertical thrust
+	 */
+	public float getThrustY() {
+		return this.thrustY;
+	}
+
+	/**
+	 * Returns the power the module produces.
+	 * @return The power production
+	 */
+	public float getPowerProduction() {
+		return this.powerProduction;
+	}
+
+	/**
+	 * Returns the power the module consumes.
+	 * @return The power consumption
+	 */
+	public float getPowerConsumption() {
+		return this.powerConsumption;
+	}
+
+	/**
+	 * Returns the shield strength.
+	 * @return The shield strength
+	 */
+	public float getShield() {
+		return this.shield;
+	}
+}
@@ -0,0 +1,171 @@
+package airclash.units.buildings;
+
+import java.util.Locale;
+
+import airclash.units.IModule;
+import airclash.units.ModuleStats;
+
+/**
+ * The totals of the ModuleStats of all modules of a building. They are
+ * updated when a module is added or removed, so reading them costs nothing,
+ * no matter how large the building is. The sums are kept as doubles, so
+ * that adding and removing modules many times doesn't let them drift.
+ *
+ * @author Andreas Textor
+ */
+public class BuildingStats {
+	/** The number of modules. */
+	private int modules = 0;
+
+	/** The total mass. */
+	private double mass = 0;
+
+	/** The total horizontal thrust. */
+	private double thrustX = 0;
+
+	/** The total vertical thrust. */
+	private double thrustY = 0;
+
+	/** The total power production. */
+	private double powerProduction = 0;
+
+	/** The total power consumption. */
+	private double powerConsumption = 0;
+
+	/** The total shield strength. */
+	private double shield = 0;
+
+	/**
+	 * Adds a module to the totals.
+	 * @param pModule The module
+	 */
+	void add(final IModule pModule) {
+		change(pModule.getStats(), 1);
+	}
+
+	/**
+	 * Removes a module from the totals.
+	 * @param pModule The module
+	 */
+	void remove(final IModule pModule) {
+		change(pModule.getStats(), -1);
+	}
+
+	/**
+	 * Adds or subtracts the values of a module.
+	 * @param pStats The values of the module
+	 * @param pSign 1 to add, -1 to subtract
+	 */
+	private void change(final ModuleStats pStats, final int pSign) {
+		this.modules += pSign;
+		this.mass += pSign * pStats.getMass();
+		this.thrustX += pSign * pStats.getThrustX();
+		this.thrustY += pSign * pStats.getThrustY();
+		this.powerProduction += pSign * pStats.getPowerProduction();
+		this.powerConsumption += pSign * pStats.getPowerConsumption();
+		this.shield += pSign * pStats.getShield();
+	}
+
+	/**
+	 * Returns a copy of the totals, e.g. to hand them to another thread.
+	 * @return The copy
+	 */
+	public BuildingStats copy() {
+		final BuildingStats result = new BuildingStats();
+		result.modules = this.modules;
+		result.mass = this.mass;
+		result.thrustX = this.thrustX;
+		result.thrustY = this.thrustY;
+		result.powerProduction = this.powerProduction;
+		result.powerConsumption = this.powerConsumption;
+		result.shield = this.shield;
+		return result;
+	}
+
+	/**
+	 * Returns the number of modules.
+	 * @return The module count
+	 */
+	public int getModules() {
+		return this.modules;
+	}
+
+	/**
+	 * Returns the total mass.
+	 * @return The mass
+	 */
+	public float getMass() {
+		return (float)this.mass;
+	}
+
+	/**
+	 * Returns the total horizontal thrust.
+	 * @return The thrust
+	 */
+	public float getThrustX() {
+		return (float)this.thrustX;
+	}
+
+	/**
+	 * Returns the total vertical thrust.
+	 * @return The thrust
+	 */
+	public float getThrustY() {
+		return (float)this.thrustY;
+	}
+
+	/**
+	 * Returns the total power production.
+	 * @return The power production
+	 */
+	public float getPowerProduction() {
+		return (float)this.powerProduction;
+	}
+
+	/**
+	 * Returns the total power consumption.
+	 * @return The power consumption
+	 */
+	public float getPowerConsumption() {
+		return (float)this.powerConsumption;
+	}
+
+	/**
+	 * Returns the power that is left over, negative if more power is
+	 * consumed than produced.
+	 * @return The power balance
+	 */
+	public float getPowerBalance() {
+		return (float)(this.powerProduction - this.powerConsumption);
+	}
+
+	/**
+	 * Returns the part of the consumed power that is produced, which is the
+	 * part of their full strength the modules work with.
+	 * @return A value from 0 to 1
+	 */
+	public float getPowerRatio() {
+		if (this.powerConsumption <= this.powerProduction) {
+			return 1;
+		}
+		return (float)(Math.max(0, this.powerProduction) / this.powerConsumption);
+	}
+
+	/**
+	 * Returns the total shield strength.
+	 * @return The shield strength
+	 */
+	public float getShield() {
+		return (float)this.shield;
+	}
+
+	/**
+	 * Formats the totals for display.
+	 * @return The text
+	 */
+	public String format() {
+		return String.format(Locale.US, "Modules: %d  Mass: %.0f%nThrust: %.0f / %.0f%n"
+				+ "Power: %.0f / %.0f  Shield: %.0f", this.modules, this.mass, this.thrustX,
+				this.thrustY, this.powerProduction, this.powerConsumption, this.shield);
+	}
+}
@@ -0,0 +1,143 @@
+package airclash.units.buildings;
+
+import java.util.Arrays;
+
+/**
+ * Maps the cells of a building to their index in a Compound. Like the
+ * ModuleGrid, it is a hash map from the packed coordinates of a cell with
+ * open addressing in plain arrays, so a lookup neither allocates nor boxes
+ * the index.
+ *
+ * @author Andreas Textor
+ */
+class CellIndex {
+	/** The initial number of slots, a power of two. */
+	private static final int INITIAL_CAPACITY = 32;
+
+	/** The packed coordinates of the cell in each slot, ModuleGrid.EMPTY if the slot is free. */
+	private long[] keys;
+
+	/** The index of the cell in each slot. */
+	private int[] values;
+
+	/** The mask that turns a hash into a slot index. */
+	private int mask;
+
+	/** The number of cells. */
+	private int size = 0;
+
+	/**
+	 * Constructor.
+	 */
+	CellIndex() {
+		allocate(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Returns the index of a cell.
+	 * @param pX The column
+	 * @param pY The row
+	 * @return The index, or -1 if the cell is not in the map
+	 */
+	int get(final int pX, final int pY) {
+		final long key = ModuleGrid.key(pX, pY);
+		for (int i = slot(key);; i = (i + 1) & this.mask) {
+			if (this.keys[i] == key) {
+				return this.values[i];
+			}
+			if (this.keys[i] == ModuleGrid.EMPTY) {
+				return -1;
+			}
+		}
+	}
+
+	/**
+	 * Sets the index of a cell, replacing the index it had.
+	 * @param pX The column
+	 * @param pY The row
+	 * @param pIndex The index
+	 */
+	void put(final int pX, final int pY, final int pIndex) {
+		// At most half of the slots are used, so the probes stay short
+		if ((this.size + 1) * 2 > this.keys.length) {
+			final long[] oldKeys = this.keys;
+			final int[] oldValues = this.values;
+			allocate(oldKeys.length * 2);
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] != ModuleGrid.EMPTY) {
+					insert(oldKeys[i], oldValues[i]);
+				}
+			}
+		}
+		insert(ModuleGrid.key(pX, pY), pIndex);
+	}
+
+	/**
+	 * Removes a cell.
+	 * @param pX The column
+	 * @param pY The row
+	 */
+	void remove(final int pX, final int pY) {
+		final long key = ModuleGrid.key(pX, pY);
+		int i = slot(key);
+		while (this.keys[i] != key) {
+			if (this.keys[i] == ModuleGrid.EMPTY) {
+				return;
+			}
+			i = (i + 1) & this.mask;
+		}
+		this.size--;
+
+		// The following entries of the probe sequence are moved back into
+		// the gap if their own slot doesn't lie after it
+		int gap = i;
+		for (int j = (i + 1) & this.mask; this.keys[j] != ModuleGrid.EMPTY;
+				j = (j + 1) & this.mask) {
+			final int home = slot(this.keys[j]);
+			if (((j - home) & this.mask) >= ((j - gap) & this.mask)) {
+				this.keys[gap] = this.keys[j];
+				this.values[gap] = this.values[j];
+				gap = j;
+			}
+		}
+		this.keys[gap] = ModuleGrid.EMPTY;
+	}
+
+	/**
+	 * Puts a key into the table, which must have a free slot.
+	 * @param pKey The key
+	 * @param pIndex The index of the cell
+	 */
+	private void insert(final long pKey, final int pIndex) {
+		int i = slot(pKey);
+		while (this.keys[i] != ModuleGrid.EMPTY && this.keys[i] != pKey) {
+			i = (i + 1) & this.mask;
+		}
+		if (this.keys[i] == ModuleGrid.EMPTY) {
+			this.keys[i] = pKey;
+			this.size++;
+		}
+		this.values[i] = pIndex;
+	}
+
+	/**
+	 * Creates empty arrays.
+	 * @param pCapacity The number of slots, a power of two
+	 */
+	private void allocate(final int pCapacity) {
+		this.keys = new long[pCapacity];
+		this.values = new int[pCapacity];
+		this.mask = pCapacity - 1;
+		this.size = 0;
+		Arrays.fill(this.keys, ModuleGrid.EMPTY);
+	}
+
+	/**
+	 * Returns the first slot of a key.
+	 * @param pKey The key
+	 * @return The slot index
+	 */
+	private int slot(final long pKey) {
+		return ModuleGrid.hash(pKey) & this.mask;
+	}
+}
@@ -0,0 +1,329 @@
+package airclash.units.buildings;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import net.phys2d.math.ROVector2f;
+import net.phys2d.math.Vector2f;
+import net.phys2d.raw.shapes.Box;
+import net.phys2d.raw.shapes.DynamicShape;
+import net.phys2d.raw.shapes.Polygon;
+
+/**
+ * The cells of a building and the rigid body they form together. Every cell
+ * is a square of GRIDSIZE pixels with the same mass; the cells are given in
+ * grid coordinates relative to the core cell at 0, 0.
+ *
+ * The mass, the center of mass and the moment of inertia are kept as sums
+ * over the cells, so adding or removing a cell costs the same for a small
+ * and a large building. The shape is rebuilt from the cells: a box if the
+ * cells fill a rectangle, otherwise a polygon along the outline. Empty
+ * cells that are enclosed by the building are part of the polygon. The
+ * cells must be connected by their edges.
+ *
+ * @author Andreas Textor
+ */
+class Compound {
+	/** The mass of one cell. */
+	static final float CELL_MASS = 1;
+
+	/** The edge length of a cell. */
+	private static final float SIZE = Module.GRIDSIZE;
+
+	/** The initial capacity of the cell arrays. */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * A polygon with a given moment of inertia. phys2d derives the inertia
+	 * of a body from the surface factor of its shape, which is only an
+	 * estimate for polygons.
+	 * @author Andreas Textor
+	 */
+	private static final class CellPolygon extends Polygon {
+		/** The surface factor, 12 * inertia / mass. */
+		private final float surfaceFactor;
+
+		/**
+		 * Constructor.
+		 * @param pVertices The vertices in counterclockwise order
+		 * @param pSurfaceFactor The surface factor
+		 */
+		private CellPolygon(final ROVector2f[] pVertices, final float pSurfaceFactor) {
+			super(pVertices);
+			this.surfaceFactor = pSurfaceFactor;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public float getSurfaceFactor() {
+			return this.surfaceFactor;
+		}
+	}
+
+	/** The column of each cell; only the first count elements are used. */
+	private int[] cellX = new int[INITIAL_CAPACITY];
+
+	/** The row of each cell. */
+	private int[] cellY = new int[INITIAL_CAPACITY];
+
+	/** The number of cells. */
+	private int count = 0;
+
+	/** The index of each cell in the arrays. */
+	private final CellIndex index = new CellIndex();
+
+	/** The sum of the columns of all cells. */
+	private long sumX = 0;
+
+	/** The sum of the rows of all cells. */
+	private long sumY = 0;
+
+	/** The sum of the squared distances of all cells from the core cell. */
+	private long sumSquares = 0;
+
+	/**
+	 * Adds a cell.
+	 * @param pX The column
+	 * @param pY The row
+	 */
+	void add(final int pX, final int pY) {
+		if (this.count == this.cellX.length) {
+			final int[] x = new int[this.count * 2];
+			final int[] y = new int[this.count * 2];
+			System.arraycopy(this.cellX, 0, x, 0, this.count);
+			System.arraycopy(this.cellY, 0, y, 0, this.count);
+			this.cellX = x;
+			this.cellY = y;
+		}
+		this.cellX[this.count] = pX;
+		this.cellY[this.count] = pY;
+		this.index.put(pX, pY, this.count);
+		this.count++;
+		this.sumX += pX;
+		this.sumY += pY;
+		this.sumSquares += (long)pX * pX + (long)pY * pY;
+	}
+
+	/**
+	 * Removes a cell. The last cell takes its place.
+	 * @param pX The column
+	 * @param pY The row
+	 * @return true if the cell was found
+	 */
+	boolean remove(final int pX, final int pY) {
+		final int i = this.index.get(pX, pY);
+		if (i < 0) {
+			return false;
+		}
+		removeAt(i);
+		return true;
+	}
+
+	/**
+	 * Removes the cell at an index. The last cell takes its place, so the
+	 * cells can be removed while going through them backwards.
+	 * @param pIndex The index of the cell (0 - size() - 1)
+	 */
+	void removeAt(final int pIndex) {
+		final int x = this.cellX[pIndex];
+		final int y = this.cellY[pIndex];
+		this.count--;
+		this.cellX[pIndex] = this.cellX[this.count];
+		this.cellY[pIndex] = this.cellY[this.count];
+		this.index.remove(x, y);
+		if (pIndex < this.count) {
+			this.index.put(this.cellX[pIndex], this.cellY[pIndex], pIndex);
+		}
+		this.sumX -= x;
+		this.sumY -= y;
+		this.sumSquares -= (long)x * x + (long)y * y;
+	}
+
+	/**
+	 * Returns the number of cells.
+	 * @return The cell count
+	 */
+	int size() {
+		return this.count;
+	}
+
+	/**
+	 * Returns the column of a cell.
+	 * @param pIndex The index of the cell (0 - size() - 1)
+	 * @return The column
+	 */
+	int getX(final int pIndex) {
+		return this.cellX[pIndex];
+	}
+
+	/**
+	 * Returns the row of a cell.
+	 * @param pIndex The index of the cell (0 - size() - 1)
+	 * @return The row
+	 */
+	int getY(final int pIndex) {
+		return this.cellY[pIndex];
+	}
+
+	/**
+	 * Returns the mass of all cells.
+	 * @return The mass
+	 */
+	float getMass() {
+		return this.count * CELL_MASS;
+	}
+
+	/**
+	 * Returns the x coordinate of the center of mass, relative to the
+	 * center of the core cell.
+	 * @return The x coordinate in pixels
+	 */
+	float getCenterX() {
+		return this.count == 0 ? 0 : SIZE * this.sumX / this.count;
+	}
+
+	/**
+	 * Returns the y coordinate of the center of mass, relative to the
+	 * center of the core cell.
+	 * @return The y coordinate in pixels
+	 */
+	float getCenterY() {
+		return this.count == 0 ? 0 : SIZE * this.sumY / this.count;
+	}
+
+	/**
+	 * Returns the moment of inertia around the center of mass: the inertia
+	 * of each cell around its own center plus its mass times its squared
+	 * distance from the center of mass.
+	 * @return The moment of inertia
+	 */
+	float getInertia() {
+		if (this.count == 0) {
+			return 0;
+		}
+		final double n = this.count;
+		final double spread = this.sumSquares - (this.sumX * (double)this.sumX
+				+ this.sumY * (double)this.sumY) / n;
+		return (float)(CELL_MASS * SIZE * SIZE * (n / 6 + spread));
+	}
+
+	/**
+	 * Creates the shape of the cells, centered on the center of mass. The
+	 * surface factor of the shape matches getInertia() for getMass().
+	 * @return The shape
+	 */
+	DynamicShape createShape() {
+		int minX = Integer.MAX_VALUE;
+		int minY = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE;
+		int maxY = Integer.MIN_VALUE;
+		for (int i = 0; i < this.count; i++) {
+			minX = Math.min(minX, this.cellX[i]);
+			minY = Math.min(minY, this.cellY[i]);
+			maxX = Math.max(maxX, this.cellX[i]);
+			maxY = Math.max(maxY, this.cellY[i]);
+		}
+		final int width = maxX - minX + 1;
+		final int height = maxY - minY + 1;
+		if (width * height == this.count) {
+			return new Box(width * SIZE, height * SIZE);
+		}
+		return new CellPolygon(outline(minX, minY, width, height),
+				12 * getInertia() / getMass());
+	}
+
+	/**
+	 * Traces the outline of the cells counterclockwise. Enclosed empty
+	 * cells are filled first, so the outline is a single loop.
+	 * @param pMinX The first column of the cells
+	 * @param pMinY The first row of the cells
+	 * @param pWidth The number of columns
+	 * @param pHeight The number of rows
+	 * @return The corners of the outline, relative to the center of mass
+	 */
+	private Vector2f[] outline(final int pMinX, final int pMinY, final int pWidth,
+			final int pHeight) {
+		// The cells with a border of empty cells, which are all outside
+		final int w = pWidth + 2;
+		final int h = pHeight + 2;
+		final boolean[] outside = new boolean[w * h];
+		final boolean[] solid = new boolean[w * h];
+		for (int i = 0; i < this.count; i++) {
+			solid[(this.cellY[i] - pMinY + 1) * w + this.cellX[i] - pMinX + 1] = true;
+		}
+		final int[] stack = new int[w * h];
+		int top = 0;
+		stack[top++] = 0;
+		outside[0] = true;
+		while (top > 0) {
+			final int c = stack[--top];
+			final int x = c % w;
+			final int y = c / w;
+			final int[] neighbours = {x > 0 ? c - 1 : -1, x < w - 1 ? c + 1 : -1,
+				y > 0 ? c - w : -1, y < h - 1 ? c + w : -1};
+			for (int n : neighbours) {
+				if (n >= 0 && !outside[n] && !solid[n]) {
+					outside[n] = true;
+					stack[top++] = n;
+				}
+			}
+		}
+
+		// Every boundary corner has exactly one outgoing edge, because the
+		// filled cells are connected and have no holes
+		final Map<Integer, Integer> next = new HashMap<Integer, Integer>();
+		final int corners = w + 1;
+		int start = -1;
+		for (int y = 1; y < h - 1; y++) {
+			for (int x = 1; x < w - 1; x++) {
+				if (outside[y * w + x]) {
+					continue;
+				}
+				final int bottomLeft = y * corners + x;
+				final int bottomRight = bottomLeft + 1;
+				final int topLeft = bottomLeft + corners;
+				final int topRight = topLeft + 1;
+				if (outside[(y - 1) * w + x]) {
+					next.put(Integer.valueOf(bottomLeft), Integer.valueOf(bottomRight));
+				}
+				if (outside[y * w + x + 1]) {
+					next.put(Integer.valueOf(bottomRight), Integer.valueOf(topRight));
+				}
+				if (outside[(y + 1) * w + x]) {
+					next.put(Integer.valueOf(topRight), Integer.valueOf(topLeft));
+				}
+				if (outside[y * w + x - 1]) {
+					next.put(Integer.valueOf(topLeft), Integer.valueOf(bottomLeft));
+				}
+				if (start < 0) {
+					start = bottomLeft;
+				}
+			}
+		}
+
+		// The corner of cell x, y in the padded grid is at cell x - 1 + pMinX,
+		// whose center is at that column times SIZE
+		final float offsetX = (pMinX - 1.5f) * SIZE - getCenterX();
+		final float offsetY = (pMinY - 1.5f) * SIZE - getCenterY();
+		final Vector2f[] points = new Vector2f[next.size()];
+		int n = 0;
+		int corner = start;
+		int previous = start;
+		do {
+			final int following = next.get(Integer.valueOf(corner)).intValue();
+			// Corners on a straight edge are left out
+			final boolean straight = following - corner == corner - previous;
+			if (!straight || corner == start) {
+				points[n++] = new Vector2f(offsetX + (corner % corners) * SIZE,
+						offsetY + (corner / corners) * SIZE);
+			}
+			previous = corner;
+			corner = following;
+		} while (corner != start);
+		final Vector2f[] result = new Vector2f[n];
+		System.arraycopy(points, 0, result, 0, n);
+		return result;
+	}
+}
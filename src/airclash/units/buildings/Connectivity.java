@@ -0,0 +1,250 @@
+package airclash.units.buildings;
+
+import java.util.Arrays;
+
+/**
+ * Keeps track of which cells of a building are connected by their edges,
+ * as a union-find structure over the cells. Adding a cell joins it with its
+ * neighbours, which costs almost nothing, so the components are always up
+ * to date while a building grows.
+ *
+ * Removing a cell can split a component, which a union-find structure can't
+ * undo. Removed cells are only marked, and the structure is rebuilt from the
+ * remaining cells when it is queried the next time, so any number of
+ * removals costs one rebuild.
+ *
+ * @author Andreas Textor
+ */
+class Connectivity {
+	/** The initial number of cells. */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/** The packed coordinates of the cell in each slot, EMPTY if the slot is free. */
+	private long[] keys;
+
+	/** The id of the cell in each slot. */
+	private int[] slotIds;
+
+	/** The mask that turns a hash into a slot index. */
+	private int mask;
+
+	/** The parent of each cell, a cell is the root of its component if it is its own parent. */
+	private int[] parent = new int[INITIAL_CAPACITY];
+
+	/** The number of cells in the component of each root. */
+	private int[] size = new int[INITIAL_CAPACITY];
+
+	/** true for each cell that was removed since the last rebuild. */
+	private boolean[] removed = new boolean[INITIAL_CAPACITY];
+
+	/** The number of ids that were given out since the last rebuild. */
+	private int count = 0;
+
+	/** true if cells were removed since the last rebuild. */
+	private boolean dirty = false;
+
+	/**
+	 * Constructor.
+	 */
+	Connectivity() {
+		allocate(INITIAL_CAPACITY * 2);
+	}
+
+	/**
+	 * Adds a cell and joins it with the cells next to it.
+	 * @param pX The column
+	 * @param pY The row
+	 */
+	void add(final int pX, final int pY) {
+		int id = idOf(pX, pY);
+		if (id >= 0) {
+			// The cell was removed before; its old unions are left over, but
+			// the structure is rebuilt before the next query anyway
+			this.removed[id] = false;
+		} else {
+			id = newId(pX, pY);
+		}
+		join(id, idOf(pX - 1, pY));
+		join(id, idOf(pX + 1, pY));
+		join(id, idOf(pX, pY - 1));
+		join(id, idOf(pX, pY + 1));
+	}
+
+	/**
+	 * Removes a cell. The components are not valid until the next rebuild.
+	 * @param pX The column
+	 * @param pY The row
+	 */
+	void remove(final int pX, final int pY) {
+		final int id = idOf(pX, pY);
+		if (id >= 0 && !this.removed[id]) {
+			this.removed[id] = true;
+			this.dirty = true;
+		}
+	}
+
+	/**
+	 * Checks if cells were removed since the last rebuild.
+	 * @return true if rebuild() must be called before the next query
+	 */
+	boolean isDirty() {
+		return this.dirty;
+	}
+
+	/**
+	 * Builds the structure again from the cells of a building.
+	 * @param pCells The cells
+	 */
+	void rebuild(final Compound pCells) {
+		int slots = INITIAL_CAPACITY * 2;
+		while (slots < pCells.size() * 2) {
+			slots <<= 1;
+		}
+		allocate(slots);
+		this.count = 0;
+		this.dirty = false;
+		for (int i = 0; i < pCells.size(); i++) {
+			add(pCells.getX(i), pCells.getY(i));
+		}
+	}
+
+	/**
+	 * Returns the component of a cell. Two cells are connected if their
+	 * components are the same. The components are numbered below
+	 * getIdCount(), and they change with every rebuild.
+	 * @param pX The column
+	 * @param pY The row
+	 * @return The component, or -1 if there is no such cell
+	 */
+	int componentOf(final int pX, final int pY) {
+		final int id = idOf(pX, pY);
+		return id < 0 || this.removed[id] ? -1 : root(id);
+	}
+
+	/**
+	 * Returns the number of cell ids, which is an upper bound for the
+	 * components.
+	 * @return The id count
+	 */
+	int getIdCount() {
+		return this.count;
+	}
+
+	/**
+	 * Joins the components of two cells.
+	 * @param pA The id of the first cell
+	 * @param pB The id of the second cell, or -1 for none
+	 */
+	private void join(final int pA, final int pB) {
+		if (pB < 0 || this.removed[pB]) {
+			return;
+		}
+		int a = root(pA);
+		int b = root(pB);
+		if (a == b) {
+			return;
+		}
+		// The smaller component is hung below the larger one
+		if (this.size[a] < this.size[b]) {
+			final int t = a;
+			a = b;
+			b = t;
+		}
+		this.parent[b] = a;
+		this.size[a] += this.size[b];
+	}
+
+	/**
+	 * Returns the root of the component of a cell. The path is halved on the
+	 * way, so later queries are faster.
+	 * @param pId The id of the cell
+	 * @return The id of the root
+	 */
+	private int root(final int pId) {
+		int id = pId;
+		while (this.parent[id] != id) {
+			this.parent[id] = this.parent[this.parent[id]];
+			id = this.parent[id];
+		}
+		return id;
+	}
+
+	/**
+	 * Gives a new cell an id.
+	 * @param pX The column
+	 * @param pY The row
+	 * @return The id
+	 */
+	private int newId(final int pX, final int pY) {
+		if (this.count == this.parent.length) {
+			final int[] p = new int[this.count * 2];
+			final int[] s = new int[this.count * 2];
+			final boolean[] r = new boolean[this.count * 2];
+			System.arraycopy(this.parent, 0, p, 0, this.count);
+			System.arraycopy(this.size, 0, s, 0, this.count);
+			System.arraycopy(this.removed, 0, r, 0, this.count);
+			this.parent = p;
+			this.size = s;
+			this.removed = r;
+		}
+		if ((this.count + 1) * 2 > this.keys.length) {
+			final long[] oldKeys = this.keys;
+			final int[] oldIds = this.slotIds;
+			allocate(oldKeys.length * 2);
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] != ModuleGrid.EMPTY) {
+					insert(oldKeys[i], oldIds[i]);
+				}
+			}
+		}
+		final int id = this.count++;
+		this.parent[id] = id;
+		this.size[id] = 1;
+		this.removed[id] = false;
+		insert(ModuleGrid.key(pX, pY), id);
+		return id;
+	}
+
+	/**
+	 * Returns the id of a cell.
+	 * @param pX The column
+	 * @param pY The row
+	 * @return The id, or -1 if the cell was never added since the last rebuild
+	 */
+	private int idOf(final int pX, final int pY) {
+		final long key = ModuleGrid.key(pX, pY);
+		for (int i = ModuleGrid.hash(key) & this.mask;; i = (i + 1) & this.mask) {
+			if (this.keys[i] == key) {
+				return this.slotIds[i];
+			}
+			if (this.keys[i] == ModuleGrid.EMPTY) {
+				return -1;
+			}
+		}
+	}
+
+	/**
+	 * Puts a key that is not in the table yet into a free slot.
+	 * @param pKey The key
+	 * @param pId The id of the cell
+	 */
+	private void insert(final long pKey, final int pId) {
+		int i = ModuleGrid.hash(pKey) & this.mask;
+		while (this.keys[i] != ModuleGrid.EMPTY) {
+			i = (i + 1) & this.mask;
+		}
+		this.keys[i] = pKey;
+		this.slotIds[i] = pId;
+	}
+
+	/**
+	 * Creates an empty table.
+	 * @param pCapacity The number of slots, a power of two
+	 */
+	private void allocate(final int pCapacity) {
+		this.keys = new long[pCapacity];
+		this.slotIds = new int[pCapacity];
+		this.mask = pCapacity - 1;
+		Arrays.fill(this.keys, ModuleGrid.EMPTY);
+	}
+}
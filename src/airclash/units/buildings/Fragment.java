@@ -0,0 +1,70 @@
+package airclash.units.buildings;
+
+import net.phys2d.math.ROVector2f;
+import net.phys2d.math.Vector2f;
+import net.phys2d.raw.Body;
+import airclash.units.ModuleStats;
+import airclash.world.CollisionFilter;
+
+/**
+ * A part of a building that lost its connection to the HQ element and
+ * falls off as a body of its own. Its cells keep the coordinates they had
+ * in the building.
+ * @author Andreas Textor
+ */
+public class Fragment extends Structure {
+	/**
+	 * Constructor. The fragment has its own collision group, so it collides
+	 * with the building it came from.
+	 */
+	Fragment() {
+		super(CollisionFilter.forModule(CollisionFilter.newGroup()));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void configure(final Body pBody) {
+	}
+
+	/**
+	 * Returns nothing, a fragment can't be built into another building. The
+	 * totals of its modules are in getBuildingStats().
+	 * @return ModuleStats.NONE
+	 */
+	public ModuleStats getStats() {
+		return ModuleStats.NONE;
+	}
+
+	/**
+	 * Returns 1, a fragment can't be built into another building.
+	 * @return The width
+	 */
+	public int getGridWidth() {
+		return 1;
+	}
+
+	/**
+	 * Returns 1, a fragment can't be built into another building.
+	 * @return The height
+	 */
+	public int getGridHeight() {
+		return 1;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void addForce(final Vector2f pForce) {
+		this.body.setIsResting(false);
+		this.body.addForce(pForce);
+	}
+
+	/**
+	 * Does nothing, a fragment has no engines.
+	 * @param pForce The force vector
+	 */
+	public void move(final ROVector2f pForce) {
+	}
+}
@@ -1,153 +1,299 @@
 package airclash.units.buildings;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+import net.phys2d.math.ROVector2f;
 import net.phys2d.math.Vector2f;
 import net.phys2d.raw.Body;
-import net.phys2d.raw.FixedJoint;
-import net.phys2d.raw.Joint;
-import net.phys2d.raw.shapes.Box;
 import airclash.system.exceptions.InvalidResourceException;
 import airclash.system.gfx.Gui;
-import airclash.system.gfx.Renderer;
 import airclash.system.gfx.TextureLoader;
 import airclash.units.IModule;
+import airclash.units.ModuleStats;
+import airclash.world.CollisionFilter;
 
 /**
  * The Headquarters (HQ) is the main building, e.g. the one where you can build
- * stuff.
+ * stuff. The HQ element and all modules that were built on it form a single
+ * rigid body, so the machine has no joints that could give way. The HQ
+ * element is the origin cell of the structure.
+ *
+ * The HQ keeps track of which modules are connected to the HQ element. When
+ * modules are removed, the parts that lost their connection are split off
+ * as fragments by detachFragments(), which also updates the body.
  * @author Andreas Textor
  */
-public class HQ extends Module {
+public class HQ extends Structure {
 	/**
-	 * The size of a module grid: MAXDIMENSION * MAXDIMENSION bodies are allowed
-	 * as part of the flying machine. This must be an odd number.
+	 * What the HQ element and every HQModule add to a machine. Their engines
+	 * push each cell with a force of 100 and they produce more power than
+	 * they need.
 	 */
-	private static final int MAXDIMENSION = 9;
+	static final ModuleStats STATS =
+		new ModuleStats(Compound.CELL_MASS, 100, 100, 10, 4, 0);
 	
-	/** The gui object, so that we can hide and show dialogs. */
+	/**
+	 * The gui object, so that we can hide and show dialogs. This is null if
+	 * the game runs without display.
+	 */
 	private Gui gui;
 	
-	/** The list of body parts of the flying machine. */
-	private List<Body> parts = new LinkedList<Body>();
+	/** The components of the cells. */
+	private final Connectivity connectivity = new Connectivity();
 	
-	/** The list of modules of the flying machine. */
-	private List<IModule> modules = new LinkedList<IModule>();
+	/** true if modules were removed since the body was last updated. */
+	private boolean changed = false;
 	
-	/** The list of joints. */
-	private List<Joint> joints = new LinkedList<Joint>();
-	
-	/**
-	 * The grid of modules of this machine: The center element of the array
-	 * marks this HQ element, the elements around are used, among other things,
-	 * to determine where it is possible to build a module.
-	 */
-	private IModule[][] grid = new IModule[MAXDIMENSION + 1][MAXDIMENSION + 1];
+	/** The force that is applied when moving, reused on every move. */
+	private final Vector2f moveForce = new Vector2f();
 	
 	/**
 	 * Constructor.
-	 * @param pGui The gui object
+	 * @param pGui The gui object, may be null
 	 * @throws InvalidResourceException Thrown, when a texture can't be loaded.
 	 */
 	public HQ(final Gui pGui) throws InvalidResourceException {
+		super(CollisionFilter.forModule(CollisionFilter.newGroup()));
 		this.texture = TextureLoader.getInstance().getTexture("hq");
 		this.gui = pGui;
-		this.body = new Body("Body", new Box(GRIDSIZE, GRIDSIZE), 1);
-		this.body.setMaxVelocity(30, 80);
-		this.body.setRotatable(false);
-		this.parts.add(this.body);
-		this.modules.add(this);
+		place(this, 0, 0);
+		this.connectivity.add(0, 0);
+		rebuildBody(null, 0, 0);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	public ModuleStats getStats() {
+		return STATS;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void configure(final Body pBody) {
+		pBody.setMaxVelocity(30, 80);
+		pBody.setRotatable(false);
 	}
 	
 	/**
 	 * Adds a module to this machine. The coordinates for this method are grid
 	 * coordinates relative to the HQ element, e.g. 0, 1 would mean the place
-	 * just above the HQ element.
+	 * just above the HQ element. A module that is larger than one cell covers
+	 * the cells to the right of and above this place. All of them must be
+	 * free, and the module must share an edge with a module of the machine.
+	 * The machine gets a new body, which the level has to be told about, see
+	 * Level.replaceBody(). Nothing can be added while modules were removed
+	 * and detachFragments() was not called yet, as the body can only be
+	 * rebuilt from connected cells.
 	 * @param pModule The module to add.
 	 * @param pX The x coordinate.
 	 * @param pY The y coordinate.
 	 * @return true if the module was added, false if not
 	 */
 	public boolean addModule(final IModule pModule, final int pX, final int pY) {
-		final int md2 = MAXDIMENSION / 2;
-		if (pX > md2 || pY > md2 || pX < -md2 || pY < -md2) {
+		if (this.changed) {
 			return false;
 		}
-		if (this.grid[pX + md2][pY + md2] == null) {
-			this.modules.add(pModule);
-			this.body.addExcludedBody(pModule.getBody());
-			pModule.getBody().addExcludedBody(this.body);
-			pModule.setPosition(new Vector2f(this.body.getPosition().getX() + (GRIDSIZE * pX),
-					this.body.getPosition().getY() + (GRIDSIZE * pY)));
-
-			this.parts.add(pModule.getBody());
-			final Joint j = new FixedJoint(this.body, pModule.getBody());
-			this.joints.add(j);
-			this.grid[pX + md2][pY + md2] = pModule;
-			
-			return true;
+		final int width = pModule.getGridWidth();
+		final int height = pModule.getGridHeight();
+		for (int y = pY; y < pY + height; y++) {
+			for (int x = pX; x < pX + width; x++) {
+				if (this.grid.get(x, y) != null) {
+					return false;
+				}
+			}
 		}
-		return false;
+		if (!touches(pX, pY, width, height)) {
+			return false;
+		}
+		place(pModule, pX, pY);
+		for (int y = pY; y < pY + height; y++) {
+			for (int x = pX; x < pX + width; x++) {
+				this.connectivity.add(x, y);
+			}
+		}
+		rebuildBody(this.body, getCenterX(), getCenterY());
+		publishStats();
+		return true;
 	}
-
+	
 	/**
-	 * {@inheritDoc}
+	 * Removes a module from this machine, e.g. because it was destroyed. The
+	 * HQ element itself can't be removed. The body is not updated until
+	 * detachFragments() is called, so that many modules can be removed at
+	 * the cost of one update.
+	 * @param pX The x coordinate of any cell of the module, relative to the
+	 * HQ element.
+	 * @param pY The y coordinate.
+	 * @return The removed module, or null if nothing was removed
 	 */
-	public int getGridWidth() {
-		return 1;
+	public IModule removeModule(final int pX, final int pY) {
+		final IModule module = this.grid.get(pX, pY);
+		if (module == null || module == this) {
+			return null;
+		}
+		// The module covers a rectangle, so its first cell is found by
+		// walking to the left and down
+		int left = pX;
+		while (this.grid.get(left - 1, pY) == module) {
+			left--;
+		}
+		int bottom = pY;
+		while (this.grid.get(left, bottom - 1) == module) {
+			bottom--;
+		}
+		this.stats.remove(module);
+		for (int y = bottom; y < bottom + module.getGridHeight(); y++) {
+			for (int x = left; x < left + module.getGridWidth(); x++) {
+				this.grid.remove(x, y);
+				this.compound.remove(x, y);
+				this.connectivity.remove(x, y);
+			}
+		}
+		this.changed = true;
+		return module;
 	}
 	
 	/**
-	 * {@inheritDoc}
+	 * Checks if a cell is connected to the HQ element through other cells.
+	 * @param pX The x coordinate, relative to the HQ element.
+	 * @param pY The y coordinate.
+	 * @return true if the cell is occupied and connected
 	 */
-	public int getGridHeight() {
-		return 1;
+	public boolean isConnected(final int pX, final int pY) {
+		if (this.connectivity.isDirty()) {
+			this.connectivity.rebuild(this.compound);
+		}
+		final int component = this.connectivity.componentOf(pX, pY);
+		return component >= 0 && component == this.connectivity.componentOf(0, 0);
 	}
 	
 	/**
-	 * {@inheritDoc}
+	 * Splits off the modules that are no longer connected to the HQ element
+	 * since modules were removed, and updates the body. Each group of
+	 * modules that are connected to each other becomes a fragment, which
+	 * keeps moving as it did as a part of the machine. The fragments and the
+	 * new body of the machine have to be added to the level, see
+	 * Level.replaceBody().
+	 * @return The fragments, empty if nothing was split off
 	 */
-	public void addForce(final Vector2f pForce) {
+	public List<Fragment> detachFragments() {
+		if (!this.changed) {
+			return Collections.emptyList();
+		}
+		this.changed = false;
+		if (this.connectivity.isDirty()) {
+			this.connectivity.rebuild(this.compound);
+		}
+		final int core = this.connectivity.componentOf(0, 0);
+		List<Fragment> result = Collections.emptyList();
+		Fragment[] byComponent = null;
+		// Going backwards, the cells can be removed on the way
+		for (int i = this.compound.size() - 1; i >= 0; i--) {
+			final int x = this.compound.getX(i);
+			final int y = this.compound.getY(i);
+			final int component = this.connectivity.componentOf(x, y);
+			if (component == core) {
+				continue;
+			}
+			if (byComponent == null) {
+				byComponent = new Fragment[this.connectivity.getIdCount()];
+				result = new ArrayList<Fragment>();
+			}
+			if (byComponent[component] == null) {
+				byComponent[component] = new Fragment();
+				result.add(byComponent[component]);
+			}
+			byComponent[component].grid.put(x, y, this.grid.remove(x, y));
+			byComponent[component].compound.add(x, y);
+			this.compound.removeAt(i);
+		}
+		for (Fragment f : result) {
+			for (int i = 0; i < f.compound.size(); i++) {
+				final int x = f.compound.getX(i);
+				final int y = f.compound.getY(i);
+				if (f.isFirstCell(x, y)) {
+					this.stats.remove(f.grid.get(x, y));
+					f.stats.add(f.grid.get(x, y));
+				}
+			}
+			f.rebuildBody(this.body, getCenterX(), getCenterY());
+		}
+		if (!result.isEmpty()) {
+			// The split off cells are still part of the union-find structure
+			this.connectivity.rebuild(this.compound);
+		}
+		rebuildBody(this.body, getCenterX(), getCenterY());
+		publishStats();
+		return result;
 	}
-
+	
 	/**
-	 * {@inheritDoc}
+	 * Shows the totals of the machine in the gui, if there is one. The gui
+	 * gets a copy, as it is drawn on another thread.
+	 */
+	private void publishStats() {
+		if (this.gui != null) {
+			this.gui.setBuildingStats(this.stats.copy());
+		}
+	}
+	
+	/**
+	 * Checks if a rectangle of cells shares an edge with a module.
+	 * @param pX The first column
+	 * @param pY The first row
+	 * @param pWidth The number of columns
+	 * @param pHeight The number of rows
+	 * @return true if a cell next to the rectangle is occupied
 	 */
-	public List<Body> getBodyParts() {
-		return this.parts;
+	private boolean touches(final int pX, final int pY, final int pWidth, final int pHeight) {
+		for (int x = pX; x < pX + pWidth; x++) {
+			if (this.grid.get(x, pY - 1) != null || this.grid.get(x, pY + pHeight) != null) {
+				return true;
+			}
+		}
+		for (int y = pY; y < pY + pHeight; y++) {
+			if (this.grid.get(pX - 1, y) != null || this.grid.get(pX + pWidth, y) != null) {
+				return true;
+			}
+		}
+		return false;
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
-	public List<Joint> getJoints() {
-		return this.joints;
+	public int getGridWidth() {
+		return 1;
 	}
-
+	
 	/**
 	 * {@inheritDoc}
 	 */
-	public void move(final Vector2f pForce) {
-		final Vector2f force = new Vector2f(pForce.x * 100, pForce.y * 100);
-		for (Body b : this.parts) {
-			b.setIsResting(false);
-			b.addForce(force);
-		}
+	public int getGridHeight() {
+		return 1;
 	}
 	
 	/**
 	 * {@inheritDoc}
 	 */
-	public void setPosition(final Vector2f pPosition) {
-		this.body.setPosition(pPosition.x, pPosition.y);
+	public void addForce(final Vector2f pForce) {
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
-	public void draw(final Renderer pRenderer) {
-		pRenderer.drawBoxBody(this.body, (Box)this.body.getShape(), this.texture);
+	public void move(final ROVector2f pForce) {
+		// The engines work as far as there is power for them
+		final float power = this.stats.getPowerRatio();
+		this.moveForce.set(pForce.getX() * this.stats.getThrustX() * power,
+				pForce.getY() * this.stats.getThrustY() * power);
+		this.body.setIsResting(false);
+		this.body.addForce(this.moveForce);
 	}
 	
 	/**
@@ -156,7 +302,10 @@ public class HQ extends Module {
 	@Override
 	public void select() {
 		super.select();
-		this.gui.setMainMenuVisible(true);
+		if (this.gui != null) {
+			this.gui.setMainMenuVisible(true);
+		}
+		publishStats();
 	}
 
 	/**
@@ -165,6 +314,8 @@ public class HQ extends Module {
 	@Override
 	public void unselect() {
 		super.unselect();
-		this.gui.setMainMenuVisible(false);
+		if (this.gui != null) {
+			this.gui.setMainMenuVisible(false);
+		}
 	}
 }
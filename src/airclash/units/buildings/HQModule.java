@@ -0,0 +1,95 @@
+package airclash.units.buildings;
+
+import java.util.Collections;
+import java.util.List;
+
+import net.phys2d.math.ROVector2f;
+import net.phys2d.math.Vector2f;
+import net.phys2d.raw.Body;
+import net.phys2d.raw.Joint;
+import airclash.system.exceptions.InvalidResourceException;
+import airclash.system.gfx.Renderer;
+import airclash.system.gfx.TextureLoader;
+import airclash.units.ModuleStats;
+
+/**
+ * A module that is built onto a HQ. It looks like the HQ element and adds
+ * the same to the machine, but it is only a cell of the machine: it has no
+ * body, no collision group and no cells of its own, so placing it costs no
+ * more than the cell it fills.
+ * @author Andreas Textor
+ */
+public class HQModule extends Module {
+	/**
+	 * Constructor.
+	 * @throws InvalidResourceException Thrown, when a texture can't be loaded.
+	 */
+	public HQModule() throws InvalidResourceException {
+		this.texture = TextureLoader.getInstance().getTexture("hq");
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public ModuleStats getStats() {
+		return HQ.STATS;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int getGridWidth() {
+		return 1;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int getGridHeight() {
+		return 1;
+	}
+
+	/**
+	 * Does nothing, the module is moved with the body of its building.
+	 * @param pPosition The new position
+	 */
+	public void setPosition(final Vector2f pPosition) {
+	}
+
+	/**
+	 * Returns an empty list, the module is a part of the body of its
+	 * building.
+	 * @return The empty list
+	 */
+	public List<Body> getBodyParts() {
+		return Collections.emptyList();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<Joint> getJoints() {
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Does nothing, forces act on the body of the building.
+	 * @param pForce The force
+	 */
+	public void addForce(final Vector2f pForce) {
+	}
+
+	/**
+	 * Does nothing, the building moves with the thrust of all its modules.
+	 * @param pForce The force vector
+	 */
+	public void move(final ROVector2f pForce) {
+	}
+
+	/**
+	 * Does nothing, the module is drawn by its building, see drawPart().
+	 * @param pRenderer The renderer
+	 */
+	public void draw(final Renderer pRenderer) {
+	}
+}
@@ -1,6 +1,8 @@
 package airclash.units.buildings;
 
 import net.phys2d.raw.Body;
+import net.phys2d.raw.shapes.Box;
+import airclash.system.gfx.Renderer;
 import airclash.system.gfx.Texture;
 import airclash.units.IModule;
 import airclash.units.Unit;
@@ -19,11 +21,25 @@ public abstract class Module extends Unit implements IModule {
 	/** The texture of the building module. */
 	protected Texture texture;
 	
+	/** The box the module is drawn as, created on first use. */
+	private Box partBox = null;
+	
 	/**
 	 * {@inheritDoc}
 	 */
 	public Body getBody() {
 		return this.body;
 	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	public void drawPart(final Renderer pRenderer, final Body pBody, final float pOffsetX,
+			final float pOffsetY) {
+		if (this.partBox == null) {
+			this.partBox = new Box(GRIDSIZE * getGridWidth(), GRIDSIZE * getGridHeight());
+		}
+		pRenderer.drawBoxBody(pBody, pOffsetX, pOffsetY, this.partBox, this.texture);
+	}
 }
 
@@ -0,0 +1,186 @@
+package airclash.units.buildings;
+
+import java.util.Arrays;
+
+import airclash.units.IModule;
+
+/**
+ * The cells of a building and the modules that occupy them. The grid has no
+ * bounds: the cells are kept in a hash map from the packed coordinates of a
+ * cell to its module, with open addressing in plain arrays, so a lookup
+ * neither allocates nor follows references. A module that is larger than a
+ * cell is stored in every cell it covers.
+ *
+ * @author Andreas Textor
+ */
+class ModuleGrid {
+	/** The initial number of slots, a power of two. */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * The key of an empty slot. It is the key of column Integer.MIN_VALUE,
+	 * row 0, which a building can't reach, as its cells are connected to
+	 * the core cell at 0, 0.
+	 */
+	static final long EMPTY = Long.MIN_VALUE;
+
+	/** The packed coordinates of the cell in each slot, EMPTY if the slot is free. */
+	private long[] keys;
+
+	/** The module in each slot. */
+	private IModule[] values;
+
+	/** The mask that turns a hash into a slot index. */
+	private int mask;
+
+	/** The number of occupied cells. */
+	private int size = 0;
+
+	/**
+	 * Constructor.
+	 */
+	ModuleGrid() {
+		allocate(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Packs the coordinates of a cell into a key: the column in the upper
+	 * and the row in the lower 32 bits.
+	 * @param pX The column
+	 * @param pY The row
+	 * @return The key
+	 */
+	static long key(final int pX, final int pY) {
+		return ((long)pX << 32) | (pY & 0xffffffffL);
+	}
+
+	/**
+	 * Returns the module in a cell.
+	 * @param pX The column
+	 * @param pY The row
+	 * @return The module, or null if the cell is free
+	 */
+	IModule get(final int pX, final int pY) {
+		final long key = key(pX, pY);
+		for (int i = slot(key);; i = (i + 1) & this.mask) {
+			if (this.keys[i] == key) {
+				return this.values[i];
+			}
+			if (this.keys[i] == EMPTY) {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Puts a module into a cell, replacing the module that was there.
+	 * @param pX The column
+	 * @param pY The row
+	 * @param pModule The module, not null
+	 */
+	void put(final int pX, final int pY, final IModule pModule) {
+		// At most half of the slots are used, so the probes stay short
+		if ((this.size + 1) * 2 > this.keys.length) {
+			final long[] oldKeys = this.keys;
+			final IModule[] oldValues = this.values;
+			allocate(oldKeys.length * 2);
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] != EMPTY) {
+					insert(oldKeys[i], oldValues[i]);
+				}
+			}
+		}
+		insert(key(pX, pY), pModule);
+	}
+
+	/**
+	 * Removes the module from a cell.
+	 * @param pX The column
+	 * @param pY The row
+	 * @return The module that was in the cell, or null if it was free
+	 */
+	IModule remove(final int pX, final int pY) {
+		final long key = key(pX, pY);
+		int i = slot(key);
+		while (this.keys[i] != key) {
+			if (this.keys[i] == EMPTY) {
+				return null;
+			}
+			i = (i + 1) & this.mask;
+		}
+		final IModule result = this.values[i];
+		this.size--;
+
+		// The following entries of the probe sequence are moved back into
+		// the gap if their own slot doesn't lie after it
+		int gap = i;
+		for (int j = (i + 1) & this.mask; this.keys[j] != EMPTY; j = (j + 1) & this.mask) {
+			final int home = slot(this.keys[j]);
+			if (((j - home) & this.mask) >= ((j - gap) & this.mask)) {
+				this.keys[gap] = this.keys[j];
+				this.values[gap] = this.values[j];
+				gap = j;
+			}
+		}
+		this.keys[gap] = EMPTY;
+		this.values[gap] = null;
+		return result;
+	}
+
+	/**
+	 * Returns the number of occupied cells.
+	 * @return The cell count
+	 */
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * Puts a key into the table, which must have a free slot.
+	 * @param pKey The key
+	 * @param pModule The module
+	 */
+	private void insert(final long pKey, final IModule pModule) {
+		int i = slot(pKey);
+		while (this.keys[i] != EMPTY && this.keys[i] != pKey) {
+			i = (i + 1) & this.mask;
+		}
+		if (this.keys[i] == EMPTY) {
+			this.keys[i] = pKey;
+			this.size++;
+		}
+		this.values[i] = pModule;
+	}
+
+	/**
+	 * Creates empty arrays.
+	 * @param pCapacity The number of slots, a power of two
+	 */
+	private void allocate(final int pCapacity) {
+		this.keys = new long[pCapacity];
+		this.values = new IModule[pCapacity];
+		this.mask = pCapacity - 1;
+		this.size = 0;
+		Arrays.fill(this.keys, EMPTY);
+	}
+
+	/**
+	 * Returns the first slot of a key.
+	 * @param pKey The key
+	 * @return The slot index
+	 */
+	private int slot(final long pKey) {
+		return hash(pKey) & this.mask;
+	}
+
+	/**
+	 * Spreads the bits of a key, so that the cells of a building don't
+	 * crowd into a few slots.
+	 * @param pKey The key
+	 * @return The hash
+	 */
+	static int hash(final long pKey) {
+		final long h = pKey * 0x9e3779b97f4a7c15L;
+		return (int)(h ^ (h >>> 32));
+	}
+}
@@ -0,0 +1,290 @@
+package airclash.units.buildings;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import net.phys2d.math.ROVector2f;
+import net.phys2d.math.Vector2f;
+import net.phys2d.raw.Body;
+import net.phys2d.raw.Joint;
+import airclash.system.gfx.Renderer;
+import airclash.units.IModule;
+import airclash.world.Bodies;
+import airclash.world.CollisionFilter;
+
+/**
+ * Abstract base class for buildings that consist of modules on a grid, which
+ * form a single rigid body. The cells are given in grid coordinates relative
+ * to the origin cell 0, 0, which need not be occupied.
+ *
+ * The body is replaced by a new one whenever the cells change, see
+ * rebuildBody(); the level has to be told about that, see
+ * Level.replaceBody(). At the same time a new StructureLayout is created,
+ * which is all that is drawn of the structure, as the cells are changed by
+ * the simulation while the renderer runs.
+ *
+ * @author Andreas Textor
+ */
+public abstract class Structure extends Module {
+	/** The cells, which give the shape and mass of the body. */
+	final Compound compound = new Compound();
+
+	/** The modules in the cells. */
+	final ModuleGrid grid = new ModuleGrid();
+
+	/** The totals of the modules. */
+	final BuildingStats stats = new BuildingStats();
+
+	/** The list of body parts, which only holds the body. */
+	private final List<Body> parts = new ArrayList<Body>(1);
+
+	/** The read-only view of the body parts that is handed out. */
+	private final List<Body> partsView = Collections.unmodifiableList(this.parts);
+
+	/** The collision filter of the body. */
+	private final CollisionFilter filter;
+
+	/** The x coordinate of the center of mass the body was built for. */
+	private float centerX = 0;
+
+	/** The y coordinate of the center of mass the body was built for. */
+	private float centerY = 0;
+
+	/** The position of the origin cell, reused on every call. */
+	private final Vector2f origin = new Vector2f();
+
+	/** What is drawn of the structure, null before the first body. */
+	private volatile StructureLayout layout = null;
+
+	/**
+	 * Constructor.
+	 * @param pFilter The collision filter of the body
+	 */
+	protected Structure(final CollisionFilter pFilter) {
+		this.filter = pFilter;
+	}
+
+	/**
+	 * Sets up a new body, e.g. its maximum velocity. The shape, mass and
+	 * collision filter are already set.
+	 * @param pBody The body
+	 */
+	protected abstract void configure(Body pBody);
+
+	/**
+	 * Puts a module into cells of the grid.
+	 * @param pModule The module
+	 * @param pX The first column
+	 * @param pY The first row
+	 */
+	void place(final IModule pModule, final int pX, final int pY) {
+		this.stats.add(pModule);
+		for (int y = pY; y < pY + pModule.getGridHeight(); y++) {
+			for (int x = pX; x < pX + pModule.getGridWidth(); x++) {
+				this.grid.put(x, y, pModule);
+				this.compound.add(x, y);
+			}
+		}
+	}
+
+	/**
+	 * Replaces the body by one with the current shape and mass of the cells.
+	 * The new body continues the motion of another body, which the cells
+	 * were a part of: the cells stay where they were, and the new center of
+	 * mass gets the velocity that point had on the other body. Without an
+	 * other body, the new one is placed with the origin cell at 0, 0.
+	 *
+	 * phys2d keeps the mass a body was created with and falls back to it
+	 * when the body starts or stops resting, so Body.set() can't be used to
+	 * change the mass of an existing body.
+	 * @param pOld The body the cells were a part of, or null
+	 * @param pOldCenterX The x coordinate of the center of mass of that body,
+	 * relative to the origin cell
+	 * @param pOldCenterY The y coordinate of the center of mass
+	 */
+	void rebuildBody(final Body pOld, final float pOldCenterX, final float pOldCenterY) {
+		final Body created = Bodies.create("Body", this.compound.createShape(),
+				this.compound.getMass());
+		this.filter.apply(created);
+		configure(created);
+		this.centerX = this.compound.getCenterX();
+		this.centerY = this.compound.getCenterY();
+		if (pOld != null) {
+			final float rotation = pOld.getRotation();
+			final float cos = (float)Math.cos(rotation);
+			final float sin = (float)Math.sin(rotation);
+			final float dx = this.centerX - pOldCenterX;
+			final float dy = this.centerY - pOldCenterY;
+			final float rx = cos * dx - sin * dy;
+			final float ry = sin * dx + cos * dy;
+			final float spin = pOld.getAngularVelocity();
+			created.setPosition(pOld.getPosition().getX() + rx, pOld.getPosition().getY() + ry);
+			created.setRotation(rotation);
+			created.setFriction(pOld.getFriction());
+			created.adjustVelocity(new Vector2f(pOld.getVelocity().getX() - spin * ry,
+					pOld.getVelocity().getY() + spin * rx));
+			created.adjustAngularVelocity(spin);
+		} else {
+			created.setPosition(this.centerX, this.centerY);
+		}
+		this.body = created;
+		if (this.parts.isEmpty()) {
+			this.parts.add(created);
+		} else {
+			this.parts.set(0, created);
+		}
+		this.layout = createLayout();
+	}
+
+	/**
+	 * Creates the layout of the current cells and body.
+	 * @return The layout
+	 */
+	private StructureLayout createLayout() {
+		int count = 0;
+		for (int i = 0; i < this.compound.size(); i++) {
+			if (isFirstCell(this.compound.getX(i), this.compound.getY(i))) {
+				count++;
+			}
+		}
+		final IModule[] modules = new IModule[count];
+		final float[] offsetX = new float[count];
+		final float[] offsetY = new float[count];
+		int n = 0;
+		for (int i = 0; i < this.compound.size(); i++) {
+			final int x = this.compound.getX(i);
+			final int y = this.compound.getY(i);
+			// A module is drawn once, from its first cell
+			if (!isFirstCell(x, y)) {
+				continue;
+			}
+			final IModule module = this.grid.get(x, y);
+			modules[n] = module;
+			offsetX[n] = (x + (module.getGridWidth() - 1) / 2.0f) * GRIDSIZE - this.centerX;
+			offsetY[n] = (y + (module.getGridHeight() - 1) / 2.0f) * GRIDSIZE - this.centerY;
+			n++;
+		}
+		return new StructureLayout(this.body, modules, offsetX, offsetY);
+	}
+
+	/**
+	 * Returns what is drawn of the structure. The layout is replaced, not
+	 * modified, when the cells change, so it may be read from another
+	 * thread.
+	 * @return The layout, or null if the structure has no body yet
+	 */
+	public StructureLayout getLayout() {
+		return this.layout;
+	}
+
+	/**
+	 * Returns the x coordinate of the center of mass of the body, relative to
+	 * the origin cell.
+	 * @return The x coordinate in pixels
+	 */
+	float getCenterX() {
+		return this.centerX;
+	}
+
+	/**
+	 * Returns the y coordinate of the center of mass of the body, relative to
+	 * the origin cell.
+	 * @return The y coordinate in pixels
+	 */
+	float getCenterY() {
+		return this.centerY;
+	}
+
+	/**
+	 * Returns the module in a cell of the grid.
+	 * @param pX The x coordinate, relative to the origin cell.
+	 * @param pY The y coordinate.
+	 * @return The module, or null if the cell is free
+	 */
+	public IModule getModule(final int pX, final int pY) {
+		return this.grid.get(pX, pY);
+	}
+
+	/**
+	 * Checks if a cell is the first one of the module in it, which is the
+	 * one at the bottom left.
+	 * @param pX The x coordinate, relative to the origin cell.
+	 * @param pY The y coordinate.
+	 * @return true if the cell is the first cell of its module
+	 */
+	boolean isFirstCell(final int pX, final int pY) {
+		final IModule module = this.grid.get(pX, pY);
+		return module != null && this.grid.get(pX - 1, pY) != module
+			&& this.grid.get(pX, pY - 1) != module;
+	}
+
+	/**
+	 * Returns the totals of the modules. They are kept up to date as modules
+	 * are added and removed, and must not be modified.
+	 * @return The totals
+	 */
+	public BuildingStats getBuildingStats() {
+		return this.stats;
+	}
+
+	/**
+	 * Returns the number of occupied cells.
+	 * @return The cell count
+	 */
+	public int getCellCount() {
+		return this.compound.size();
+	}
+
+	/**
+	 * Returns the position of the center of the origin cell, which is not
+	 * the position of the body. The returned vector is reused by the next
+	 * call.
+	 * @return The position
+	 */
+	public ROVector2f getOrigin() {
+		final float rotation = this.body.getRotation();
+		final float cos = (float)Math.cos(rotation);
+		final float sin = (float)Math.sin(rotation);
+		this.origin.set(this.body.getPosition().getX() - cos * this.centerX + sin * this.centerY,
+				this.body.getPosition().getY() - sin * this.centerX - cos * this.centerY);
+		return this.origin;
+	}
+
+	/**
+	 * Sets the position of the center of the origin cell.
+	 * @param pPosition The new position
+	 */
+	public void setPosition(final Vector2f pPosition) {
+		final float rotation = this.body.getRotation();
+		final float cos = (float)Math.cos(rotation);
+		final float sin = (float)Math.sin(rotation);
+		this.body.setPosition(pPosition.x + cos * this.centerX - sin * this.centerY,
+				pPosition.y + sin * this.centerX + cos * this.centerY);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<Body> getBodyParts() {
+		return this.partsView;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<Joint> getJoints() {
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Draws all modules of the structure, from the latest layout.
+	 * @param pRenderer The renderer to draw on
+	 */
+	public void draw(final Renderer pRenderer) {
+		final StructureLayout current = this.layout;
+		if (current != null) {
+			current.draw(pRenderer);
+		}
+	}
+}
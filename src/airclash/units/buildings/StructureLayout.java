@@ -0,0 +1,69 @@
+package airclash.units.buildings;
+
+import net.phys2d.raw.Body;
+import airclash.system.gfx.Renderer;
+import airclash.units.IModule;
+
+/**
+ * An immutable copy of what is drawn of a structure: its body and each
+ * module with its offset from the center of mass. The structure creates a
+ * new layout whenever its cells change, and the world snapshots capture it,
+ * so the renderer never reads the cells while the simulation changes them.
+ *
+ * @author Andreas Textor
+ */
+public final class StructureLayout {
+	/** The body the modules are drawn on. */
+	private final Body body;
+
+	/** The modules, each one once. */
+	private final IModule[] modules;
+
+	/** The x offsets of the centers of the modules from the center of mass. */
+	private final float[] offsetX;
+
+	/** The y offsets of the centers of the modules from the center of mass. */
+	private final float[] offsetY;
+
+	/**
+	 * Constructor. The arrays are used, not copied.
+	 * @param pBody The body the modules are drawn on
+	 * @param pModules The modules
+	 * @param pOffsetX The x offsets of the modules
+	 * @param pOffsetY The y offsets of the modules
+	 */
+	StructureLayout(final Body pBody, final IModule[] pModules, final float[] pOffsetX,
+			final float[] pOffsetY) {
+		this.body = pBody;
+		this.modules = pModules;
+		this.offsetX = pOffsetX;
+		this.offsetY = pOffsetY;
+	}
+
+	/**
+	 * Returns the body the modules are drawn on.
+	 * @return The body
+	 */
+	public Body getBody() {
+		return this.body;
+	}
+
+	/**
+	 * Returns the number of modules.
+	 * @return The module count
+	 */
+	public int size() {
+		return this.modules.length;
+	}
+
+	/**
+	 * Draws all modules. The position of the body is taken from the
+	 * snapshots of the renderer.
+	 * @param pRenderer The renderer to draw on
+	 */
+	public void draw(final Renderer pRenderer) {
+		for (int i = 0; i < this.modules.length; i++) {
+			this.modules[i].drawPart(pRenderer, this.body, this.offsetX[i], this.offsetY[i]);
+		}
+	}
+}
@@ -1,8 +1,9 @@
 package airclash.units.planes;
 
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
+import net.phys2d.math.ROVector2f;
 import net.phys2d.math.Vector2f;
 import net.phys2d.raw.Body;
 import net.phys2d.raw.Joint;
@@ -11,6 +12,8 @@ import airclash.system.exceptions.InvalidResourceException;
 import airclash.system.gfx.Renderer;
 import airclash.system.gfx.Texture;
 import airclash.system.gfx.TextureLoader;
+import airclash.world.Bodies;
+import airclash.world.CollisionFilter;
 
 /**
  * Simple flying unit whitout any weaponry.
@@ -23,14 +26,22 @@ public class Drone extends AbstractPlane {
 	/** The texture of the unit. */
 	private Texture texture;
 	
+	/** The body parts, created once. */
+	private List<Body> parts;
+	
+	/** The force that is applied when moving, reused on every move. */
+	private final Vector2f moveForce = new Vector2f();
+	
 	/**
 	 * Constructor.
 	 * @throws InvalidResourceException Thrown, when the texture can't be loaded
 	 */
 	public Drone() throws InvalidResourceException {
-		this.box = new Body("Body", new Box(30, 30), 1);
+		this.box = Bodies.create("Body", new Box(30, 30), 1);
 		this.box.setMaxVelocity(30, 40);
 		this.box.setRotatable(false);
+		CollisionFilter.forUnit(CollisionFilter.newGroup()).apply(this.box);
+		this.parts = Collections.singletonList(this.box);
 		this.texture = TextureLoader.getInstance().getTexture("drone");
 		setPosition(new Vector2f());
 	}
@@ -46,7 +57,7 @@ public class Drone extends AbstractPlane {
 	 * {@inheritDoc}
 	 */
 	public List<Body> getBodyParts() {
-		return Arrays.asList(this.box);
+		return this.parts;
 	}
 
 	/**
@@ -59,10 +70,10 @@ public class Drone extends AbstractPlane {
 	/**
 	 * {@inheritDoc}
 	 */
-	public void move(final Vector2f pForce) {
-		final Vector2f force = new Vector2f(pForce.x * 100, pForce.y * 100);
+	public void move(final ROVector2f pForce) {
+		this.moveForce.set(pForce.getX() * 100, pForce.getY() * 100);
 		this.box.setIsResting(false);
-		this.box.addForce(force);
+		this.box.addForce(this.moveForce);
 	}
 
 	/**
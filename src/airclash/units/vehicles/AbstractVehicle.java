@@ -1,9 +1,11 @@
 package airclash.units.vehicles;
 
+import net.phys2d.math.ROVector2f;
 import net.phys2d.math.Vector2f;
 import net.phys2d.raw.Body;
 import airclash.units.Unit;
 import airclash.units.IVehicle;
+import airclash.world.Heightfield;
 
 /**
  * Abstract base class for all vehicles (= units that have wheels and don't fly).
@@ -16,6 +18,12 @@ public abstract class AbstractVehicle extends Unit implements IVehicle {
 	 */
 	private int enginePower = 1;
 	
+	/** The floor of the level the vehicle drives on. */
+	private Heightfield ground;
+	
+	/** The force that is applied to the wheels, reused on every move. */
+	private final Vector2f wheelForce = new Vector2f();
+	
 	/**
 	 * Set the power of the engine. This determines the x component of the force
 	 * vector that is applied to the wheel when moving.
@@ -25,19 +33,42 @@ public abstract class AbstractVehicle extends Unit implements IVehicle {
 		this.enginePower = pPower;
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	public void setGround(final Heightfield pGround) {
+		this.ground = pGround;
+	}
+	
+	/**
+	 * Checks if a wheel is on the ground. The floor of the level is looked up
+	 * in the heightfield; other bodies, e.g. buildings, count if the physics
+	 * reported a contact with them.
+	 * @param pWheel The wheel
+	 * @return true if the wheel touches something
+	 */
+	protected boolean isOnGround(final Body pWheel) {
+		if (this.ground != null && this.ground.touches(pWheel.getPosition(),
+				pWheel.getShape().getBounds().getWidth() / 2)) {
+			return true;
+		}
+		return pWheel.getTouching().size() > 0;
+	}
+	
 	/**
 	 * Takes a force and applies the force to each wheel
-	 * that touches another Body.
+	 * that touches the ground or another Body.
 	 * @param pForce The force
 	 */
-	protected void addWheelForce(final Vector2f pForce) {
+	protected void addWheelForce(final ROVector2f pForce) {
 		if (pForce == UP) {
 			return;
 		}
-		final Vector2f force = new Vector2f(pForce.x * this.enginePower, pForce.y);
-		for (Body w : getWheels()) {
-			if (w.getTouching().size() > 0) {
-				w.addForce(force);
+		this.wheelForce.set(pForce.getX() * this.enginePower, pForce.getY());
+		final Body[] wheels = getWheels();
+		for (int i = 0; i < wheels.length; i++) {
+			if (isOnGround(wheels[i])) {
+				wheels[i].addForce(this.wheelForce);
 			}
 		}
 	}
@@ -1,11 +1,12 @@
 package airclash.units.vehicles;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
+import net.phys2d.math.ROVector2f;
 import net.phys2d.math.Vector2f;
 import net.phys2d.raw.Body;
-import net.phys2d.raw.FixedJoint;
 import net.phys2d.raw.Joint;
 import net.phys2d.raw.shapes.Box;
 import net.phys2d.raw.shapes.Circle;
@@ -14,6 +15,8 @@ import airclash.system.gfx.Renderer;
 import airclash.system.gfx.Texture;
 import airclash.system.gfx.TextureLoader;
 import airclash.units.IVehicle;
+import airclash.world.Bodies;
+import airclash.world.CollisionFilter;
 
 /**
  * Simple two-wheeled vehicle without weaponry.
@@ -38,6 +41,12 @@ public class Scout extends AbstractVehicle implements IVehicle {
 	/** The array of wheels. */
 	private Body[] wheels;
 	
+	/** All body parts, created once. */
+	private List<Body> parts;
+	
+	/** All joints, created once. */
+	private List<Joint> joints;
+	
 	/** The texture of the vehicle. */
 	private Texture texture;
 	
@@ -46,17 +55,26 @@ public class Scout extends AbstractVehicle implements IVehicle {
 	 * @throws InvalidResourceException Thrown, when the texture can't be loaded
 	 */
 	public Scout() throws InvalidResourceException {
-		this.box = new Body("Body", new Box(50, 15), 3);
+		this.box = Bodies.create("Body", new Box(50, 15), 3);
 		this.box.setMaxVelocity(30, 80);
-		this.wheel1 = new Body("Wheel", new Circle(8), 1);
+		this.wheel1 = Bodies.create("Wheel", new Circle(8), 1);
 		this.wheel1.setMaxVelocity(30, 80);
-		this.wheel2 = new Body("Wheel", new Circle(8), 1);
+		this.wheel2 = Bodies.create("Wheel", new Circle(8), 1);
 		this.wheel2.setMaxVelocity(30, 80);
+		// The parts of the vehicle don't collide with each other
+		final CollisionFilter filter = CollisionFilter.forUnit(CollisionFilter.newGroup());
+		filter.apply(this.box);
+		filter.apply(this.wheel1);
+		filter.apply(this.wheel2);
 		setPosition(new Vector2f());
 		
 		this.wheels = new Body[] {this.wheel1, this.wheel2};
-		this.wheelJoint1 = new FixedJoint(this.box, this.wheel1);
-		this.wheelJoint2 = new FixedJoint(this.box, this.wheel2);
+		this.wheelJoint1 = Bodies.createFixedJoint(this.box, this.wheel1);
+		this.wheelJoint2 = Bodies.createFixedJoint(this.box, this.wheel2);
+		this.parts = Collections.unmodifiableList(
+				Arrays.asList(this.box, this.wheel1, this.wheel2));
+		this.joints = Collections.unmodifiableList(
+				Arrays.asList(this.wheelJoint1, this.wheelJoint2));
 		setEnginePower(300);
 
 		this.texture = TextureLoader.getInstance().getTexture("scout");
@@ -66,14 +84,14 @@ public class Scout extends AbstractVehicle implements IVehicle {
 	 * {@inheritDoc}
 	 */
 	public List<Body> getBodyParts() {
-		return Arrays.asList(this.box, this.wheel1, this.wheel2);
+		return this.parts;
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public List<Joint> getJoints() {
-		return Arrays.asList(this.wheelJoint1, this.wheelJoint2);
+		return this.joints;
 	}
 
 	/**
@@ -102,7 +120,7 @@ public class Scout extends AbstractVehicle implements IVehicle {
 	/**
 	 * {@inheritDoc}
 	 */
-	public void move(final Vector2f pForce) {
+	public void move(final ROVector2f pForce) {
 		addWheelForce(pForce);
 	}
 	
@@ -114,16 +132,4 @@ public class Scout extends AbstractVehicle implements IVehicle {
 		pRenderer.drawCircleBody(this.wheel1, (Circle)this.wheel1.getShape());
 		pRenderer.drawCircleBody(this.wheel2, (Circle)this.wheel1.getShape());
 	}
-
-	/**
-	 * Setup the unit's collision mask.
-	 */
-	@Override
-	public void setup() {
-		super.setup();
-		this.box.addExcludedBody(this.wheel1);
-		this.box.addExcludedBody(this.wheel2);
-		this.wheel1.addExcludedBody(this.box);
-		this.wheel2.addExcludedBody(this.box);
-	}
 }
@@ -0,0 +1,81 @@
+package airclash.world;
+
+import net.phys2d.raw.Body;
+import net.phys2d.raw.FixedJoint;
+import net.phys2d.raw.StaticBody;
+import net.phys2d.raw.shapes.DynamicShape;
+import net.phys2d.raw.shapes.Shape;
+
+/**
+ * Creates the bodies and joints of the simulation. phys2d numbers the bodies
+ * and the joints with static counters that are not thread safe, and two
+ * bodies or joints with the same number are equal for phys2d, so they can't
+ * be told apart in the lists of a world. When several simulations run on
+ * different threads, e.g. in the BatchRunner, bodies and joints must
+ * therefore only be created here, where the constructors run under one
+ * lock. Bodies and joints that are created with the constructors directly
+ * are only safe while a single thread creates them.
+ *
+ * @author Andreas Textor
+ */
+public final class Bodies {
+	/** The lock that all bodies and joints are created under. */
+	private static final Object LOCK = new Object();
+
+	/**
+	 * Constructor.
+	 */
+	private Bodies() {
+		// Only static methods
+	}
+
+	/**
+	 * Creates a moving body.
+	 * @param pName The name of the body
+	 * @param pShape The shape
+	 * @param pMass The mass
+	 * @return The body
+	 */
+	public static Body create(final String pName, final DynamicShape pShape, final float pMass) {
+		synchronized (LOCK) {
+			return new Body(pName, pShape, pMass);
+		}
+	}
+
+	/**
+	 * Creates a static body.
+	 * @param pName The name of the body
+	 * @param pShape The shape
+	 * @return The body
+	 */
+	public static Body createStatic(final String pName, final Shape pShape) {
+		synchronized (LOCK) {
+			return new StaticBody(pName, pShape);
+		}
+	}
+
+	/**
+	 * Creates a static body without a name.
+	 * @param pShape The shape
+	 * @return The body
+	 */
+	public static Body createStatic(final Shape pShape) {
+		synchronized (LOCK) {
+			return new StaticBody(pShape);
+		}
+	}
+
+	/**
+	 * Creates a joint that holds two bodies at their current distance and
+	 * angle.
+	 * @param pBody1 The first body
+	 * @param pBody2 The second body
+	 * @return The joint
+	 */
+	public static FixedJoint createFixedJoint(final Body pBody1, final Body pBody2) {
+		synchronized (LOCK) {
+			// This creates two basic joints, which are numbered as well
+			return new FixedJoint(pBody1, pBody2);
+		}
+	}
+}
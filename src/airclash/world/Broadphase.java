@@ -0,0 +1,62 @@
+package airclash.world;
+
+import net.phys2d.raw.BroadCollisionStrategy;
+import net.phys2d.raw.strategies.QuadSpaceStrategy;
+
+/**
+ * The broadphase strategies a level can use. Each world needs its own
+ * instance of a strategy, so this creates them.
+ *
+ * @author Andreas Textor
+ */
+public enum Broadphase {
+	/** The quad tree of phys2d, rebuilt every step. */
+	QUADSPACE {
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public BroadCollisionStrategy create(final LevelDescription pLevel) {
+			return new QuadSpaceStrategy(MAX_IN_SPACE, MAX_LEVELS);
+		}
+	},
+
+	/** A uniform grid that is sized for the level and updated incrementally. */
+	GRID {
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public BroadCollisionStrategy create(final LevelDescription pLevel) {
+			return GridCollisionStrategy.forLevel(pLevel);
+		}
+	};
+
+	/** The number of bodies a quad space may hold before it is split. */
+	private static final int MAX_IN_SPACE = 20;
+
+	/** The number of times the quad spaces may be split. */
+	private static final int MAX_LEVELS = 5;
+
+	/**
+	 * Creates a new strategy for a world of a level.
+	 * @param pLevel The level description
+	 * @return The strategy
+	 */
+	public abstract BroadCollisionStrategy create(final LevelDescription pLevel);
+
+	/**
+	 * Returns the broadphase with a name, ignoring the case.
+	 * @param pName The name, e.g. "grid"
+	 * @param pDefault The broadphase to use if the name is empty
+	 * @return The broadphase
+	 * @throws IllegalArgumentException Thrown when there is no broadphase
+	 * with the name
+	 */
+	public static Broadphase parse(final String pName, final Broadphase pDefault) {
+		if (pName == null || pName.trim().length() == 0) {
+			return pDefault;
+		}
+		return valueOf(pName.trim().toUpperCase());
+	}
+}
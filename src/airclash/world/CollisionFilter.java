@@ -0,0 +1,144 @@
+package airclash.world;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.phys2d.raw.Body;
+
+/**
+ * Decides which bodies can collide. Every body belongs to one or more
+ * categories, e.g. terrain or unit, and has a mask of the categories it
+ * collides with. Two bodies collide if each one's category is in the other
+ * one's mask. Additionally, bodies of the same group never collide; this is
+ * used for the parts of one unit. The filter of a body is stored as its user
+ * data and checked by the FilteredCollisionStrategy.
+ *
+ * Filters are immutable, so bodies can share them.
+ *
+ * @author Andreas Textor
+ */
+public final class CollisionFilter {
+	/** Category: the level floor and borders. */
+	public static final int TERRAIN = 1;
+	
+	/** Category: vehicles and planes. */
+	public static final int UNIT = 1 << 1;
+	
+	/** Category: buildings. */
+	public static final int MODULE = 1 << 2;
+	
+	/** All categories. */
+	public static final int ALL = ~0;
+	
+	/** The filter of bodies that have none: collides with everything. */
+	public static final CollisionFilter DEFAULT = new CollisionFilter(ALL, ALL, 0);
+	
+	/** The filter of the level floor and borders. */
+	public static final CollisionFilter TERRAIN_FILTER = new CollisionFilter(TERRAIN, ALL, 0);
+	
+	/** The next free group. */
+	private static final AtomicInteger NEXT_GROUP = new AtomicInteger(1);
+	
+	/** The categories the body belongs to. */
+	private final int category;
+	
+	/** The categories the body collides with. */
+	private final int mask;
+	
+	/** The group of the body, 0 for none. */
+	private final int group;
+	
+	/**
+	 * Constructor.
+	 * @param pCategory The categories the body belongs to
+	 * @param pMask The categories the body collides with
+	 * @param pGroup The group, bodies of the same group don't collide. 0 for
+	 * no group.
+	 */
+	public CollisionFilter(final int pCategory, final int pMask, final int pGroup) {
+		this.category = pCategory;
+		this.mask = pMask;
+		this.group = pGroup;
+	}
+	
+	/**
+	 * Creates the filter for the parts of a vehicle or plane. Units collide
+	 * with the terrain and other units, but not with buildings.
+	 * @param pGroup The group of the unit
+	 * @return The filter
+	 */
+	public static CollisionFilter forUnit(final int pGroup) {
+		return new CollisionFilter(UNIT, TERRAIN | UNIT, pGroup);
+	}
+	
+	/**
+	 * Creates the filter for the modules of a building. Buildings collide
+	 * with the terrain and other buildings, but not with units.
+	 * @param pGroup The group of the building
+	 * @return The filter
+	 */
+	public static CollisionFilter forModule(final int pGroup) {
+		return new CollisionFilter(MODULE, TERRAIN | MODULE, pGroup);
+	}
+	
+	/**
+	 * Returns a new group that no other body belongs to yet.
+	 * @return The group
+	 */
+	public static int newGroup() {
+		return NEXT_GROUP.getAndIncrement();
+	}
+	
+	/**
+	 * Returns the filter of a body.
+	 * @param pBody The body
+	 * @return The filter, or DEFAULT if the body has none
+	 */
+	public static CollisionFilter of(final Body pBody) {
+		final Object data = pBody.getUserData();
+		return data instanceof CollisionFilter ? (CollisionFilter)data : DEFAULT;
+	}
+	
+	/**
+	 * Sets this filter on a body.
+	 * @param pBody The body
+	 */
+	public void apply(final Body pBody) {
+		pBody.setUserData(this);
+	}
+	
+	/**
+	 * Checks if bodies with this filter and another filter collide.
+	 * @param pOther The other filter
+	 * @return true if they collide
+	 */
+	public boolean collidesWith(final CollisionFilter pOther) {
+		if (this.group != 0 && this.group == pOther.group) {
+			return false;
+		}
+		return (this.category & pOther.mask) != 0 && (pOther.category & this.mask) != 0;
+	}
+	
+	/**
+	 * Returns the categories the body belongs to.
+	 * @return The category bits
+	 */
+	public int getCategory() {
+		return this.category;
+	}
+	
+	/**
+	 * Returns the categories the body collides with.
+	 * @return The mask bits
+	 */
+	public int getMask() {
+		return this.mask;
+	}
+	
+	/**
+	 * Returns the group of the body.
+	 * @return The group, 0 for none
+	 */
+	public int getGroup() {
+		return this.group;
+	}
+}
@@ -0,0 +1,128 @@
+package airclash.world;
+
+import net.phys2d.raw.Body;
+import net.phys2d.raw.BodyList;
+import net.phys2d.raw.BroadCollisionStrategy;
+import net.phys2d.raw.CollisionContext;
+
+/**
+ * Broadphase that filters the candidate pairs of another broadphase with the
+ * CollisionFilter of the bodies. The wrapped strategy finds bodies that are
+ * near each other; each pair of them is then checked with the filters, and
+ * only the pairs that may collide are passed on to the world. This replaces
+ * the per body exclusion lists of phys2d, which are searched linearly and
+ * have to be filled pairwise.
+ *
+ * The strategy counts the candidate pairs and the pairs that were passed on,
+ * and measures the time of collideBodies(), for the PhysicsStats.
+ *
+ * This must only be used by one world.
+ *
+ * @author Andreas Textor
+ */
+public class FilteredCollisionStrategy implements BroadCollisionStrategy {
+	/** The strategy that finds the candidates. */
+	private final BroadCollisionStrategy strategy;
+	
+	/** The world the pairs are passed to during collideBodies(). */
+	private CollisionContext target;
+	
+	/** The pair of bodies that is passed to the world, reused for each pair. */
+	private final BodyList pair = new BodyList();
+	
+	/** The number of candidate pairs since the last resetCounters(). */
+	private int candidates = 0;
+	
+	/** The number of pairs passed to the world since the last resetCounters(). */
+	private int tests = 0;
+	
+	/** The time spent in collideBodies() since the last resetCounters(). */
+	private long time = 0;
+	
+	/** Receives the candidates from the strategy and filters them. */
+	private final CollisionContext filter = new CollisionContext() {
+		@SuppressWarnings("synthetic-access")
+		public void resolve(final BodyList pBodies, final float pDelta) {
+			filterPairs(pBodies, pDelta);
+		}
+	};
+	
+	/**
+	 * Constructor.
+	 * @param pStrategy The strategy that finds the candidates
+	 */
+	public FilteredCollisionStrategy(final BroadCollisionStrategy pStrategy) {
+		this.strategy = pStrategy;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	public void collideBodies(final CollisionContext pContext, final BodyList pBodies,
+			final float pDelta) {
+		this.target = pContext;
+		final long start = System.nanoTime();
+		this.strategy.collideBodies(this.filter, pBodies, pDelta);
+		this.time += System.nanoTime() - start;
+	}
+	
+	/**
+	 * Sets the counters to 0.
+	 */
+	public void resetCounters() {
+		this.candidates = 0;
+		this.tests = 0;
+		this.time = 0;
+	}
+	
+	/**
+	 * Returns the number of pairs the wrapped strategy found.
+	 * @return The candidate count
+	 */
+	public int getCandidates() {
+		return this.candidates;
+	}
+	
+	/**
+	 * Returns the number of pairs that passed the filters and were tested
+	 * by the world.
+	 * @return The test count
+	 */
+	public int getTests() {
+		return this.tests;
+	}
+	
+	/**
+	 * Returns the time spent finding and testing the pairs, e.g. the
+	 * broadphase and the narrowphase of the world.
+	 * @return The time in nanoseconds
+	 */
+	public long getTime() {
+		return this.time;
+	}
+	
+	/**
+	 * Passes all pairs of a group of candidates that may collide to the world.
+	 * @param pBodies The candidates
+	 * @param pDelta The time step
+	 */
+	private void filterPairs(final BodyList pBodies, final float pDelta) {
+		final int count = pBodies.size();
+		this.candidates += count * (count - 1) / 2;
+		for (int i = 0; i < count; i++) {
+			final Body bi = pBodies.get(i);
+			final CollisionFilter fi = CollisionFilter.of(bi);
+			for (int j = i + 1; j < count; j++) {
+				final Body bj = pBodies.get(j);
+				if ((bi.isStatic() && bj.isStatic()) || !fi.collidesWith(CollisionFilter.of(bj))) {
+					continue;
+				}
+				this.pair.clear();
+				this.pair.add(bi);
+				this.pair.add(bj);
+				this.tests++;
+				this.target.resolve(this.pair, pDelta);
+			}
+		}
+	}
+}
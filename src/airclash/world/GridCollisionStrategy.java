@@ -0,0 +1,388 @@
+package airclash.world;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import net.phys2d.raw.Body;
+import net.phys2d.raw.BodyList;
+import net.phys2d.raw.BroadCollisionStrategy;
+import net.phys2d.raw.CollisionContext;
+import net.phys2d.raw.shapes.AABox;
+import airclash.units.buildings.Module;
+
+/**
+ * Broadphase that sorts the bodies into a uniform grid. The cells are hashed
+ * into a fixed number of buckets, so the grid has no bounds, but the cell size
+ * and the number of buckets are chosen for the size of a level. Every body
+ * remembers the cells it covers and is only moved to other buckets when
+ * that changes, so bodies that rest or move slowly cost nothing to update.
+ *
+ * Each pair of bodies that share a cell is passed to the world exactly once,
+ * by the cell where their cell ranges start to overlap. Pairs that share a
+ * cell are passed on even if their bounds don't touch, so that the world
+ * drops the contacts of bodies that just moved apart. Bodies that cover more
+ * than MAX_CELLS cells, like the level bounds, are not put into the grid
+ * but paired with every moving body.
+ *
+ * @author Andreas Textor
+ */
+public class GridCollisionStrategy implements BroadCollisionStrategy {
+	/** The most cells a body may cover before it is kept out of the grid. */
+	private static final int MAX_CELLS = 256;
+
+	/** The cell size as multiple of the size of a module. */
+	private static final int CELL_MODULES = 2;
+
+	/** The number of cells a level should have at most. */
+	private static final int LEVEL_CELLS = 1 << 14;
+
+	/** The smallest number of buckets. */
+	private static final int MIN_BUCKETS = 1 << 6;
+
+	/** The largest number of buckets. */
+	private static final int MAX_BUCKETS = 1 << 16;
+
+	/** Factor for the x index of a cell in the hash. */
+	private static final int HASH_X = 0x8da6b343;
+
+	/** Factor for the y index of a cell in the hash. */
+	private static final int HASH_Y = 0xd8163841;
+
+	/**
+	 * The grid state of a body.
+	 * @author Andreas Textor
+	 */
+	private static final class Entry {
+		/** The body. */
+		private final Body body;
+
+		/** The first column the body covers. */
+		private int minX;
+
+		/** The first row the body covers. */
+		private int minY;
+
+		/** The last column the body covers. */
+		private int maxX;
+
+		/** The last row the body covers. */
+		private int maxY;
+
+		/** true if the body is in the buckets or in the large list. */
+		private boolean inserted = false;
+
+		/** true if the body covers too many cells and is not in the buckets. */
+		private boolean large = false;
+
+		/** The index of the body in the list of the current step. */
+		private int index;
+
+		/** The step the body was last seen in. */
+		private int stamp;
+
+		/**
+		 * Constructor.
+		 * @param pBody The body
+		 */
+		private Entry(final Body pBody) {
+			this.body = pBody;
+		}
+
+		/**
+		 * Checks if the body covers a cell.
+		 * @param pX The column
+		 * @param pY The row
+		 * @return true if the cell is covered
+		 */
+		private boolean covers(final int pX, final int pY) {
+			return pX >= this.minX && pX <= this.maxX && pY >= this.minY && pY <= this.maxY;
+		}
+	}
+
+	/** The edge length of a cell. */
+	private final float cellSize;
+
+	/** The mask that turns a hash into a bucket index. */
+	private final int mask;
+
+	/** The bodies in each bucket, null for empty buckets. */
+	private final List<List<Entry>> buckets;
+
+	/** The bodies that cover too many cells. */
+	private final List<Entry> large = new ArrayList<Entry>();
+
+	/** The grid state of every body that was passed to the strategy. */
+	private final Map<Body, Entry> entries = new IdentityHashMap<Body, Entry>();
+
+	/** The entries of the bodies of the current step, in the order of the step. */
+	private Entry[] current = new Entry[0];
+
+	/** The number of the current step. */
+	private int stamp = 0;
+
+	/** The pair of bodies that is passed to the world, reused for each pair. */
+	private final BodyList pair = new BodyList();
+
+	/**
+	 * Constructor.
+	 * @param pCellSize The edge length of a cell
+	 * @param pBuckets The number of buckets, rounded up to a power of two
+	 */
+	public GridCollisionStrategy(final float pCellSize, final int pBuckets) {
+		this.cellSize = pCellSize;
+		int buckets = MIN_BUCKETS;
+		while (buckets < pBuckets && buckets < MAX_BUCKETS) {
+			buckets <<= 1;
+		}
+		this.mask = buckets - 1;
+		this.buckets = new ArrayList<List<Entry>>(buckets);
+		for (int i = 0; i < buckets; i++) {
+			this.buckets.add(null);
+		}
+	}
+
+	/**
+	 * Creates a grid for a level. A cell holds a few modules, so that most
+	 * units cover one to four cells; on large levels the cells grow so that
+	 * the level has at most LEVEL_CELLS cells. There is one bucket per cell
+	 * of the level.
+	 * @param pLevel The level description
+	 * @return The strategy
+	 */
+	public static GridCollisionStrategy forLevel(final LevelDescription pLevel) {
+		final float width = Math.max(1, pLevel.getWidth());
+		final float height = Math.max(1, pLevel.getHeight());
+		final float cellSize = Math.max(CELL_MODULES * Module.GRIDSIZE,
+				(float)Math.sqrt(width * height / LEVEL_CELLS));
+		final int cells = (int)(Math.ceil(width / cellSize) * Math.ceil(height / cellSize));
+		return new GridCollisionStrategy(cellSize, cells);
+	}
+
+	/**
+	 * Returns the edge length of a cell.
+	 * @return The cell size
+	 */
+	public float getCellSize() {
+		return this.cellSize;
+	}
+
+	/**
+	 * Returns the number of buckets the cells are hashed into.
+	 * @return The bucket count
+	 */
+	public int getBuckets() {
+		return this.buckets.size();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void collideBodies(final CollisionContext pContext, final BodyList pBodies,
+			final float pDelta) {
+		update(pBodies);
+		final int count = pBodies.size();
+		for (int i = 0; i < count; i++) {
+			final Entry a = this.current[i];
+			if (a.body.isStatic()) {
+				continue;
+			}
+			if (a.large) {
+				pairWithAll(pContext, a, pDelta);
+				continue;
+			}
+			for (int y = a.minY; y <= a.maxY; y++) {
+				for (int x = a.minX; x <= a.maxX; x++) {
+					final List<Entry> bucket = this.buckets.get(bucketOf(x, y));
+					if (bucket == null) {
+						continue;
+					}
+					for (int k = 0; k < bucket.size(); k++) {
+						final Entry b = bucket.get(k);
+						// Pairs of moving bodies are passed on from the first one
+						if (b == a || (!b.body.isStatic() && b.index < a.index)
+								|| !b.covers(x, y)
+								|| Math.max(a.minX, b.minX) != x || Math.max(a.minY, b.minY) != y) {
+							continue;
+						}
+						resolve(pContext, a, b, pDelta);
+					}
+				}
+			}
+			for (int k = 0; k < this.large.size(); k++) {
+				final Entry b = this.large.get(k);
+				// Large moving bodies pass on their pairs themselves
+				if (b.body.isStatic()) {
+					resolve(pContext, a, b, pDelta);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Passes the pairs of a large moving body with all other bodies to the
+	 * world, except for large moving bodies that came before.
+	 * @param pContext The world
+	 * @param pEntry The large body
+	 * @param pDelta The time step
+	 */
+	private void pairWithAll(final CollisionContext pContext, final Entry pEntry,
+			final float pDelta) {
+		for (int i = 0; i < this.current.length; i++) {
+			final Entry b = this.current[i];
+			if (b == null) {
+				break;
+			}
+			if (b == pEntry || (b.large && !b.body.isStatic() && b.index < pEntry.index)) {
+				continue;
+			}
+			resolve(pContext, pEntry, b, pDelta);
+		}
+	}
+
+	/**
+	 * Passes a pair of bodies to the world, in the order of the body list.
+	 * @param pContext The world
+	 * @param pA The first body
+	 * @param pB The second body
+	 * @param pDelta The time step
+	 */
+	private void resolve(final CollisionContext pContext, final Entry pA, final Entry pB,
+			final float pDelta) {
+		this.pair.clear();
+		if (pA.index < pB.index) {
+			this.pair.add(pA.body);
+			this.pair.add(pB.body);
+		} else {
+			this.pair.add(pB.body);
+			this.pair.add(pA.body);
+		}
+		pContext.resolve(this.pair, pDelta);
+	}
+
+	/**
+	 * Brings the grid up to date with the bodies of a step. Only bodies that
+	 * cover other cells than in the last step are moved; bodies that are no
+	 * longer in the list are removed.
+	 * @param pBodies The bodies of the step
+	 */
+	private void update(final BodyList pBodies) {
+		this.stamp++;
+		final int count = pBodies.size();
+		if (this.current.length < count + 1) {
+			this.current = new Entry[Math.max(count + 1, this.current.length * 2)];
+		}
+		for (int i = 0; i < count; i++) {
+			final Body body = pBodies.get(i);
+			Entry entry = this.entries.get(body);
+			if (entry == null) {
+				entry = new Entry(body);
+				this.entries.put(body, entry);
+			}
+			entry.index = i;
+			entry.stamp = this.stamp;
+			this.current[i] = entry;
+			move(entry);
+		}
+		this.current[count] = null;
+
+		if (this.entries.size() > count) {
+			for (Iterator<Entry> it = this.entries.values().iterator(); it.hasNext();) {
+				final Entry entry = it.next();
+				if (entry.stamp != this.stamp) {
+					remove(entry);
+					it.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Moves a body to the cells it covers now.
+	 * @param pEntry The entry of the body
+	 */
+	private void move(final Entry pEntry) {
+		final Body body = pEntry.body;
+		final AABox bounds = body.getShape().getBounds();
+		final float x = body.getPosition().getX() + bounds.getOffsetX();
+		final float y = body.getPosition().getY() + bounds.getOffsetY();
+		final int minX = cellOf(x - bounds.getWidth() / 2);
+		final int minY = cellOf(y - bounds.getHeight() / 2);
+		final int maxX = cellOf(x + bounds.getWidth() / 2);
+		final int maxY = cellOf(y + bounds.getHeight() / 2);
+		if (pEntry.inserted && minX == pEntry.minX && minY == pEntry.minY
+				&& maxX == pEntry.maxX && maxY == pEntry.maxY) {
+			return;
+		}
+		remove(pEntry);
+		pEntry.minX = minX;
+		pEntry.minY = minY;
+		pEntry.maxX = maxX;
+		pEntry.maxY = maxY;
+		pEntry.large = ((long)maxX - minX + 1) * ((long)maxY - minY + 1) > MAX_CELLS;
+		pEntry.inserted = true;
+		if (pEntry.large) {
+			this.large.add(pEntry);
+			return;
+		}
+		for (int cy = minY; cy <= maxY; cy++) {
+			for (int cx = minX; cx <= maxX; cx++) {
+				final int b = bucketOf(cx, cy);
+				List<Entry> bucket = this.buckets.get(b);
+				if (bucket == null) {
+					bucket = new ArrayList<Entry>(4);
+					this.buckets.set(b, bucket);
+				}
+				// Cells of a body that share a bucket hold it only once
+				if (!bucket.contains(pEntry)) {
+					bucket.add(pEntry);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes a body from the grid.
+	 * @param pEntry The entry of the body
+	 */
+	private void remove(final Entry pEntry) {
+		if (!pEntry.inserted) {
+			return;
+		}
+		pEntry.inserted = false;
+		if (pEntry.large) {
+			this.large.remove(pEntry);
+			return;
+		}
+		for (int cy = pEntry.minY; cy <= pEntry.maxY; cy++) {
+			for (int cx = pEntry.minX; cx <= pEntry.maxX; cx++) {
+				final List<Entry> bucket = this.buckets.get(bucketOf(cx, cy));
+				if (bucket != null) {
+					bucket.remove(pEntry);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the cell of a coordinate.
+	 * @param pValue The x or y coordinate
+	 * @return The column or row
+	 */
+	private int cellOf(final float pValue) {
+		return (int)Math.floor(pValue / this.cellSize);
+	}
+
+	/**
+	 * Returns the bucket of a cell.
+	 * @param pX The column
+	 * @param pY The row
+	 * @return The bucket index
+	 */
+	private int bucketOf(final int pX, final int pY) {
+		final int hash = pX * HASH_X ^ pY * HASH_Y;
+		return (hash ^ (hash >>> 16)) & this.mask;
+	}
+}
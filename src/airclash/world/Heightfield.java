@@ -0,0 +1,127 @@
+package airclash.world;
+
+import net.phys2d.math.ROVector2f;
+import net.phys2d.math.Vector2f;
+
+/**
+ * The level floor seen as a heightfield: a polyline with ascending x
+ * coordinates. Queries find the segments below a position with a binary
+ * search, so they take O(log n) no matter how detailed the floor is.
+ *
+ * @author Andreas Textor
+ */
+public class Heightfield {
+	/**
+	 * The distance that still counts as touching. This is a bit more than the
+	 * overlap the physics allows, so that a resting wheel is always on ground.
+	 */
+	private static final float CONTACT_TOLERANCE = 1.0f;
+	
+	/** The x coordinates of the floor line, ascending. */
+	private final float[] x;
+	
+	/** The y coordinates of the floor line. */
+	private final float[] y;
+	
+	/**
+	 * Constructor.
+	 * @param pData The floor line, sorted by x
+	 */
+	public Heightfield(final Vector2f[] pData) {
+		this.x = new float[pData.length];
+		this.y = new float[pData.length];
+		for (int i = 0; i < pData.length; i++) {
+			this.x[i] = pData[i].x;
+			this.y[i] = pData[i].y;
+		}
+	}
+	
+	/**
+	 * Returns the segment that contains an x coordinate. Segment i reaches
+	 * from point i to point i + 1. Coordinates outside of the floor are
+	 * mapped to the first or the last segment.
+	 * @param pX The x coordinate
+	 * @return The index of the segment, or -1 if the floor has no segments
+	 */
+	public int segmentAt(final float pX) {
+		final int last = this.x.length - 2;
+		if (last < 0) {
+			return -1;
+		}
+		int low = 0;
+		int high = last;
+		while (low < high) {
+			final int mid = (low + high + 1) >>> 1;
+			if (this.x[mid] <= pX) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+	
+	/**
+	 * Returns the height of the floor at an x coordinate. For vertical
+	 * segments, the height of the higher end is returned.
+	 * @param pX The x coordinate
+	 * @return The height, or 0 if the floor has no segments
+	 */
+	public float heightAt(final float pX) {
+		final int i = segmentAt(pX);
+		if (i < 0) {
+			return 0;
+		}
+		final float dx = this.x[i + 1] - this.x[i];
+		if (dx <= 0) {
+			return Math.max(this.y[i], this.y[i + 1]);
+		}
+		final float t = Math.max(0, Math.min(1, (pX - this.x[i]) / dx));
+		return this.y[i] + t * (this.y[i + 1] - this.y[i]);
+	}
+	
+	/**
+	 * Checks if a circle touches or overlaps the floor. Only the segments
+	 * below the circle are tested.
+	 * @param pCenter The center of the circle
+	 * @param pRadius The radius of the circle
+	 * @return true if the circle touches the floor
+	 */
+	public boolean touches(final ROVector2f pCenter, final float pRadius) {
+		final float cx = pCenter.getX();
+		final float cy = pCenter.getY();
+		final float reach = pRadius + CONTACT_TOLERANCE;
+		int i = segmentAt(cx - reach);
+		if (i < 0) {
+			return false;
+		}
+		for (; i < this.x.length - 1 && this.x[i] <= cx + reach; i++) {
+			if (distanceSquared(i, cx, cy) <= reach * reach) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Returns the squared distance of a point to a segment.
+	 * @param pSegment The index of the segment
+	 * @param pX The x coordinate of the point
+	 * @param pY The y coordinate of the point
+	 * @return The squared distance
+	 */
+	private float distanceSquared(final int pSegment, final float pX, final float pY) {
+		final float ax = this.x[pSegment];
+		final float ay = this.y[pSegment];
+		final float dx = this.x[pSegment + 1] - ax;
+		final float dy = this.y[pSegment + 1] - ay;
+		final float lengthSquared = dx * dx + dy * dy;
+		float t = 0;
+		if (lengthSquared > 0) {
+			t = Math.max(0, Math.min(1, ((pX - ax) * dx + (pY - ay) * dy) / lengthSquared));
+		}
+		final float ex = pX - (ax + t * dx);
+		final float ey = pY - (ay + t * dy);
+		return ex * ex + ey * ey;
+	}
+}
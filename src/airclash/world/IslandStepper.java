@@ -0,0 +1,757 @@
+package airclash.world;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.phys2d.math.ROVector2f;
+import net.phys2d.math.Vector2f;
+import net.phys2d.raw.ArbiterList;
+import net.phys2d.raw.Body;
+import net.phys2d.raw.BodyList;
+import net.phys2d.raw.Joint;
+import net.phys2d.raw.JointList;
+import net.phys2d.raw.World;
+import net.phys2d.raw.shapes.AABox;
+
+/**
+ * Steps the bodies of a world as independent islands, in parallel. Every
+ * tick, the moving bodies are partitioned into islands: bodies that are
+ * connected by a joint, or that are close enough to touch during the tick
+ * and may collide, end up in the same island. Each island is simulated in a
+ * world of its own, which only contains the island's bodies and joints and
+ * copies of the static bodies nearby, so islands never share mutable state
+ * and can be stepped on different threads. The static shapes themselves are
+ * shared read-only. A joint to a static body is stepped in the island of its
+ * moving body. phys2d can't move a joint to another body, so it keeps the
+ * static body of the main world as its anchor; a static body ignores the
+ * impulses of a joint, so it is only read, like the shapes.
+ *
+ * The world that is passed to step() stays the registry of all bodies, but it
+ * is not stepped itself. An island keeps its world as long as it consists of
+ * the same bodies and joints, so that contacts are warm started as usual.
+ * The islands, their lists and the copies of the static bodies are pooled
+ * and reused every tick, so a tick in which the islands stay the same
+ * allocates nothing for them. The result does not depend on the number of
+ * threads.
+ *
+ * @author Andreas Textor
+ */
+public class IslandStepper {
+	/** The distance that bodies may be apart and still be put into one island. */
+	private static final float MARGIN = 10.0f;
+
+	/** The time phys2d advances per world step in seconds. */
+	private static final float STEP_TIME = 1.0f / 60.0f;
+
+	/** The number of solver iterations of the island worlds. */
+	private static final int ITERATIONS = 10;
+
+	/** The gravity of the island worlds. */
+	private final Vector2f gravity;
+
+	/** The number of world steps per tick. */
+	private final int substeps;
+
+	/** The broadphase of the island worlds. */
+	private Broadphase broadphase = Broadphase.QUADSPACE;
+
+	/** The level the broadphase is created for. */
+	private LevelDescription level = null;
+
+	/** The number of threads that step the islands. */
+	private int threads = 1;
+
+	/** The pool of the helper threads, or null if only one thread is used. */
+	private ExecutorService pool = null;
+
+	/** The workers that are passed to the pool, one per helper thread. */
+	private final List<Callable<Object>> workers = new ArrayList<Callable<Object>>();
+
+	/** The pending results of the workers, reused every tick. */
+	private final List<Future<Object>> results = new ArrayList<Future<Object>>();
+
+	/** The index of the next island that a worker takes. */
+	private final AtomicInteger next = new AtomicInteger();
+
+	/** The islands of the last tick, ordered by their first body. */
+	private List<Island> islands = new ArrayList<Island>();
+
+	/** The islands of the tick before, swapped with islands every tick. */
+	private List<Island> oldIslands = new ArrayList<Island>();
+
+	/** The islands that are not used, to be reused. */
+	private final List<Island> freeIslands = new ArrayList<Island>();
+
+	/** The islands of the last tick by their first body. */
+	private Map<Body, Island> byFirstBody = new IdentityHashMap<Body, Island>();
+
+	/** The islands of the tick before by their first body. */
+	private Map<Body, Island> oldByFirstBody = new IdentityHashMap<Body, Island>();
+
+	/**
+	 * All copies of each static body. A copy is used by at most one island
+	 * per tick, so a static body that several islands reach has several.
+	 */
+	private final Map<Body, List<Body>> staticCopies = new IdentityHashMap<Body, List<Body>>();
+
+	/** The copies that an island uses in the current tick. */
+	private final Map<Body, Boolean> usedCopies = new IdentityHashMap<Body, Boolean>();
+
+	/** The moving bodies of the current tick, in the order of the world. */
+	private Body[] bodies = new Body[0];
+
+	/** The index of each moving body in the bodies array. */
+	private final Map<Body, Integer> indexOf = new IdentityHashMap<Body, Integer>();
+
+	/** The static bodies of the world. */
+	private final List<Body> statics = new ArrayList<Body>();
+
+	/** The parent of each body in the union find structure. */
+	private int[] parent = new int[0];
+
+	/** The bounds of the bodies, grown by the distance they may move. */
+	private float[] minX = new float[0];
+
+	/** The right edges of the grown bounds. */
+	private float[] maxX = new float[0];
+
+	/** The bottom edges of the grown bounds. */
+	private float[] minY = new float[0];
+
+	/** The top edges of the grown bounds. */
+	private float[] maxY = new float[0];
+
+	/**
+	 * The bodies sorted by minX. This is kept between ticks, the bodies move
+	 * only a little, so the insertion sort has hardly anything to do.
+	 */
+	private int[] order = new int[0];
+
+	/** The island of each union find root, scratch space for grouping. */
+	private int[] islandOf = new int[0];
+
+	/**
+	 * A group of bodies that is simulated in its own world.
+	 * @author Andreas Textor
+	 */
+	private static final class Island {
+		/** The moving bodies, in the order of the main world. */
+		private final List<Body> members = new ArrayList<Body>();
+
+		/** The joints between the members and from the members to static bodies. */
+		private final List<Joint> joints = new ArrayList<Joint>();
+
+		/** The static bodies of the main world near the island. */
+		private final List<Body> templates = new ArrayList<Body>();
+
+		/** The copies of the static bodies in the world of this island. */
+		private final Map<Body, Body> copies = new IdentityHashMap<Body, Body>();
+
+		/** The world of this island. */
+		private World world;
+
+		/** The collision strategy of the world. */
+		private FilteredCollisionStrategy strategy;
+
+		/** The counters of the last tick of this island. */
+		private final PhysicsStats stats;
+
+		/** true if the world of the last tick is kept. */
+		private boolean kept;
+
+		/** The left edge of the island including the margins. */
+		private float minX = Float.MAX_VALUE;
+
+		/** The right edge of the island. */
+		private float maxX = -Float.MAX_VALUE;
+
+		/** The bottom edge of the island. */
+		private float minY = Float.MAX_VALUE;
+
+		/** The top edge of the island. */
+		private float maxY = -Float.MAX_VALUE;
+
+		/**
+		 * Constructor.
+		 * @param pSubsteps The number of world steps per tick
+		 */
+		Island(final int pSubsteps) {
+			this.stats = new PhysicsStats(pSubsteps);
+		}
+
+		/**
+		 * Empties the island, so it can be reused.
+		 */
+		void reset() {
+			this.members.clear();
+			this.joints.clear();
+			this.templates.clear();
+			this.copies.clear();
+			this.world = null;
+			this.strategy = null;
+			this.kept = false;
+			this.minX = Float.MAX_VALUE;
+			this.maxX = -Float.MAX_VALUE;
+			this.minY = Float.MAX_VALUE;
+			this.maxY = -Float.MAX_VALUE;
+		}
+	}
+
+	/**
+	 * Constructor.
+	 * @param pGravity The gravity of the world
+	 * @param pSubsteps The number of world steps per tick
+	 */
+	public IslandStepper(final ROVector2f pGravity, final int pSubsteps) {
+		this.gravity = new Vector2f(pGravity);
+		this.substeps = pSubsteps;
+	}
+
+	/**
+	 * Sets the number of threads that step the islands. The calling thread
+	 * is one of them.
+	 * @param pThreads The number of threads, at least 1
+	 */
+	public void setThreads(final int pThreads) {
+		final int count = Math.max(1, pThreads);
+		if (count == this.threads) {
+			return;
+		}
+		shutdown();
+		this.threads = count;
+		if (count == 1) {
+			return;
+		}
+		this.pool = Executors.newFixedThreadPool(count - 1, new ThreadFactory() {
+			/** The number of the last thread. */
+			private int number = 0;
+
+			/**
+			 * {@inheritDoc}
+			 */
+			public Thread newThread(final Runnable pTask) {
+				final Thread thread = new Thread(pTask, "Physics-" + (++this.number));
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		for (int i = 0; i < count - 1; i++) {
+			this.workers.add(new Callable<Object>() {
+				/**
+				 * {@inheritDoc}
+				 */
+				@SuppressWarnings("synthetic-access")
+				public Object call() {
+					stepIslands();
+					return null;
+				}
+			});
+		}
+	}
+
+	/**
+	 * Sets the broadphase strategy of the island worlds. The islands are
+	 * rebuilt with new worlds in the next step.
+	 * @param pBroadphase The broadphase
+	 * @param pLevel The level the strategies are created for
+	 */
+	public void setBroadphase(final Broadphase pBroadphase, final LevelDescription pLevel) {
+		this.broadphase = pBroadphase;
+		this.level = pLevel;
+		clear();
+	}
+
+	/**
+	 * Returns the number of threads that step the islands.
+	 * @return The thread count
+	 */
+	public int getThreads() {
+		return this.threads;
+	}
+
+	/**
+	 * Stops the helper threads. The stepper continues on the calling thread
+	 * only.
+	 */
+	public void shutdown() {
+		if (this.pool != null) {
+			this.pool.shutdown();
+			this.pool = null;
+		}
+		this.workers.clear();
+		this.threads = 1;
+	}
+
+	/**
+	 * Forgets all islands, e.g. when the world was reset.
+	 */
+	public void clear() {
+		for (Island island : this.islands) {
+			island.reset();
+			this.freeIslands.add(island);
+		}
+		this.islands.clear();
+		this.byFirstBody.clear();
+		this.staticCopies.clear();
+	}
+
+	/**
+	 * Advances the bodies of a world by one tick.
+	 * @param pWorld The world that contains all bodies and joints
+	 * @param pStats The stats the counters of all islands are added to
+	 */
+	public void step(final World pWorld, final PhysicsStats pStats) {
+		buildIslands(pWorld);
+
+		this.next.set(0);
+		if (this.pool == null || this.islands.size() < 2) {
+			stepIslands();
+			addStats(pStats);
+			return;
+		}
+		this.results.clear();
+		for (int i = 0; i < this.workers.size(); i++) {
+			this.results.add(this.pool.submit(this.workers.get(i)));
+		}
+		RuntimeException error = null;
+		try {
+			stepIslands();
+		} catch (RuntimeException e) {
+			error = e;
+		}
+		// All workers must be finished before the bodies are touched again,
+		// so an interrupt is only passed on afterwards
+		boolean interrupted = false;
+		for (int i = 0; i < this.results.size(); i++) {
+			final Future<Object> result = this.results.get(i);
+			boolean done = false;
+			while (!done) {
+				try {
+					result.get();
+					done = true;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					if (error == null) {
+						error = e.getCause() instanceof RuntimeException
+							? (RuntimeException)e.getCause()
+							: new IllegalStateException(e.getCause());
+					}
+					done = true;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		if (error != null) {
+			throw error;
+		}
+		addStats(pStats);
+	}
+
+	/**
+	 * Adds the counters of all islands, in the order of the islands.
+	 * @param pStats The stats of the tick
+	 */
+	private void addStats(final PhysicsStats pStats) {
+		for (int i = 0; i < this.islands.size(); i++) {
+			pStats.addAll(this.islands.get(i).stats);
+		}
+	}
+
+	/**
+	 * Takes islands and steps them until all islands are done. This is run
+	 * by all threads at the same time, so large and small islands are spread
+	 * over the threads as they finish.
+	 */
+	private void stepIslands() {
+		final List<Island> list = this.islands;
+		for (int i = this.next.getAndIncrement(); i < list.size();
+				i = this.next.getAndIncrement()) {
+			final Island island = list.get(i);
+			island.stats.clear();
+			for (int s = 0; s < this.substeps; s++) {
+				island.stats.step(island.world, island.strategy, s);
+			}
+		}
+	}
+
+	/**
+	 * Partitions the moving bodies of the world into islands and prepares
+	 * the worlds of the islands.
+	 * @param pWorld The world that contains all bodies and joints
+	 */
+	private void buildIslands(final World pWorld) {
+		collectBodies(pWorld.getBodies());
+		final int count = this.bodies.length;
+		for (int i = 0; i < count; i++) {
+			this.parent[i] = i;
+		}
+
+		final JointList joints = pWorld.getJoints();
+		for (int i = 0; i < joints.size(); i++) {
+			final Integer a = this.indexOf.get(joints.get(i).getBody1());
+			final Integer b = this.indexOf.get(joints.get(i).getBody2());
+			if (a != null && b != null) {
+				union(a.intValue(), b.intValue());
+			}
+		}
+
+		// Sweep along the x axis over the bodies that may touch
+		sortByMinX();
+		for (int i = 0; i < count; i++) {
+			final int a = this.order[i];
+			final CollisionFilter filter = CollisionFilter.of(this.bodies[a]);
+			for (int j = i + 1; j < count && this.minX[this.order[j]] <= this.maxX[a]; j++) {
+				final int b = this.order[j];
+				if (this.minY[b] <= this.maxY[a] && this.maxY[b] >= this.minY[a]
+						&& filter.collidesWith(CollisionFilter.of(this.bodies[b]))) {
+					union(a, b);
+				}
+			}
+		}
+
+		// Group the bodies, the islands are ordered by their first body
+		final List<Island> groups = this.oldIslands;
+		for (int i = 0; i < count; i++) {
+			final int root = find(i);
+			if (root == i) {
+				this.islandOf[i] = groups.size();
+				groups.add(obtainIsland());
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			final Island island = groups.get(this.islandOf[find(i)]);
+			island.members.add(this.bodies[i]);
+			island.minX = Math.min(island.minX, this.minX[i]);
+			island.maxX = Math.max(island.maxX, this.maxX[i]);
+			island.minY = Math.min(island.minY, this.minY[i]);
+			island.maxY = Math.max(island.maxY, this.maxY[i]);
+		}
+		for (int i = 0; i < joints.size(); i++) {
+			final Joint joint = joints.get(i);
+			final Integer a = this.indexOf.get(joint.getBody1());
+			final Integer b = this.indexOf.get(joint.getBody2());
+			if (a != null && (b != null || joint.getBody2().isStatic())) {
+				groups.get(this.islandOf[find(a.intValue())]).joints.add(joint);
+			} else if (b != null && joint.getBody1().isStatic()) {
+				groups.get(this.islandOf[find(b.intValue())]).joints.add(joint);
+			}
+		}
+		for (int i = 0; i < groups.size(); i++) {
+			final Island island = groups.get(i);
+			for (int j = 0; j < this.statics.size(); j++) {
+				final Body s = this.statics.get(j);
+				if (overlaps(s, island)) {
+					island.templates.add(s);
+				}
+			}
+		}
+
+		// The kept worlds take back their copies first, the other islands
+		// get the copies that are left
+		this.usedCopies.clear();
+		final Map<Body, Island> firstBodies = this.oldByFirstBody;
+		for (int i = 0; i < groups.size(); i++) {
+			final Island island = groups.get(i);
+			keepWorld(island, this.byFirstBody.get(island.members.get(0)));
+			firstBodies.put(island.members.get(0), island);
+		}
+		for (int i = 0; i < groups.size(); i++) {
+			prepareWorld(groups.get(i));
+		}
+
+		for (int i = 0; i < this.islands.size(); i++) {
+			final Island old = this.islands.get(i);
+			old.reset();
+			this.freeIslands.add(old);
+		}
+		this.islands.clear();
+		this.byFirstBody.clear();
+		this.oldIslands = this.islands;
+		this.oldByFirstBody = this.byFirstBody;
+		this.islands = groups;
+		this.byFirstBody = firstBodies;
+	}
+
+	/**
+	 * Returns an empty island, from the unused ones if possible.
+	 * @return The island
+	 */
+	private Island obtainIsland() {
+		final int free = this.freeIslands.size();
+		if (free == 0) {
+			return new Island(this.substeps);
+		}
+		return this.freeIslands.remove(free - 1);
+	}
+
+	/**
+	 * Separates the bodies of the world into moving and static ones and
+	 * computes the grown bounds of the moving bodies.
+	 * @param pBodies The bodies of the world
+	 */
+	private void collectBodies(final BodyList pBodies) {
+		this.statics.clear();
+		this.indexOf.clear();
+		int count = 0;
+		for (int i = 0; i < pBodies.size(); i++) {
+			if (!pBodies.get(i).isStatic()) {
+				count++;
+			}
+		}
+		if (count != this.bodies.length) {
+			this.bodies = new Body[count];
+			this.parent = new int[count];
+			this.minX = new float[count];
+			this.maxX = new float[count];
+			this.minY = new float[count];
+			this.maxY = new float[count];
+			this.islandOf = new int[count];
+			this.order = new int[count];
+			for (int i = 0; i < count; i++) {
+				this.order[i] = i;
+			}
+		}
+
+		final float horizon = this.substeps * STEP_TIME;
+		int n = 0;
+		for (int i = 0; i < pBodies.size(); i++) {
+			final Body b = pBodies.get(i);
+			if (b.isStatic()) {
+				this.statics.add(b);
+				continue;
+			}
+			this.bodies[n] = b;
+			this.indexOf.put(b, Integer.valueOf(n));
+			final AABox bounds = b.getShape().getBounds();
+			final float reach = MARGIN + b.getVelocity().length() * horizon;
+			final float halfWidth = bounds.getWidth() / 2 + reach;
+			final float halfHeight = bounds.getHeight() / 2 + reach;
+			this.minX[n] = b.getPosition().getX() - halfWidth;
+			this.maxX[n] = b.getPosition().getX() + halfWidth;
+			this.minY[n] = b.getPosition().getY() - halfHeight;
+			this.maxY[n] = b.getPosition().getY() + halfHeight;
+			n++;
+		}
+	}
+
+	/**
+	 * Sorts the order array by the left edges of the bodies.
+	 */
+	private void sortByMinX() {
+		for (int i = 1; i < this.order.length; i++) {
+			final int body = this.order[i];
+			final float x = this.minX[body];
+			int j = i - 1;
+			while (j >= 0 && this.minX[this.order[j]] > x) {
+				this.order[j + 1] = this.order[j];
+				j--;
+			}
+			this.order[j + 1] = body;
+		}
+	}
+
+	/**
+	 * Returns the root of a body in the union find structure.
+	 * @param pBody The index of the body
+	 * @return The index of the root
+	 */
+	private int find(final int pBody) {
+		int root = pBody;
+		while (this.parent[root] != root) {
+			root = this.parent[root];
+		}
+		// Path compression
+		int i = pBody;
+		while (this.parent[i] != root) {
+			final int up = this.parent[i];
+			this.parent[i] = root;
+			i = up;
+		}
+		return root;
+	}
+
+	/**
+	 * Joins the sets of two bodies. The smaller index becomes the root, so
+	 * every root is the first body of its island.
+	 * @param pA The index of the first body
+	 * @param pB The index of the second body
+	 */
+	private void union(final int pA, final int pB) {
+		final int a = find(pA);
+		final int b = find(pB);
+		if (a < b) {
+			this.parent[b] = a;
+		} else if (b < a) {
+			this.parent[a] = b;
+		}
+	}
+
+	/**
+	 * Checks if a static body overlaps the area of an island.
+	 * @param pBody The static body
+	 * @param pIsland The island
+	 * @return true if the body may touch a body of the island
+	 */
+	private static boolean overlaps(final Body pBody, final Island pIsland) {
+		final AABox bounds = pBody.getShape().getBounds();
+		final float x = pBody.getPosition().getX();
+		final float y = pBody.getPosition().getY();
+		return x - bounds.getWidth() / 2 <= pIsland.maxX
+			&& x + bounds.getWidth() / 2 >= pIsland.minX
+			&& y - bounds.getHeight() / 2 <= pIsland.maxY
+			&& y + bounds.getHeight() / 2 >= pIsland.minY;
+	}
+
+	/**
+	 * Lets an island take over the world of the last tick if it has the same
+	 * bodies and joints. The island takes back the copies of the static
+	 * bodies it still reaches, the others are removed from the world.
+	 * @param pIsland The island
+	 * @param pPrevious The island of the last tick with the same first body,
+	 * may be null
+	 */
+	private void keepWorld(final Island pIsland, final Island pPrevious) {
+		if (pPrevious == null || !pPrevious.members.equals(pIsland.members)
+				|| !pPrevious.joints.equals(pIsland.joints)) {
+			return;
+		}
+		pIsland.world = pPrevious.world;
+		pIsland.strategy = pPrevious.strategy;
+		pIsland.kept = true;
+		for (int i = 0; i < pIsland.templates.size(); i++) {
+			final Body template = pIsland.templates.get(i);
+			final Body copy = pPrevious.copies.remove(template);
+			if (copy != null) {
+				pIsland.copies.put(template, copy);
+				this.usedCopies.put(copy, Boolean.TRUE);
+			}
+		}
+		// The copies that are left are those of the templates of the last
+		// tick that the island doesn't reach any more
+		for (int i = 0; i < pPrevious.templates.size(); i++) {
+			final Body unused = pPrevious.copies.get(pPrevious.templates.get(i));
+			if (unused != null) {
+				pIsland.world.remove(unused);
+			}
+		}
+		pPrevious.copies.clear();
+	}
+
+	/**
+	 * Gives an island its world. A kept world only gets the copies of the
+	 * static bodies that it reaches now, otherwise a new world is created.
+	 * @param pIsland The island
+	 */
+	private void prepareWorld(final Island pIsland) {
+		if (pIsland.kept) {
+			for (int i = 0; i < pIsland.templates.size(); i++) {
+				final Body template = pIsland.templates.get(i);
+				if (!pIsland.copies.containsKey(template)) {
+					final Body copy = obtainCopy(template);
+					pIsland.copies.put(template, copy);
+					pIsland.world.add(copy);
+				}
+			}
+			return;
+		}
+
+		// The bodies stay added to the world of the last tick, which is
+		// dropped; removing them would clear their added flag
+		final FilteredCollisionStrategy strategy =
+			new FilteredCollisionStrategy(this.broadphase.create(this.level));
+		final World world = new World(this.gravity, ITERATIONS, strategy);
+		world.enableRestingBodyDetection(1, 1, 1);
+		for (int i = 0; i < pIsland.templates.size(); i++) {
+			final Body template = pIsland.templates.get(i);
+			final Body copy = obtainCopy(template);
+			pIsland.copies.put(template, copy);
+			world.add(copy);
+		}
+		for (int i = 0; i < pIsland.members.size(); i++) {
+			world.add(pIsland.members.get(i));
+		}
+		for (int i = 0; i < pIsland.joints.size(); i++) {
+			world.add(pIsland.joints.get(i));
+		}
+		pIsland.world = world;
+		pIsland.strategy = strategy;
+	}
+
+	/**
+	 * Returns a copy of a static body that no island uses in this tick, and
+	 * marks it as used. New copies are only created if all copies are used.
+	 * @param pTemplate The static body
+	 * @return The copy
+	 */
+	private Body obtainCopy(final Body pTemplate) {
+		List<Body> copies = this.staticCopies.get(pTemplate);
+		if (copies == null) {
+			copies = new ArrayList<Body>(1);
+			this.staticCopies.put(pTemplate, copies);
+		}
+		Body copy = null;
+		for (int i = 0; i < copies.size() && copy == null; i++) {
+			if (!this.usedCopies.containsKey(copies.get(i))) {
+				copy = copies.get(i);
+			}
+		}
+		if (copy == null) {
+			copy = copyStatic(pTemplate);
+			copies.add(copy);
+		} else {
+			// The copy may come from a dropped world where it was resting
+			copy.setIsResting(false);
+		}
+		this.usedCopies.put(copy, Boolean.TRUE);
+		return copy;
+	}
+
+	/**
+	 * Creates a copy of a static body that shares its shape. phys2d keeps
+	 * the contacts of a step in every body, so a static body can't be used
+	 * by two worlds at the same time.
+	 * @param pTemplate The static body
+	 * @return The copy
+	 */
+	private static Body copyStatic(final Body pTemplate) {
+		final Body copy = Bodies.createStatic(pTemplate.getShape());
+		copy.setPosition(pTemplate.getPosition().getX(), pTemplate.getPosition().getY());
+		copy.setRotation(pTemplate.getRotation());
+		copy.setFriction(pTemplate.getFriction());
+		copy.setRestitution(pTemplate.getRestitution());
+		copy.setUserData(pTemplate.getUserData());
+		return copy;
+	}
+
+	/**
+	 * Returns the arbiters of all islands, for drawing the contacts.
+	 * @return The arbiter lists
+	 */
+	public List<ArbiterList> getArbiters() {
+		final List<ArbiterList> result = new ArrayList<ArbiterList>(this.islands.size());
+		for (Island island : this.islands) {
+			result.add(island.world.getArbiters());
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of islands of the last tick.
+	 * @return The island count
+	 */
+	public int getNumIslands() {
+		return this.islands.size();
+	}
+}
@@ -1,20 +1,19 @@
 package airclash.world;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
 
 import net.phys2d.math.Vector2f;
-import net.phys2d.raw.Arbiter;
 import net.phys2d.raw.ArbiterList;
 import net.phys2d.raw.Body;
-import net.phys2d.raw.Contact;
+import net.phys2d.raw.BodyList;
 import net.phys2d.raw.Joint;
-import net.phys2d.raw.StaticBody;
 import net.phys2d.raw.World;
 import net.phys2d.raw.shapes.Box;
-import net.phys2d.raw.shapes.ConvexPolygon;
-import net.phys2d.raw.shapes.Polygon;
-import net.phys2d.raw.strategies.QuadSpaceStrategy;
 import airclash.system.Core;
 import airclash.system.Properties;
 import airclash.system.exceptions.InvalidResourceException;
@@ -23,6 +22,7 @@ import airclash.system.gfx.Texture;
 import airclash.system.gfx.TextureLoader;
 import airclash.system.xml.LevelLoader;
 import airclash.units.IUnit;
+import airclash.units.IVehicle;
 
 /**
  * Level is reponsible for maintaining and drawing the world.
@@ -39,21 +39,147 @@ public class Level {
 	/** The physical world. */
 	private World world;
 	
-	/** The parts that make up the level. */
-	private List<Body> levelParts;
+	/**
+	 * The collision strategy of the world, which counts the pairs. It is
+	 * replaced by the broadphase of the level when a level is loaded.
+	 */
+	private FilteredCollisionStrategy collisions =
+		new FilteredCollisionStrategy(Broadphase.QUADSPACE.create(null));
+	
+	/**
+	 * The parts that make up the level floor. The array is replaced, not
+	 * modified, when the level is rebuilt, so it can be drawn from another
+	 * thread.
+	 */
+	private volatile TerrainChunk[] levelParts = new TerrainChunk[0];
+	
+	/** The floor of the level as heightfield, for fast ground queries. */
+	private Heightfield heightfield;
 	
 	/** The texture of the polygons. */
 	private Texture texture;
 	
+	/** The number of world steps that make up one tick. */
+	private static final int SUBSTEPS = 5;
+	
+	/** The gravity of the world. */
+	private static final Vector2f GRAVITY = new Vector2f(0, -10);
+	
+	/**
+	 * Steps the world as independent islands on several threads, unless the
+	 * number of physics threads is 0.
+	 */
+	private final IslandStepper islands = new IslandStepper(GRAVITY, SUBSTEPS);
+	
+	/**
+	 * Factor of the chunk radius that chunks may be away from all bodies
+	 * before they are deactivated. Activating and deactivating at different
+	 * distances keeps bodies near a boundary from switching chunks on and
+	 * off all the time.
+	 */
+	private static final float CHUNK_HYSTERESIS = 0.5f;
+	
+	/** The distance around resting bodies where chunks are kept active. */
+	private static final float RESTING_MARGIN = 20.0f;
+	
+	/**
+	 * The bodies and joints of units that were added to the world. This
+	 * replaces the linear contains() of the phys2d lists.
+	 */
+	private final Map<Object, Boolean> members = new IdentityHashMap<Object, Boolean>();
+	
+	/**
+	 * The units in the world, with the number of their body parts and joints
+	 * that were added so far, and the selected unit.
+	 */
+	private final UnitRegistry units = new UnitRegistry();
+	
+	/**
+	 * The chunks that are part of the physical world. Only the simulation
+	 * uses this.
+	 */
+	private final List<TerrainChunk> activeChunks = new ArrayList<TerrainChunk>();
+	
+	/**
+	 * The width of the floor that is merged into one static body. The floor
+	 * is split into chunks of about this width, all of the same width, so
+	 * the chunk at an x coordinate is found without a search. Wider chunks
+	 * mean less bodies in the broadphase, narrower chunks less edges per
+	 * collision test.
+	 */
+	private static final float CHUNK_WIDTH = 256.0f;
+	
+	/**
+	 * The radius around moving bodies where chunks are activated. It is read
+	 * from the properties when the level is initialized.
+	 */
+	private float chunkRadius = 0;
+	
+	/** Counts the chunk updates, to mark the chunks near bodies. */
+	private long chunkPass = 0;
+	
+	/** The number of threads that step the islands, 0 to step the whole world at once. */
+	private final int threads;
+	
+	/** The number of ticks since the last init. */
+	private long tick = 0;
+	
+	/** Counts the inits, so that old snapshots are not restored. */
+	private int generation = 0;
+	
+	/** Offset basis of the 64 bit FNV-1a hash. */
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	
+	/** Prime of the 64 bit FNV-1a hash. */
+	private static final long FNV_PRIME = 0x100000001b3L;
+	
+	/**
+	 * The latest published state of the world. The simulation replaces this
+	 * after every tick, the renderer takes it with acquireState().
+	 */
+	private volatile WorldState state = WorldState.EMPTY;
+	
+	/** All states that were published, they are reused once nobody holds them. */
+	private final List<WorldState> states = new ArrayList<WorldState>();
+	
+	/** All snapshots that were captured, they are reused like the states. */
+	private final List<WorldSnapshot> snapshots = new ArrayList<WorldSnapshot>();
+	
+	/** The physics counters of the current tick, reused every tick. */
+	private final PhysicsStats counters = new PhysicsStats(SUBSTEPS);
+	
+	/** The lock that the published counters are copied under. */
+	private final Object statsLock = new Object();
+	
+	/** The physics counters of the last tick. */
+	private final PhysicsStats stats = new PhysicsStats(SUBSTEPS);
+	
+	/** false before the first tick. */
+	private boolean hasStats = false;
+	
+	/**
+	 * The physics counters of the tick with the longest wall time since the
+	 * last resetPeakStats().
+	 */
+	private final PhysicsStats peakStats = new PhysicsStats(SUBSTEPS);
+	
+	/** false if no tick was stepped since the last resetPeakStats(). */
+	private boolean hasPeakStats = false;
+	
 	/**
 	 * Constructor.
+	 * @param pThreads The number of threads that step the physics islands,
+	 * 0 to step the whole world at once
 	 * @throws InvalidResourceException Thrown when a texture can't be loaded
 	 */
-	public Level() throws InvalidResourceException {
-		this.levelParts = new LinkedList<Body>();
-		this.world = new World(new Vector2f(0.0f, 10.0f), 10, new QuadSpaceStrategy(20, 5));
+	public Level(final int pThreads) throws InvalidResourceException {
+		this.world = new World(new Vector2f(0.0f, 10.0f), 10, this.collisions);
 		this.world.enableRestingBodyDetection(1, 1, 1);
 		this.texture = TextureLoader.getInstance().getTexture("brick");
+		this.threads = Math.max(0, pThreads);
+		if (this.threads > 0) {
+			this.islands.setThreads(this.threads);
+		}
 	}
 	
 	/**
@@ -72,7 +198,21 @@ public class Level {
 	public void load(final String pLevel) throws InvalidResourceException {
 		Core.LOGGER.info("Loading level " + pLevel);
 		final LevelLoader levelLoader = new LevelLoader(pLevel);
-		this.description = levelLoader.getDescription();
+		load(levelLoader.getDescription());
+	}
+	
+	/**
+	 * Uses an already loaded level description for this instance. The
+	 * description is only read, so several levels may share it.
+	 * @param pDescription The level description
+	 */
+	public void load(final LevelDescription pDescription) {
+		this.description = pDescription;
+		this.heightfield = new Heightfield(this.description.getGeometry());
+		this.collisions = new FilteredCollisionStrategy(
+				pDescription.getBroadphase().create(pDescription));
+		this.world.setCollisionStrategy(this.collisions);
+		this.islands.setBroadphase(pDescription.getBroadphase(), pDescription);
 	}
 	
 	/**
@@ -82,65 +222,182 @@ public class Level {
 		this.world.clear();
 		this.world.getJoints().clear();
 		this.world.getArbiters().clear();
-		this.world.setGravity(0, -10);
+		this.world.setGravity(GRAVITY.getX(), GRAVITY.getY());
+		this.islands.clear();
+		this.tick = 0;
+		this.generation++;
+		this.activeChunks.clear();
+		this.members.clear();
+		this.units.clear();
+		this.chunkRadius = Core.PROPERTIES.getInt(Properties.Prop.CHUNKRADIUS);
 		buildLevel(this.description.getGeometry());
 	}
 	
 	/**
 	 * Adds a unit to the world, e.g. makes it a part of physical and
 	 * rendered world. After that, the unit's setup() method is called.
+	 * If the unit was added before, only the body parts and joints that
+	 * were appended to its lists since then are added, so adding a module
+	 * to a large building costs as much as adding it to a small one.
 	 * @param pUnit The unit
 	 */
 	public void addUnit(final IUnit pUnit) {
 		if (pUnit == null) {
 			return;
 		}
-		if (pUnit.getBodyParts() != null) {
-			for (Body b : pUnit.getBodyParts()) {
-				if (!this.world.getBodies().contains(b)) {
+		final boolean first = this.units.indexOf(pUnit) < 0;
+		final int index = this.units.add(pUnit);
+		final List<Body> parts = pUnit.getBodyParts();
+		if (parts != null) {
+			// The parts are expected to be appended only; if the list
+			// shrank, start over, the index skips the known parts
+			final int added = parts.size() < this.units.getParts(index)
+				? 0 : this.units.getParts(index);
+			for (ListIterator<Body> it = parts.listIterator(added); it.hasNext();) {
+				final Body b = it.next();
+				if (this.members.put(b, Boolean.TRUE) == null) {
 					this.world.add(b);
 				}
 			}
+			this.units.setParts(index, parts.size());
+		}
+		final List<Joint> joints = pUnit.getJoints();
+		if (joints != null) {
+			final int added = joints.size() < this.units.getJoints(index)
+				? 0 : this.units.getJoints(index);
+			for (ListIterator<Joint> it = joints.listIterator(added); it.hasNext();) {
+				final Joint j = it.next();
+				if (this.members.put(j, Boolean.TRUE) == null) {
+					this.world.add(j);
+				}
+			}
+			this.units.setJoints(index, joints.size());
+		}
+		if (first) {
+			if (pUnit instanceof IVehicle) {
+				((IVehicle)pUnit).setGround(this.heightfield);
+			}
+			pUnit.setup();
+		}
+	}
+	
+	/**
+	 * Removes a unit from the world, with all its body parts and joints.
+	 * @param pUnit The unit
+	 */
+	public void removeUnit(final IUnit pUnit) {
+		if (!this.units.remove(pUnit)) {
+			return;
 		}
 		if (pUnit.getJoints() != null) {
 			for (Joint j : pUnit.getJoints()) {
-				if (!this.world.getJoints().contains(j)) {
-					this.world.add(j);
+				if (this.members.remove(j) != null) {
+					this.world.remove(j);
+				}
+			}
+		}
+		if (pUnit.getBodyParts() != null) {
+			for (Body b : pUnit.getBodyParts()) {
+				if (this.members.remove(b) != null) {
+					this.world.remove(b);
 				}
 			}
 		}
-		pUnit.setup();
+	}
+	
+	/**
+	 * Puts a new body of a unit into the world in place of an old one, e.g.
+	 * when a building was rebuilt as a body of another shape. Nothing
+	 * happens if the old body is not a part of a unit in the world.
+	 * @param pOld The old body
+	 * @param pNew The new body, which the unit now lists instead of the old one
+	 */
+	public void replaceBody(final Body pOld, final Body pNew) {
+		if (pOld == pNew || this.members.remove(pOld) == null) {
+			return;
+		}
+		this.world.remove(pOld);
+		if (this.members.put(pNew, Boolean.TRUE) == null) {
+			this.world.add(pNew);
+		}
+	}
+	
+	/**
+	 * Returns the units in the world.
+	 * @return The unit registry
+	 */
+	public UnitRegistry getUnits() {
+		return this.units;
+	}
+	
+	/**
+	 * Returns the floor of the level as heightfield.
+	 * @return The heightfield
+	 */
+	public Heightfield getHeightfield() {
+		return this.heightfield;
 	}
 
 	/**
 	 * Creates a floor from n coordinates. The coordinates represent the
-	 * nodes of the floor top line. The floor is built out of n-1 convex
-	 * rhomboids.
+	 * nodes of the floor top line. The floor is cut into chunks of the same
+	 * width, about CHUNK_WIDTH, each one static body, so that the number of
+	 * bodies stays small even for detailed floors. The floor line gets an
+	 * additional node where a segment crosses the edge of a chunk. The
+	 * chunks are only added to the world when a body comes near, see
+	 * updateChunks().
 	 * 
 	 * @param pData The coordinates
 	 */
 	private void buildLevel(final Vector2f... pData) {
-		this.levelParts.clear();
-		for (int i = 1; i < pData.length; i++) {
-			final Vector2f[] verts = {
-					new Vector2f(pData[i].x, 0),
-					new Vector2f(pData[i].x, pData[i].y),
-					new Vector2f(pData[i - 1].x, pData[i - 1].y),
-					new Vector2f(pData[i - 1].x, 0)
-			};
-			final ConvexPolygon rhomboid = new ConvexPolygon(verts);
-			final Body rBody = new StaticBody("ground" + i, rhomboid);
-			this.levelParts.add(rBody);
-			this.world.add(rBody);
+		final float minX = pData[0].x;
+		final float levelWidth = pData[pData.length - 1].x - minX;
+		final int count = Math.max(1, Math.round(levelWidth / CHUNK_WIDTH));
+		final float width = levelWidth / count;
+		final TerrainChunk[] parts = new TerrainChunk[count];
+		int next = 0;
+		for (int i = 0; i < count; i++) {
+			final float left = minX + i * width;
+			final float right = i == count - 1 ? pData[pData.length - 1].x : left + width;
+			while (next < pData.length && pData[next].x < left) {
+				next++;
+			}
+			int end = next;
+			while (end < pData.length && pData[end].x <= right) {
+				end++;
+			}
+			final boolean addLeft = next == pData.length || pData[next].x > left;
+			final boolean addRight = end == 0 || pData[end - 1].x < right;
+			final int points = end - next + (addLeft ? 1 : 0) + (addRight ? 1 : 0);
+			final float[] floorX = new float[points];
+			final float[] floorY = new float[points];
+			int p = 0;
+			if (addLeft) {
+				floorX[p] = left;
+				floorY[p++] = this.heightfield.heightAt(left);
+			}
+			for (int j = next; j < end; j++) {
+				floorX[p] = pData[j].x;
+				floorY[p++] = pData[j].y;
+			}
+			if (addRight) {
+				floorX[p] = right;
+				floorY[p] = this.heightfield.heightAt(right);
+			}
+			parts[i] = new TerrainChunk("ground" + i, floorX, floorY);
 		}
+		this.levelParts = parts;
 
 		// Bounding boxes
 		final Box left = new Box(10, 5000);
 		final Box right = new Box(10, 5000);
 		final Box top = new Box(pData[pData.length - 1].x, 10f);
-		final Body leftBody = new StaticBody("left", left);
-		final Body rightBody = new StaticBody("right", right);
-		final Body topBody = new StaticBody("top", top);
+		final Body leftBody = Bodies.createStatic("left", left);
+		final Body rightBody = Bodies.createStatic("right", right);
+		final Body topBody = Bodies.createStatic("top", top);
+		CollisionFilter.TERRAIN_FILTER.apply(leftBody);
+		CollisionFilter.TERRAIN_FILTER.apply(rightBody);
+		CollisionFilter.TERRAIN_FILTER.apply(topBody);
 		leftBody.setPosition(-10, 2500);
 		rightBody.setPosition(pData[pData.length - 1].x, 2500);
 		topBody.setPosition(0, 5000);
@@ -150,44 +407,393 @@ public class Level {
 	}
 	
 	/**
-	 * Draw the world.
+	 * Returns the index of the chunk at an x coordinate. All chunks have the
+	 * same width, so this is computed from the first one.
+	 * @param pChunks The chunks, sorted by x
+	 * @param pX The x coordinate
+	 * @return The index, -1 left of the first chunk and pChunks.length right
+	 * of the last one
+	 */
+	private static int chunkAt(final TerrainChunk[] pChunks, final float pX) {
+		if (pChunks.length == 0) {
+			return 0;
+		}
+		final float minX = pChunks[0].getMinX();
+		final float width = pChunks[0].getMaxX() - minX;
+		if (pX < minX) {
+			return -1;
+		}
+		return (int)Math.min(pChunks.length, Math.floor((pX - minX) / width));
+	}
+	
+	/**
+	 * Returns how far around a body the floor must be simulated.
+	 * @param pBody The body
+	 * @param pRadius The radius around moving bodies
+	 * @return The distance
+	 */
+	private static float reachOf(final Body pBody, final float pRadius) {
+		if (pBody.isResting()) {
+			return pBody.getShape().getBounds().getWidth() / 2 + RESTING_MARGIN;
+		}
+		return pRadius;
+	}
+	
+	/**
+	 * Adds the chunks near moving bodies to the world and removes the chunks
+	 * that are far away from all of them, so that the cost of a step depends
+	 * on the area where something happens, not on the width of the level.
+	 * Resting bodies only keep the chunks below them.
+	 */
+	private void updateChunks() {
+		final TerrainChunk[] chunks = this.levelParts;
+		final BodyList bodies = this.world.getBodies();
+		final float keep = 1.0f + CHUNK_HYSTERESIS;
+		final long pass = ++this.chunkPass;
+		
+		// Every body only looks at the chunks in its reach. Activated chunks
+		// are appended to the bodies, but they are static
+		final int count = bodies.size();
+		for (int i = 0; i < count; i++) {
+			final Body b = bodies.get(i);
+			if (b.isStatic()) {
+				continue;
+			}
+			final float x = b.getPosition().getX();
+			final float reach = reachOf(b, this.chunkRadius);
+			final int last = Math.min(chunks.length - 1, chunkAt(chunks, x + reach * keep));
+			for (int j = Math.max(0, chunkAt(chunks, x - reach * keep)); j <= last; j++) {
+				chunks[j].markNear(pass);
+			}
+			final int lastActive = Math.min(chunks.length - 1, chunkAt(chunks, x + reach));
+			for (int j = Math.max(0, chunkAt(chunks, x - reach)); j <= lastActive; j++) {
+				if (!chunks[j].isActive()) {
+					chunks[j].setActive(true);
+					this.world.add(chunks[j].getBody());
+					this.activeChunks.add(chunks[j]);
+				}
+			}
+		}
+		
+		for (int i = this.activeChunks.size() - 1; i >= 0; i--) {
+			final TerrainChunk chunk = this.activeChunks.get(i);
+			if (!chunk.isNear(pass)) {
+				chunk.setActive(false);
+				this.world.remove(chunk.getBody());
+				this.activeChunks.remove(i);
+			}
+		}
+	}
+	
+	/**
+	 * Draw the visible part of the world. This only uses the level parts,
+	 * which never move, so it may be called from another thread than the
+	 * simulation.
 	 * @param pRenderer The renderer to draw on.
+	 * @param pMinX The left edge of the view in world coordinates
+	 * @param pMaxX The right edge of the view in world coordinates
 	 */
-	public void drawWorld(final Renderer pRenderer) {
-		for (Body b : this.levelParts) {
-			pRenderer.drawPolygonBody(b, (Polygon)b.getShape(), this.texture);
+	public void drawWorld(final Renderer pRenderer, final float pMinX, final float pMaxX) {
+		final TerrainChunk[] chunks = this.levelParts;
+		final int last = Math.min(chunks.length - 1, chunkAt(chunks, pMaxX));
+		for (int i = Math.max(0, chunkAt(chunks, pMinX)); i <= last; i++) {
+			chunks[i].draw(pRenderer, this.texture);
 		}
 	}
 	
 	/**
 	 * Draw everything that needs to be drawn after the units.
 	 * @param pRenderer The renderer to draw on.
+	 * @param pSnapshot The snapshot to take the contact points from
+	 */
+	public void drawOverlay(final Renderer pRenderer, final WorldSnapshot pSnapshot) {
+		for (int i = 0; i < pSnapshot.getNumContacts(); i++) {
+			pRenderer.drawContact((int)pSnapshot.getContactX(i), (int)pSnapshot.getContactY(i));
+		}
+	}
+	
+	/**
+	 * Move all objects in the physical world one tick. Depending on the
+	 * number of physics threads, the world is either stepped as a whole or
+	 * as independent islands. The counters of the tick are published
+	 * afterwards.
+	 */
+	public void step() {
+		final long start = System.nanoTime();
+		final PhysicsStats tickStats = this.counters;
+		tickStats.clear();
+		updateChunks();
+		if (this.threads > 0) {
+			this.islands.step(this.world, tickStats);
+		} else {
+			for (int i = 0; i < SUBSTEPS; i++) {
+				tickStats.step(this.world, this.collisions, i);
+			}
+		}
+		this.tick++;
+		tickStats.setTick(this.tick, System.nanoTime() - start,
+				this.threads > 0 ? this.islands.getNumIslands() : 1);
+		synchronized (this.statsLock) {
+			this.stats.set(tickStats);
+			this.hasStats = true;
+			if (!this.hasPeakStats || tickStats.getWallTime() > this.peakStats.getWallTime()) {
+				this.peakStats.set(tickStats);
+				this.hasPeakStats = true;
+			}
+		}
+	}
+	
+	/**
+	 * Returns a copy of the physics counters of the last tick.
+	 * @return The counters, or null if the level was not stepped yet
+	 */
+	public PhysicsStats getStats() {
+		synchronized (this.statsLock) {
+			return this.hasStats ? new PhysicsStats(this.stats) : null;
+		}
+	}
+	
+	/**
+	 * Returns a copy of the physics counters of the slowest tick since the
+	 * last resetPeakStats(), to find out what caused a spike.
+	 * @return The counters, or null if the level was not stepped since
+	 */
+	public PhysicsStats getPeakStats() {
+		synchronized (this.statsLock) {
+			return this.hasPeakStats ? new PhysicsStats(this.peakStats) : null;
+		}
+	}
+	
+	/**
+	 * Forgets the slowest tick, so that getPeakStats() only looks at the
+	 * ticks from now on.
 	 */
-	public void drawOverlay(final Renderer pRenderer) {
+	public void resetPeakStats() {
+		synchronized (this.statsLock) {
+			this.hasPeakStats = false;
+		}
+	}
+	
+	/**
+	 * Returns the arbiters that hold the current contacts.
+	 * @return The lists of arbiters
+	 */
+	private List<ArbiterList> getArbiters() {
+		if (this.threads > 0) {
+			return this.islands.getArbiters();
+		}
+		return Collections.singletonList(this.world.getArbiters());
+	}
+	
+	/**
+	 * Takes a snapshot of the physical state of the level, which can be
+	 * restored later instead of initializing the level again.
+	 * @return The snapshot
+	 */
+	public PhysicsSnapshot snapshot() {
+		return new PhysicsSnapshot(this, this.generation, this.world.getBodies(),
+				this.world.getJoints(), this.activeChunks, this.members.size(), this.tick);
+	}
+	
+	/**
+	 * Restores a snapshot. The bodies are put back in place and the world
+	 * contains the same bodies and joints in the same order as when the
+	 * snapshot was taken; nothing is created or rebuilt. The contacts of the
+	 * last steps are dropped, so a restored level continues exactly like
+	 * every other restore of the same snapshot. This fails if the level was
+	 * initialized since, or if units were added or removed.
+	 * @param pSnapshot The snapshot
+	 * @return true if the snapshot was restored, false if it doesn't fit
+	 */
+	public boolean restore(final PhysicsSnapshot pSnapshot) {
+		if (!pSnapshot.fits(this, this.generation, this.world.getJoints(), this.members)) {
+			return false;
+		}
+		for (TerrainChunk chunk : this.activeChunks) {
+			chunk.setActive(false);
+		}
+		this.activeChunks.clear();
+		for (TerrainChunk chunk : pSnapshot.getChunks()) {
+			chunk.setActive(true);
+			this.activeChunks.add(chunk);
+		}
 		
-		if (Core.PROPERTIES.getBoolean(Properties.Prop.DRAWCONTACTS)) {
-			final ArbiterList arbs = this.world.getArbiters();
-			
-			for (int i = 0; i < arbs.size(); i++) {
-				final Arbiter arb = arbs.get(i);
-				
-				final Contact[] cts = arb.getContacts();
-				final int numContacts = arb.getNumContacts();
-				
-				for (int j = 0; j < numContacts; j++) {
-					pRenderer.drawContact(cts[j]);
-				}
+		this.world.clear();
+		for (Body b : pSnapshot.getBodies()) {
+			this.world.add(b);
+		}
+		for (Joint j : pSnapshot.getJoints()) {
+			this.world.add(j);
+		}
+		pSnapshot.restoreBodies();
+		this.islands.clear();
+		this.tick = pSnapshot.getTick();
+		return true;
+	}
+	
+	/**
+	 * Captures a snapshot of the world into a snapshot that nobody holds.
+	 * @param pFocus The body the view follows
+	 * @return The snapshot
+	 */
+	private WorldSnapshot capture(final Body pFocus) {
+		final WorldSnapshot snapshot = freeSnapshot();
+		snapshot.capture(this.world.getBodies(), this.units.getDrawOrder(), pFocus,
+				Core.PROPERTIES.getBoolean(Properties.Prop.DRAWCONTACTS)
+				? getArbiters() : null, this.tick);
+		return snapshot;
+	}
+	
+	/**
+	 * Returns a snapshot that is neither part of the current state nor of a
+	 * state that a reader holds. A new one is created if there is none.
+	 * @return The snapshot
+	 */
+	private WorldSnapshot freeSnapshot() {
+		for (int i = 0; i < this.snapshots.size(); i++) {
+			final WorldSnapshot snapshot = this.snapshots.get(i);
+			if (!isUsed(snapshot)) {
+				return snapshot;
 			}
-		}		
+		}
+		final WorldSnapshot snapshot = new WorldSnapshot();
+		this.snapshots.add(snapshot);
+		return snapshot;
 	}
 	
 	/**
-	 * Move all objects in the physical world one step.
+	 * Checks if a snapshot is part of the current state or of a state that a
+	 * reader holds.
+	 * @param pSnapshot The snapshot
+	 * @return true if the snapshot must not be modified
 	 */
-	public void step() {
-		for (int i = 0; i < 5; i++) {
-			this.world.step();
+	private boolean isUsed(final WorldSnapshot pSnapshot) {
+		if (this.state.getPrevious() == pSnapshot || this.state.getCurrent() == pSnapshot) {
+			return true;
+		}
+		for (int i = 0; i < this.states.size(); i++) {
+			final WorldState s = this.states.get(i);
+			if (s.isHeld() && (s.getPrevious() == pSnapshot || s.getCurrent() == pSnapshot)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Publishes a new state. A state that is neither current nor held by a
+	 * reader is reused, a new one is created if there is none.
+	 * @param pPrevious The snapshot of the previous tick
+	 * @param pCurrent The snapshot of the current tick
+	 */
+	private void publish(final WorldSnapshot pPrevious, final WorldSnapshot pCurrent) {
+		WorldState next = null;
+		for (int i = 0; i < this.states.size() && next == null; i++) {
+			final WorldState s = this.states.get(i);
+			if (s != this.state && !s.isHeld()) {
+				next = s;
+			}
+		}
+		if (next == null) {
+			next = new WorldState();
+			this.states.add(next);
+		}
+		next.set(pPrevious, pCurrent);
+		this.state = next;
+	}
+	
+	/**
+	 * Publishes the state of the world after a tick. The previously current
+	 * snapshot becomes the previous one. This must only be called by the
+	 * simulation.
+	 * @param pFocus The body the view follows
+	 */
+	public void publishState(final Body pFocus) {
+		publish(this.state.getCurrent(), capture(pFocus));
+	}
+	
+	/**
+	 * Publishes the state of the world as both the previous and the current
+	 * snapshot. This should be called after bodies were placed manually, so
+	 * that the renderer does not interpolate from their old positions. This
+	 * must only be called by the simulation.
+	 * @param pFocus The body the view follows
+	 */
+	public void resetState(final Body pFocus) {
+		final WorldSnapshot snapshot = capture(pFocus);
+		publish(snapshot, snapshot);
+	}
+	
+	/**
+	 * Takes the latest published state of the world. It is not modified
+	 * until it is given back with releaseState(), so every reader has to do
+	 * that when it is done drawing.
+	 * @return The state
+	 */
+	public WorldState acquireState() {
+		while (true) {
+			final WorldState s = this.state;
+			s.hold();
+			// If the simulation published another state meanwhile, this one
+			// may be reused already
+			if (s == this.state) {
+				return s;
+			}
+			s.release();
+		}
+	}
+	
+	/**
+	 * Gives back a state that was taken with acquireState().
+	 * @param pState The state
+	 */
+	public void releaseState(final WorldState pState) {
+		pState.release();
+	}
+	
+	/**
+	 * Returns the number of ticks since the level was initialized.
+	 * @return The tick count
+	 */
+	public long getTick() {
+		return this.tick;
+	}
+	
+	/**
+	 * Computes a hash of the state of all bodies in the world: position,
+	 * rotation and velocity, in the order of the bodies. Two runs that ended
+	 * in exactly the same state have the same hash.
+	 * @return The hash
+	 */
+	public long computeHash() {
+		long hash = FNV_OFFSET;
+		final BodyList bodies = this.world.getBodies();
+		for (int i = 0; i < bodies.size(); i++) {
+			final Body b = bodies.get(i);
+			hash = hash(hash, b.getPosition().getX());
+			hash = hash(hash, b.getPosition().getY());
+			hash = hash(hash, b.getRotation());
+			hash = hash(hash, b.getVelocity().getX());
+			hash = hash(hash, b.getVelocity().getY());
+			hash = hash(hash, b.getAngularVelocity());
+		}
+		return hash;
+	}
+	
+	/**
+	 * Adds the bits of a float to a FNV-1a hash.
+	 * @param pHash The hash so far
+	 * @param pValue The value
+	 * @return The new hash
+	 */
+	private static long hash(final long pHash, final float pValue) {
+		final int bits = Float.floatToIntBits(pValue);
+		long hash = pHash;
+		for (int shift = 0; shift < 32; shift += 8) {
+			hash ^= (bits >>> shift) & 0xff;
+			hash *= FNV_PRIME;
 		}
+		return hash;
 	}
 	
 	/**
@@ -199,7 +805,8 @@ public class Level {
 		result += "\nWorld Info: Total Energy: " + this.world.getTotalEnergy()
 			+ "  Bodies: " + this.world.getBodies().size()
 			+ "  Joints: " + this.world.getJoints().size()
-			+ "  Arbiters: " + this.world.getArbiters().size();
+			+ "  Islands: " + this.islands.getNumIslands()
+			+ "  Chunks: " + this.activeChunks.size() + "/" + this.levelParts.length;
 		return result;
 	}
 }
@@ -19,6 +19,12 @@ public class LevelDescription implements IResourceDescription {
 	/** The width of the level in pixel. */
 	private int width;
 	
+	/** The height of the level in pixel. */
+	private int height;
+	
+	/** The broadphase strategy of the level. */
+	private Broadphase broadphase = Broadphase.QUADSPACE;
+	
 	/** The name of the level. */
 	private String name;
 
@@ -70,6 +76,38 @@ public class LevelDescription implements IResourceDescription {
 		this.width = pWidth;
 	}
 	
+	/**
+	 * Returns the height of the level in pixel.
+	 * @return The height
+	 */
+	public int getHeight() {
+		return this.height;
+	}
+
+	/**
+	 * Sets the height of the level.
+	 * @param pHeight The height
+	 */
+	public void setHeight(final int pHeight) {
+		this.height = pHeight;
+	}
+
+	/**
+	 * Returns the broadphase strategy the worlds of the level use.
+	 * @return The broadphase
+	 */
+	public Broadphase getBroadphase() {
+		return this.broadphase;
+	}
+
+	/**
+	 * Sets the broadphase strategy of the level.
+	 * @param pBroadphase The broadphase
+	 */
+	public void setBroadphase(final Broadphase pBroadphase) {
+		this.broadphase = pBroadphase;
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -0,0 +1,209 @@
+package airclash.world;
+
+import java.util.List;
+import java.util.Map;
+
+import net.phys2d.math.Vector2f;
+import net.phys2d.raw.Body;
+import net.phys2d.raw.BodyList;
+import net.phys2d.raw.Joint;
+import net.phys2d.raw.JointList;
+
+/**
+ * The physical state of a level at the end of a tick, which can be restored
+ * later on the same level. The state of the moving bodies is kept in a
+ * primitive array: position, rotation, velocity and angular velocity, six
+ * floats per body, plus the resting flags. The bodies themselves are only
+ * referenced, so a snapshot is cheap to take and to restore, as long as no
+ * body was added to or removed from the level in between.
+ *
+ * Snapshots are created and restored by Level.
+ *
+ * @author Andreas Textor
+ */
+public final class PhysicsSnapshot {
+	/** The number of floats stored per body. */
+	private static final int STRIDE = 6;
+
+	/**
+	 * The relaxation of the joints. phys2d has no getter for it; all joints
+	 * of the game use the default.
+	 */
+	private static final float JOINT_RELAXATION = 1.0f;
+
+	/** The level the snapshot was taken from. */
+	private final Level level;
+
+	/** The generation of the level, which changes on every init. */
+	private final int generation;
+
+	/** All bodies of the world, in the order of the world. */
+	private final Body[] bodies;
+
+	/** All joints of the world, in the order of the world. */
+	private final Joint[] joints;
+
+	/** The terrain chunks that were part of the world, in activation order. */
+	private final TerrainChunk[] chunks;
+
+	/** The number of unit bodies and joints in the world. */
+	private final int members;
+
+	/** The state of the moving bodies, STRIDE floats per body. */
+	private final float[] state;
+
+	/** The resting flags of the moving bodies. */
+	private final boolean[] resting;
+
+	/** The tick of the level. */
+	private final long tick;
+
+	/**
+	 * Constructor. Captures the current state of the bodies.
+	 * @param pLevel The level
+	 * @param pGeneration The generation of the level
+	 * @param pBodies The bodies of the world
+	 * @param pJoints The joints of the world
+	 * @param pChunks The active terrain chunks
+	 * @param pMembers The number of unit bodies and joints
+	 * @param pTick The tick of the level
+	 */
+	PhysicsSnapshot(final Level pLevel, final int pGeneration, final BodyList pBodies,
+			final JointList pJoints, final List<TerrainChunk> pChunks, final int pMembers,
+			final long pTick) {
+		this.level = pLevel;
+		this.generation = pGeneration;
+		this.members = pMembers;
+		this.tick = pTick;
+		this.chunks = pChunks.toArray(new TerrainChunk[pChunks.size()]);
+		this.joints = new Joint[pJoints.size()];
+		for (int i = 0; i < this.joints.length; i++) {
+			this.joints[i] = pJoints.get(i);
+		}
+
+		this.bodies = new Body[pBodies.size()];
+		int moving = 0;
+		for (int i = 0; i < this.bodies.length; i++) {
+			this.bodies[i] = pBodies.get(i);
+			if (!this.bodies[i].isStatic()) {
+				moving++;
+			}
+		}
+		this.state = new float[moving * STRIDE];
+		this.resting = new boolean[moving];
+		int n = 0;
+		for (Body b : this.bodies) {
+			if (b.isStatic()) {
+				continue;
+			}
+			final int s = n * STRIDE;
+			this.state[s] = b.getPosition().getX();
+			this.state[s + 1] = b.getPosition().getY();
+			this.state[s + 2] = b.getRotation();
+			this.state[s + 3] = b.getVelocity().getX();
+			this.state[s + 4] = b.getVelocity().getY();
+			this.state[s + 5] = b.getAngularVelocity();
+			this.resting[n] = b.isResting();
+			n++;
+		}
+	}
+
+	/**
+	 * Checks if the snapshot can be restored on a level: it must have been
+	 * taken from this level since its last init, and the level must still
+	 * consist of the same units.
+	 * @param pLevel The level
+	 * @param pGeneration The generation of the level
+	 * @param pJoints The joints of the world
+	 * @param pMembers The unit bodies and joints in the world
+	 * @return true if the snapshot fits
+	 */
+	boolean fits(final Level pLevel, final int pGeneration, final JointList pJoints,
+			final Map<Object, Boolean> pMembers) {
+		if (pLevel != this.level || pGeneration != this.generation
+				|| pMembers.size() != this.members || pJoints.size() != this.joints.length) {
+			return false;
+		}
+		for (int i = 0; i < this.joints.length; i++) {
+			if (pJoints.get(i) != this.joints[i]) {
+				return false;
+			}
+		}
+		for (Body b : this.bodies) {
+			if (!b.isStatic() && !pMembers.containsKey(b)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Puts the bodies back into the captured state. Forces, the velocities
+	 * of the last contact resolution and the impulses the joints carry over
+	 * from step to step are cleared, as for newly created bodies and joints.
+	 */
+	void restoreBodies() {
+		// A joint scales its carried impulse by the relaxation in preStep();
+		// with 0 the impulse is cleared, and the anchors stay as they are
+		for (Joint j : this.joints) {
+			j.setRelaxation(0);
+			j.preStep(0);
+			j.setRelaxation(JOINT_RELAXATION);
+		}
+
+		final Vector2f velocity = new Vector2f();
+		int n = 0;
+		for (Body b : this.bodies) {
+			if (b.isStatic()) {
+				continue;
+			}
+			final int s = n * STRIDE;
+			b.setPosition(this.state[s], this.state[s + 1]);
+			b.setRotation(this.state[s + 2]);
+			// Removing the velocity first makes the result exact
+			velocity.set(-b.getVelocity().getX(), -b.getVelocity().getY());
+			b.adjustVelocity(velocity);
+			velocity.set(this.state[s + 3], this.state[s + 4]);
+			b.adjustVelocity(velocity);
+			b.adjustAngularVelocity(-b.getAngularVelocity());
+			b.adjustAngularVelocity(this.state[s + 5]);
+			b.resetBias();
+			b.setForce(0, 0);
+			b.setTorque(0);
+			b.setIsResting(this.resting[n]);
+			n++;
+		}
+	}
+
+	/**
+	 * Returns all bodies of the world, in the order of the world.
+	 * @return The bodies, must not be modified
+	 */
+	Body[] getBodies() {
+		return this.bodies;
+	}
+
+	/**
+	 * Returns all joints of the world, in the order of the world.
+	 * @return The joints, must not be modified
+	 */
+	Joint[] getJoints() {
+		return this.joints;
+	}
+
+	/**
+	 * Returns the terrain chunks that were part of the world.
+	 * @return The chunks in activation order, must not be modified
+	 */
+	TerrainChunk[] getChunks() {
+		return this.chunks;
+	}
+
+	/**
+	 * Returns the tick of the level when the snapshot was taken.
+	 * @return The tick
+	 */
+	public long getTick() {
+		return this.tick;
+	}
+}
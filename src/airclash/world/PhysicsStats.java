@@ -0,0 +1,366 @@
+package airclash.world;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import net.phys2d.raw.ArbiterList;
+import net.phys2d.raw.Body;
+import net.phys2d.raw.BodyList;
+import net.phys2d.raw.World;
+
+/**
+ * Counters of the physics of one tick, per world step and for the whole
+ * tick. They show where the time of a step goes: how many pairs the
+ * broadphase found, how many of them were tested for contact, how many
+ * contacts resulted, how many bodies were awake, how long the collision
+ * detection and the solver took and how much memory phys2d allocated. When
+ * the islands of a world are stepped separately, the counters of all islands
+ * are added, so the times are the sum of the time spent on all threads.
+ *
+ * A Level counts every tick in the same instance; it hands out copies,
+ * which are not modified any more.
+ *
+ * @author Andreas Textor
+ */
+public class PhysicsStats {
+	/**
+	 * The values that are counted per world step.
+	 * @author Andreas Textor
+	 */
+	public static enum Counter {
+		/** Pairs of bodies the broadphase found near each other. */
+		CANDIDATES("pairs", true),
+
+		/** Pairs that passed the collision filter and were tested for contact. */
+		TESTS("tests", true),
+
+		/** Pairs of bodies that were in contact after the step. */
+		ARBITERS("arbiters", false),
+
+		/** Contact points after the step. */
+		CONTACTS("contacts", false),
+
+		/** Moving bodies that were awake after the step. */
+		AWAKE("awake", false),
+
+		/** Moving bodies that were resting after the step. */
+		RESTING("resting", false),
+
+		/** Time of the broadphase and the contact tests in nanoseconds. */
+		COLLISION_TIME("collide", true),
+
+		/** Time of the rest of the step, mainly the solver, in nanoseconds. */
+		SOLVER_TIME("solve", true),
+
+		/**
+		 * Bytes allocated by the world step, 0 if the virtual machine can't
+		 * count them.
+		 */
+		ALLOCATED("bytes", true);
+
+		/** The column title of the counter. */
+		private final String title;
+
+		/**
+		 * true if the value for the tick is the sum of all steps, false if
+		 * it is the maximum.
+		 */
+		private final boolean summed;
+
+		/**
+		 * Constructor.
+		 * @param pTitle The column title
+		 * @param pSummed true if the steps are summed up for the tick
+		 */
+		private Counter(final String pTitle, final boolean pSummed) {
+			this.title = pTitle;
+			this.summed = pSummed;
+		}
+
+		/**
+		 * Returns the column title of the counter.
+		 * @return The title
+		 */
+		public String getTitle() {
+			return this.title;
+		}
+
+		/**
+		 * Returns how the steps are aggregated for the tick.
+		 * @return true if the steps are summed up, false if the maximum is used
+		 */
+		public boolean isSummed() {
+			return this.summed;
+		}
+	}
+
+	/** The number of counters. */
+	private static final int COUNTERS = Counter.values().length;
+
+	/** Number of nanoseconds in a millisecond. */
+	private static final double NANOS_PER_MILLI = 1000000.0;
+
+	/**
+	 * Counts the bytes allocated by each thread, null if the virtual machine
+	 * can't count them.
+	 */
+	private static final com.sun.management.ThreadMXBean ALLOCATIONS = allocationCounter();
+
+	/** The number of world steps per tick. */
+	private final int substeps;
+
+	/** The values, COUNTERS per step. */
+	private final long[] values;
+
+	/** The tick the counters belong to. */
+	private long tick = 0;
+
+	/** The wall time of the whole tick in nanoseconds. */
+	private long wallTime = 0;
+
+	/** The number of islands the world was stepped as, 1 for the whole world. */
+	private int islands = 1;
+
+	/**
+	 * Constructor.
+	 * @param pSubsteps The number of world steps per tick
+	 */
+	public PhysicsStats(final int pSubsteps) {
+		this.substeps = pSubsteps;
+		this.values = new long[pSubsteps * COUNTERS];
+	}
+
+	/**
+	 * Copy constructor.
+	 * @param pOther The stats to copy
+	 */
+	PhysicsStats(final PhysicsStats pOther) {
+		this(pOther.substeps);
+		set(pOther);
+	}
+
+	/**
+	 * Copies all values of other stats.
+	 * @param pOther The other stats with the same number of steps
+	 */
+	void set(final PhysicsStats pOther) {
+		System.arraycopy(pOther.values, 0, this.values, 0, this.values.length);
+		this.tick = pOther.tick;
+		this.wallTime = pOther.wallTime;
+		this.islands = pOther.islands;
+	}
+
+	/**
+	 * Sets all counters to 0.
+	 */
+	void clear() {
+		for (int i = 0; i < this.values.length; i++) {
+			this.values[i] = 0;
+		}
+	}
+
+	/**
+	 * Adds to a counter.
+	 * @param pCounter The counter
+	 * @param pSubstep The world step
+	 * @param pValue The value to add
+	 */
+	void add(final Counter pCounter, final int pSubstep, final long pValue) {
+		this.values[pSubstep * COUNTERS + pCounter.ordinal()] += pValue;
+	}
+
+	/**
+	 * Adds all counters of other stats, e.g. of an island.
+	 * @param pOther The other stats with the same number of steps
+	 */
+	void addAll(final PhysicsStats pOther) {
+		for (int i = 0; i < this.values.length; i++) {
+			this.values[i] += pOther.values[i];
+		}
+	}
+
+	/**
+	 * Steps a world once and counts what happened.
+	 * @param pWorld The world
+	 * @param pStrategy The collision strategy of the world
+	 * @param pSubstep The number of the step within the tick
+	 */
+	void step(final World pWorld, final FilteredCollisionStrategy pStrategy,
+			final int pSubstep) {
+		pStrategy.resetCounters();
+		final long allocated = allocatedBytes();
+		final long start = System.nanoTime();
+		pWorld.step();
+		final long duration = System.nanoTime() - start;
+		add(Counter.ALLOCATED, pSubstep, allocatedBytes() - allocated);
+
+		add(Counter.CANDIDATES, pSubstep, pStrategy.getCandidates());
+		add(Counter.TESTS, pSubstep, pStrategy.getTests());
+		add(Counter.COLLISION_TIME, pSubstep, pStrategy.getTime());
+		add(Counter.SOLVER_TIME, pSubstep, Math.max(0, duration - pStrategy.getTime()));
+
+		final ArbiterList arbiters = pWorld.getArbiters();
+		int contacts = 0;
+		for (int i = 0; i < arbiters.size(); i++) {
+			contacts += arbiters.get(i).getNumContacts();
+		}
+		add(Counter.ARBITERS, pSubstep, arbiters.size());
+		add(Counter.CONTACTS, pSubstep, contacts);
+
+		final BodyList bodies = pWorld.getBodies();
+		int resting = 0;
+		int awake = 0;
+		for (int i = 0; i < bodies.size(); i++) {
+			final Body b = bodies.get(i);
+			if (b.isStatic()) {
+				continue;
+			}
+			if (b.isResting()) {
+				resting++;
+			} else {
+				awake++;
+			}
+		}
+		add(Counter.AWAKE, pSubstep, awake);
+		add(Counter.RESTING, pSubstep, resting);
+	}
+
+	/**
+	 * Returns the bean that counts the allocated bytes per thread.
+	 * @return The bean, or null if the virtual machine can't count them
+	 */
+	private static com.sun.management.ThreadMXBean allocationCounter() {
+		final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+			return null;
+		}
+		final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)bean;
+		if (!threads.isThreadAllocatedMemorySupported()
+				|| !threads.isThreadAllocatedMemoryEnabled()) {
+			return null;
+		}
+		return threads;
+	}
+
+	/**
+	 * Returns the number of bytes the current thread has allocated so far.
+	 * @return The bytes, 0 if they can't be counted
+	 */
+	private static long allocatedBytes() {
+		if (ALLOCATIONS == null) {
+			return 0;
+		}
+		return ALLOCATIONS.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Sets the values that belong to the whole tick.
+	 * @param pTick The tick
+	 * @param pWallTime The wall time of the tick in nanoseconds
+	 * @param pIslands The number of islands
+	 */
+	void setTick(final long pTick, final long pWallTime, final int pIslands) {
+		this.tick = pTick;
+		this.wallTime = pWallTime;
+		this.islands = pIslands;
+	}
+
+	/**
+	 * Returns the number of world steps per tick.
+	 * @return The step count
+	 */
+	public int getSubsteps() {
+		return this.substeps;
+	}
+
+	/**
+	 * Returns a counter of one world step.
+	 * @param pCounter The counter
+	 * @param pSubstep The step (0 - getSubsteps() - 1)
+	 * @return The value
+	 */
+	public long get(final Counter pCounter, final int pSubstep) {
+		return this.values[pSubstep * COUNTERS + pCounter.ordinal()];
+	}
+
+	/**
+	 * Returns a counter for the whole tick: the sum or the maximum of all
+	 * steps, see Counter.isSummed().
+	 * @param pCounter The counter
+	 * @return The value
+	 */
+	public long getTotal(final Counter pCounter) {
+		long result = 0;
+		for (int s = 0; s < this.substeps; s++) {
+			final long value = get(pCounter, s);
+			result = pCounter.isSummed() ? result + value : Math.max(result, value);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the tick the counters belong to.
+	 * @return The tick
+	 */
+	public long getTick() {
+		return this.tick;
+	}
+
+	/**
+	 * Returns the wall time of the whole tick, including the partitioning
+	 * into islands and the chunk updates.
+	 * @return The time in nanoseconds
+	 */
+	public long getWallTime() {
+		return this.wallTime;
+	}
+
+	/**
+	 * Returns the number of islands the world was stepped as.
+	 * @return The island count, 1 if the world was stepped as a whole
+	 */
+	public int getIslands() {
+		return this.islands;
+	}
+
+	/**
+	 * Prints the counters as a table with one line per world step and one
+	 * for the whole tick. Times are printed in milliseconds.
+	 * @param pOut The stream to print to
+	 */
+	public void print(final PrintStream pOut) {
+		pOut.println(String.format("Tick %d: %.3f ms, %d islands", this.tick,
+				this.wallTime / NANOS_PER_MILLI, this.islands));
+		final StringBuilder header = new StringBuilder(String.format("%-5s", "step"));
+		for (Counter c : Counter.values()) {
+			header.append(String.format(" %8s", c.getTitle()));
+		}
+		pOut.println(header);
+		for (int s = 0; s < this.substeps; s++) {
+			final StringBuilder line = new StringBuilder(String.format("%-5d", s + 1));
+			for (Counter c : Counter.values()) {
+				line.append(format(c, get(c, s)));
+			}
+			pOut.println(line);
+		}
+		final StringBuilder total = new StringBuilder(String.format("%-5s", "tick"));
+		for (Counter c : Counter.values()) {
+			total.append(format(c, getTotal(c)));
+		}
+		pOut.println(total);
+	}
+
+	/**
+	 * Formats a value for a table column.
+	 * @param pCounter The counter
+	 * @param pValue The value
+	 * @return The column text
+	 */
+	private static String format(final Counter pCounter, final long pValue) {
+		if (pCounter == Counter.COLLISION_TIME || pCounter == Counter.SOLVER_TIME) {
+			return String.format(" %8.3f", pValue / NANOS_PER_MILLI);
+		}
+		return String.format(" %8d", pValue);
+	}
+}
@@ -0,0 +1,132 @@
+package airclash.world;
+
+import net.phys2d.math.Vector2f;
+import net.phys2d.raw.Body;
+import net.phys2d.raw.shapes.Polygon;
+import airclash.system.gfx.Renderer;
+import airclash.system.gfx.Texture;
+
+/**
+ * A piece of the level floor that covers a fixed range of x coordinates.
+ * The whole piece is one static body with one (usually concave)
+ * polygon, which reaches from the floor line down to y = 0. The vertices of
+ * the polygon are relative to the center of the piece, so that its bounds
+ * are not larger than the piece itself.
+ *
+ * @author Andreas Textor
+ */
+public class TerrainChunk {
+	/** The static body. */
+	private final Body body;
+	
+	/** The x coordinates of the floor line in world coordinates. */
+	private final float[] floorX;
+	
+	/** The y coordinates of the floor line in world coordinates. */
+	private final float[] floorY;
+	
+	/** Determines if the body is part of the physical world. */
+	private boolean active = false;
+	
+	/** The last pass of the chunk update in which a body was near. */
+	private long nearPass = -1;
+	
+	/**
+	 * Constructor. The arrays are used, not copied.
+	 * @param pName The name of the body
+	 * @param pFloorX The x coordinates of the floor line of this piece,
+	 * sorted, at least two
+	 * @param pFloorY The y coordinates of the floor line of this piece
+	 */
+	public TerrainChunk(final String pName, final float[] pFloorX, final float[] pFloorY) {
+		final int count = pFloorX.length;
+		this.floorX = pFloorX;
+		this.floorY = pFloorY;
+		float top = 0;
+		for (int i = 0; i < count; i++) {
+			top = Math.max(top, this.floorY[i]);
+		}
+		final float centerX = (this.floorX[0] + this.floorX[count - 1]) / 2;
+		final float centerY = top / 2;
+		
+		// Counter clockwise: bottom right, the floor line from right to left,
+		// bottom left
+		final Vector2f[] verts = new Vector2f[count + 2];
+		verts[0] = new Vector2f(this.floorX[count - 1] - centerX, -centerY);
+		for (int i = 0; i < count; i++) {
+			verts[i + 1] = new Vector2f(this.floorX[count - 1 - i] - centerX,
+					this.floorY[count - 1 - i] - centerY);
+		}
+		verts[count + 1] = new Vector2f(this.floorX[0] - centerX, -centerY);
+		
+		this.body = Bodies.createStatic(pName, new Polygon(verts));
+		CollisionFilter.TERRAIN_FILTER.apply(this.body);
+		this.body.setPosition(centerX, centerY);
+	}
+	
+	/**
+	 * Returns the static body of this piece.
+	 * @return The body
+	 */
+	public Body getBody() {
+		return this.body;
+	}
+	
+	/**
+	 * Returns if the body is part of the physical world.
+	 * @return true if the piece is simulated
+	 */
+	public boolean isActive() {
+		return this.active;
+	}
+	
+	/**
+	 * Sets if the body is part of the physical world.
+	 * @param pActive true if the piece is simulated
+	 */
+	public void setActive(final boolean pActive) {
+		this.active = pActive;
+	}
+	
+	/**
+	 * Remembers that a body was near this piece.
+	 * @param pPass The pass of the chunk update
+	 */
+	public void markNear(final long pPass) {
+		this.nearPass = pPass;
+	}
+	
+	/**
+	 * Checks if a body was near this piece.
+	 * @param pPass The pass of the chunk update
+	 * @return true if markNear() was called with the same pass
+	 */
+	public boolean isNear(final long pPass) {
+		return this.nearPass == pPass;
+	}
+	
+	/**
+	 * Returns the smallest x coordinate of this piece.
+	 * @return The x coordinate
+	 */
+	public float getMinX() {
+		return this.floorX[0];
+	}
+	
+	/**
+	 * Returns the largest x coordinate of this piece.
+	 * @return The x coordinate
+	 */
+	public float getMaxX() {
+		return this.floorX[this.floorX.length - 1];
+	}
+	
+	/**
+	 * Draws this piece.
+	 * @param pRenderer The renderer
+	 * @param pTexture The texture of the floor
+	 */
+	public void draw(final Renderer pRenderer, final Texture pTexture) {
+		pRenderer.drawTerrain(this.floorX, this.floorY, pTexture);
+	}
+}
@@ -0,0 +1,232 @@
+package airclash.world;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import airclash.units.IModule;
+import airclash.units.IUnit;
+
+/**
+ * The units of a level. The units are kept in a dense array, so iterating
+ * them touches only the units that exist, and a unit is removed in constant
+ * time by moving the last unit into its slot. The order of the units is
+ * therefore not stable. For each unit, the number of its body parts and
+ * joints that were added to the world is stored next to it. The registry
+ * also knows the selected unit.
+ *
+ * @author Andreas Textor
+ */
+public class UnitRegistry {
+	/** The initial capacity of the arrays. */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/** The units; only the first size elements are used. */
+	private IUnit[] units = new IUnit[INITIAL_CAPACITY];
+
+	/** The number of body parts of each unit that were added to the world. */
+	private int[] parts = new int[INITIAL_CAPACITY];
+
+	/** The number of joints of each unit that were added to the world. */
+	private int[] joints = new int[INITIAL_CAPACITY];
+
+	/** The number of units. */
+	private int size = 0;
+
+	/** The position of each unit in the arrays. */
+	private final Map<IUnit, Integer> index = new IdentityHashMap<IUnit, Integer>();
+
+	/** The selected unit, or null. */
+	private IUnit selected = null;
+
+	/** The units in drawing order, null if the units changed since. */
+	private IUnit[] drawOrder = null;
+
+	/**
+	 * Adds a unit. Nothing happens if the unit was added before.
+	 * @param pUnit The unit
+	 * @return The index of the unit
+	 */
+	public int add(final IUnit pUnit) {
+		final Integer i = this.index.get(pUnit);
+		if (i != null) {
+			return i.intValue();
+		}
+		if (this.size == this.units.length) {
+			final int capacity = this.size * 2;
+			final IUnit[] newUnits = new IUnit[capacity];
+			System.arraycopy(this.units, 0, newUnits, 0, this.size);
+			this.units = newUnits;
+			final int[] newParts = new int[capacity];
+			System.arraycopy(this.parts, 0, newParts, 0, this.size);
+			this.parts = newParts;
+			final int[] newJoints = new int[capacity];
+			System.arraycopy(this.joints, 0, newJoints, 0, this.size);
+			this.joints = newJoints;
+		}
+		final int n = this.size++;
+		this.units[n] = pUnit;
+		this.parts[n] = 0;
+		this.joints[n] = 0;
+		this.index.put(pUnit, Integer.valueOf(n));
+		this.drawOrder = null;
+		return n;
+	}
+
+	/**
+	 * Removes a unit. The last unit takes its place. If the unit was
+	 * selected, nothing is selected afterwards.
+	 * @param pUnit The unit
+	 * @return true if the unit was found
+	 */
+	public boolean remove(final IUnit pUnit) {
+		final Integer i = this.index.remove(pUnit);
+		if (i == null) {
+			return false;
+		}
+		final int n = i.intValue();
+		final int last = --this.size;
+		if (n != last) {
+			this.units[n] = this.units[last];
+			this.parts[n] = this.parts[last];
+			this.joints[n] = this.joints[last];
+			this.index.put(this.units[n], i);
+		}
+		this.units[last] = null;
+		this.drawOrder = null;
+		if (this.selected == pUnit) {
+			this.selected = null;
+			pUnit.unselect();
+		}
+		return true;
+	}
+
+	/**
+	 * Removes all units. The selected unit is unselected.
+	 */
+	public void clear() {
+		if (this.selected != null) {
+			this.selected.unselect();
+			this.selected = null;
+		}
+		for (int i = 0; i < this.size; i++) {
+			this.units[i] = null;
+		}
+		this.size = 0;
+		this.index.clear();
+		this.drawOrder = null;
+	}
+
+	/**
+	 * Returns the index of a unit.
+	 * @param pUnit The unit
+	 * @return The index, or -1 if the unit is not in the registry
+	 */
+	public int indexOf(final IUnit pUnit) {
+		final Integer i = this.index.get(pUnit);
+		return i == null ? -1 : i.intValue();
+	}
+
+	/**
+	 * Returns the number of units.
+	 * @return The unit count
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns a unit.
+	 * @param pIndex The index (0 - size() - 1)
+	 * @return The unit
+	 */
+	public IUnit get(final int pIndex) {
+		return this.units[pIndex];
+	}
+
+	/**
+	 * Returns the number of body parts of a unit that were added to the world.
+	 * @param pIndex The index of the unit
+	 * @return The number of parts
+	 */
+	public int getParts(final int pIndex) {
+		return this.parts[pIndex];
+	}
+
+	/**
+	 * Sets the number of body parts of a unit that were added to the world.
+	 * @param pIndex The index of the unit
+	 * @param pParts The number of parts
+	 */
+	public void setParts(final int pIndex, final int pParts) {
+		this.parts[pIndex] = pParts;
+	}
+
+	/**
+	 * Returns the number of joints of a unit that were added to the world.
+	 * @param pIndex The index of the unit
+	 * @return The number of joints
+	 */
+	public int getJoints(final int pIndex) {
+		return this.joints[pIndex];
+	}
+
+	/**
+	 * Sets the number of joints of a unit that were added to the world.
+	 * @param pIndex The index of the unit
+	 * @param pJoints The number of joints
+	 */
+	public void setJoints(final int pIndex, final int pJoints) {
+		this.joints[pIndex] = pJoints;
+	}
+
+	/**
+	 * Selects a unit. Only the previously selected unit is notified that it
+	 * was unselected.
+	 * @param pUnit The unit, or null to select nothing
+	 */
+	public void select(final IUnit pUnit) {
+		if (pUnit == this.selected) {
+			return;
+		}
+		if (this.selected != null) {
+			this.selected.unselect();
+		}
+		this.selected = pUnit;
+		if (pUnit != null) {
+			pUnit.select();
+		}
+	}
+
+	/**
+	 * Returns the selected unit.
+	 * @return The unit, or null if nothing is selected
+	 */
+	public IUnit getSelected() {
+		return this.selected;
+	}
+
+	/**
+	 * Returns the units in the order they are drawn: buildings first, then
+	 * all other units. The array is shared until the units change, so it
+	 * must not be modified.
+	 * @return The units
+	 */
+	public IUnit[] getDrawOrder() {
+		if (this.drawOrder == null) {
+			final IUnit[] order = new IUnit[this.size];
+			int n = 0;
+			for (int i = 0; i < this.size; i++) {
+				if (this.units[i] instanceof IModule) {
+					order[n++] = this.units[i];
+				}
+			}
+			for (int i = 0; i < this.size; i++) {
+				if (!(this.units[i] instanceof IModule)) {
+					order[n++] = this.units[i];
+				}
+			}
+			this.drawOrder = order;
+		}
+		return this.drawOrder;
+	}
+}
@@ -0,0 +1,318 @@
+package airclash.world;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.phys2d.raw.Arbiter;
+import net.phys2d.raw.ArbiterList;
+import net.phys2d.raw.Body;
+import net.phys2d.raw.BodyList;
+import net.phys2d.raw.Contact;
+import airclash.units.IUnit;
+import airclash.units.buildings.Structure;
+import airclash.units.buildings.StructureLayout;
+
+/**
+ * A copy of the state of the world at the end of a tick: the positions and
+ * rotations of all moveable bodies, the units to draw, the layouts of the
+ * structures among them and optionally the contact points. Static bodies are
+ * not captured, as they never move. Snapshots are filled by the simulation
+ * and handed to the renderer, which may run on another thread. The level
+ * fills a snapshot again for a later tick, but only when no reader holds a
+ * state that contains it, see Level.acquireState(); a held snapshot is never
+ * modified.
+ *
+ * @author Andreas Textor
+ */
+public final class WorldSnapshot {
+	/** Snapshot that contains nothing. */
+	public static final WorldSnapshot EMPTY = new WorldSnapshot();
+
+	/** The captured bodies, only the first size entries are used. */
+	private Body[] bodies = new Body[0];
+
+	/** The number of captured bodies. */
+	private int size = 0;
+
+	/** The x coordinates of the bodies. */
+	private float[] x = new float[0];
+
+	/** The y coordinates of the bodies. */
+	private float[] y = new float[0];
+
+	/** The rotations of the bodies. */
+	private float[] rotation = new float[0];
+
+	/**
+	 * Maps the bodies to their array index. It is only rebuilt when the set
+	 * of bodies changed since the snapshot was filled the last time.
+	 */
+	private final Map<Body, Integer> index = new IdentityHashMap<Body, Integer>();
+
+	/** The units that are drawn. The array is shared with the unit registry. */
+	private IUnit[] units = new IUnit[0];
+
+	/**
+	 * The layout of each unit that is a structure, null for the other
+	 * units.
+	 */
+	private StructureLayout[] layouts = new StructureLayout[0];
+
+	/** The body the view follows, may be null. */
+	private Body focus = null;
+
+	/** The contact points as x/y pairs. */
+	private float[] contacts = new float[0];
+
+	/** The number of captured contact points. */
+	private int numContacts = 0;
+
+	/** The tick this snapshot was taken at. */
+	private long tick = 0;
+
+	/** The time this snapshot was taken at in nanoseconds. */
+	private long time = 0;
+
+	/**
+	 * Constructor for an empty snapshot.
+	 */
+	WorldSnapshot() {
+		// Filled by capture()
+	}
+
+	/**
+	 * Captures the state of the world. Nothing is allocated unless the
+	 * bodies or units changed since this snapshot was filled the last time,
+	 * or more contact points are captured than before.
+	 * @param pBodies The bodies of the world
+	 * @param pUnits The units that are drawn
+	 * @param pFocus The body the view follows, may be null
+	 * @param pArbiters The lists of arbiters to take contact points from, or
+	 * null to capture no contact points
+	 * @param pTick The current tick
+	 */
+	void capture(final BodyList pBodies, final IUnit[] pUnits, final Body pFocus,
+			final List<ArbiterList> pArbiters, final long pTick) {
+		int count = 0;
+		for (int i = 0; i < pBodies.size(); i++) {
+			if (!pBodies.get(i).isStatic()) {
+				count++;
+			}
+		}
+
+		boolean changed = count != this.size;
+		if (count > this.bodies.length) {
+			this.bodies = new Body[count];
+			this.x = new float[count];
+			this.y = new float[count];
+			this.rotation = new float[count];
+		}
+		int n = 0;
+		for (int i = 0; i < pBodies.size(); i++) {
+			final Body b = pBodies.get(i);
+			if (b.isStatic()) {
+				continue;
+			}
+			if (this.bodies[n] != b) {
+				this.bodies[n] = b;
+				changed = true;
+			}
+			this.x[n] = b.getPosition().getX();
+			this.y[n] = b.getPosition().getY();
+			this.rotation[n] = b.getRotation();
+			n++;
+		}
+		for (int i = count; i < this.size; i++) {
+			this.bodies[i] = null;
+		}
+		this.size = count;
+
+		if (changed) {
+			this.index.clear();
+			for (int i = 0; i < count; i++) {
+				this.index.put(this.bodies[i], Integer.valueOf(i));
+			}
+		}
+
+		this.units = pUnits;
+		captureLayouts();
+		this.focus = pFocus;
+		this.numContacts = pArbiters == null ? 0 : captureContacts(pArbiters);
+		this.tick = pTick;
+		this.time = System.nanoTime();
+	}
+
+	/**
+	 * Takes the current layouts of the structures among the units.
+	 */
+	private void captureLayouts() {
+		if (this.layouts.length != this.units.length) {
+			this.layouts = new StructureLayout[this.units.length];
+		}
+		for (int i = 0; i < this.units.length; i++) {
+			this.layouts[i] = layoutOf(this.units[i]);
+		}
+	}
+
+	/**
+	 * Returns the layout of a unit.
+	 * @param pUnit The unit
+	 * @return The layout, or null if the unit is no structure
+	 */
+	private static StructureLayout layoutOf(final IUnit pUnit) {
+		return pUnit instanceof Structure ? ((Structure)pUnit).getLayout() : null;
+	}
+
+	/**
+	 * Copies the contact points of the arbiters.
+	 * @param pArbiters The lists of arbiters
+	 * @return The number of contact points
+	 */
+	private int captureContacts(final List<ArbiterList> pArbiters) {
+		int count = 0;
+		for (int l = 0; l < pArbiters.size(); l++) {
+			final ArbiterList arbiters = pArbiters.get(l);
+			for (int i = 0; i < arbiters.size(); i++) {
+				count += arbiters.get(i).getNumContacts();
+			}
+		}
+		if (count * 2 > this.contacts.length) {
+			this.contacts = new float[count * 2];
+		}
+		int n = 0;
+		for (int l = 0; l < pArbiters.size(); l++) {
+			final ArbiterList arbiters = pArbiters.get(l);
+			for (int i = 0; i < arbiters.size(); i++) {
+				final Arbiter arb = arbiters.get(i);
+				final Contact[] cts = arb.getContacts();
+				for (int j = 0; j < arb.getNumContacts(); j++) {
+					this.contacts[n++] = cts[j].getPosition().getX();
+					this.contacts[n++] = cts[j].getPosition().getY();
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the index of a body in this snapshot.
+	 * @param pBody The body
+	 * @return The index, or -1 if the body was not captured
+	 */
+	public int indexOf(final Body pBody) {
+		final Integer i = this.index.get(pBody);
+		return i == null ? -1 : i.intValue();
+	}
+
+	/**
+	 * Returns the number of captured bodies.
+	 * @return The number of bodies
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns a captured body.
+	 * @param pIndex The index
+	 * @return The body
+	 */
+	public Body getBody(final int pIndex) {
+		return this.bodies[pIndex];
+	}
+
+	/**
+	 * Returns the x coordinate of a captured body.
+	 * @param pIndex The index
+	 * @return The x coordinate
+	 */
+	public float getX(final int pIndex) {
+		return this.x[pIndex];
+	}
+
+	/**
+	 * Returns the y coordinate of a captured body.
+	 * @param pIndex The index
+	 * @return The y coordinate
+	 */
+	public float getY(final int pIndex) {
+		return this.y[pIndex];
+	}
+
+	/**
+	 * Returns the rotation of a captured body.
+	 * @param pIndex The index
+	 * @return The rotation
+	 */
+	public float getRotation(final int pIndex) {
+		return this.rotation[pIndex];
+	}
+
+	/**
+	 * Returns the units to draw. The array must not be modified.
+	 * @return The units
+	 */
+	public IUnit[] getUnits() {
+		return this.units;
+	}
+
+	/**
+	 * Returns the layout a unit is drawn from.
+	 * @param pIndex The index of the unit in getUnits()
+	 * @return The layout, or null if the unit is no structure
+	 */
+	public StructureLayout getLayout(final int pIndex) {
+		return this.layouts[pIndex];
+	}
+
+	/**
+	 * Returns the body the view follows.
+	 * @return The body, or null
+	 */
+	public Body getFocus() {
+		return this.focus;
+	}
+
+	/**
+	 * Returns the number of captured contact points.
+	 * @return The number of contact points
+	 */
+	public int getNumContacts() {
+		return this.numContacts;
+	}
+
+	/**
+	 * Returns the x coordinate of a contact point.
+	 * @param pIndex The index of the contact point
+	 * @return The x coordinate
+	 */
+	public float getContactX(final int pIndex) {
+		return this.contacts[pIndex * 2];
+	}
+
+	/**
+	 * Returns the y coordinate of a contact point.
+	 * @param pIndex The index of the contact point
+	 * @return The y coordinate
+	 */
+	public float getContactY(final int pIndex) {
+		return this.contacts[pIndex * 2 + 1];
+	}
+
+	/**
+	 * Returns the tick this snapshot was taken at.
+	 * @return The tick
+	 */
+	public long getTick() {
+		return this.tick;
+	}
+
+	/**
+	 * Returns the time this snapshot was taken at.
+	 * @return The time in nanoseconds
+	 */
+	public long getTime() {
+		return this.time;
+	}
+}
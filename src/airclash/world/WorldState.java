@@ -0,0 +1,83 @@
+package airclash.world;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The two latest snapshots of the world. The renderer interpolates between
+ * them. A new state is published after every tick; the level reuses states
+ * and snapshots that no reader holds any more, so a reader has to take the
+ * state with Level.acquireState() and give it back with
+ * Level.releaseState(). While it is held, it is a complete and consistent
+ * pair that is not modified.
+ *
+ * @author Andreas Textor
+ */
+public final class WorldState {
+	/** The state that contains nothing. It is never reused. */
+	public static final WorldState EMPTY = new WorldState();
+
+	/** The snapshot of the previous tick. */
+	private WorldSnapshot previous = WorldSnapshot.EMPTY;
+
+	/** The snapshot of the current tick. */
+	private WorldSnapshot current = WorldSnapshot.EMPTY;
+
+	/** The number of readers that hold this state. */
+	private final AtomicInteger readers = new AtomicInteger();
+
+	/**
+	 * Constructor for a state that contains nothing.
+	 */
+	WorldState() {
+		// Filled by set()
+	}
+
+	/**
+	 * Sets the snapshots. This must only be done while nobody holds the
+	 * state and before it is published.
+	 * @param pPrevious The snapshot of the previous tick
+	 * @param pCurrent The snapshot of the current tick
+	 */
+	void set(final WorldSnapshot pPrevious, final WorldSnapshot pCurrent) {
+		this.previous = pPrevious;
+		this.current = pCurrent;
+	}
+
+	/**
+	 * Counts a reader that holds this state.
+	 */
+	void hold() {
+		this.readers.incrementAndGet();
+	}
+
+	/**
+	 * Counts a reader that gave this state back.
+	 */
+	void release() {
+		this.readers.decrementAndGet();
+	}
+
+	/**
+	 * Checks if a reader holds this state.
+	 * @return true if the state is held
+	 */
+	boolean isHeld() {
+		return this.readers.get() > 0;
+	}
+
+	/**
+	 * Returns the snapshot of the previous tick.
+	 * @return The previous snapshot
+	 */
+	public WorldSnapshot getPrevious() {
+		return this.previous;
+	}
+
+	/**
+	 * Returns the snapshot of the current tick.
+	 * @return The current snapshot
+	 */
+	public WorldSnapshot getCurrent() {
+		return this.current;
+	}
+}
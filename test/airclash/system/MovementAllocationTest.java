@@ -0,0 +1,140 @@
+package airclash.system;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import airclash.system.exceptions.InvalidResourceException;
+import airclash.system.gfx.TextureLoader;
+import airclash.units.buildings.HQ;
+import airclash.units.vehicles.Scout;
+import airclash.world.PhysicsStats;
+
+/**
+ * Checks that ticks of the simulation allocate nothing while a movement key
+ * is held, apart from what phys2d allocates when it steps a world. That is
+ * counted by the physics counters and subtracted. The allocated bytes are
+ * taken from the allocation counter of the thread, which is only available
+ * on some virtual machines; the test is skipped on the others.
+ *
+ * @author Andreas Textor
+ */
+public class MovementAllocationTest {
+	/** The number of ticks the units get to land on the floor. */
+	private static final int LANDING_TICKS = 200;
+
+	/** The number of ticks before the allocations are counted. */
+	private static final int WARMUP_TICKS = 3000;
+
+	/** The number of ticks the allocations are counted for at once. */
+	private static final int MEASURED_TICKS = 500;
+
+	/** The number of times the allocations are counted. */
+	private static final int ATTEMPTS = 10;
+
+	/** All movement keys at once. */
+	private static final int ALL_KEYS =
+		Simulation.MOVE_LEFT | Simulation.MOVE_RIGHT | Simulation.MOVE_UP;
+
+	/** The allocation counter of the threads. */
+	private static com.sun.management.ThreadMXBean threads;
+
+	/**
+	 * Loads no textures, the test runs without display.
+	 */
+	@BeforeClass
+	public static void setUpHeadless() {
+		TextureLoader.getInstance().setHeadless(true);
+	}
+
+	/**
+	 * Enables the allocation counter, or skips the test if there is none.
+	 */
+	@Before
+	public void setUpCounter() {
+		final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		threads = (com.sun.management.ThreadMXBean)bean;
+		assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+	}
+
+	/**
+	 * Moves the scout and the HQ with the whole world stepped at once.
+	 * @throws InvalidResourceException Thrown when the level can't be loaded
+	 */
+	@Test
+	public void wholeWorldAllocatesNothing() throws InvalidResourceException {
+		checkHeldKeys(0);
+	}
+
+	/**
+	 * Moves the scout and the HQ with the islands stepped on the simulation
+	 * thread.
+	 * @throws InvalidResourceException Thrown when the level can't be loaded
+	 */
+	@Test
+	public void islandsAllocateNothing() throws InvalidResourceException {
+		checkHeldKeys(1);
+	}
+
+	/**
+	 * Lets the units land, holds all movement keys and counts the bytes
+	 * that the ticks allocate for the scout and then for the HQ.
+	 * @param pPhysicsThreads The number of physics threads
+	 * @throws InvalidResourceException Thrown when the level can't be loaded
+	 */
+	private static void checkHeldKeys(final int pPhysicsThreads)
+			throws InvalidResourceException {
+		final Simulation simulation = new Simulation("level1", "Test", null,
+				Core.PROPERTIES.getInt(Properties.Prop.TICKRATE), pPhysicsThreads);
+		simulation.reset();
+		for (int i = 0; i < LANDING_TICKS; i++) {
+			simulation.tick();
+		}
+		simulation.handleCommand(Command.MOVE, ALL_KEYS, 0);
+
+		assertTrue(simulation.getSelectedUnit() instanceof Scout);
+		assertEquals(0, measureTicks(simulation));
+		simulation.handleCommand(Command.SELECT_NEXT, 0, 0);
+		assertTrue(simulation.getSelectedUnit() instanceof HQ);
+		assertEquals(0, measureTicks(simulation));
+	}
+
+	/**
+	 * Runs full ticks of the simulation and counts the bytes that were
+	 * allocated outside of the steps of the phys2d worlds. Once in a while
+	 * the compiled code of a method is replaced, which may allocate a few
+	 * bytes, so the ticks are counted several times and the lowest count is
+	 * taken. An allocation in every tick shows up in every count.
+	 * @param pSimulation The simulation
+	 * @return The lowest number of bytes allocated by the counted ticks
+	 */
+	private static long measureTicks(final Simulation pSimulation) {
+		// The first ticks are interpreted and compiled, which may allocate
+		for (int i = 0; i < WARMUP_TICKS; i++) {
+			pSimulation.tick();
+		}
+		final long id = Thread.currentThread().getId();
+		long lowest = Long.MAX_VALUE;
+		for (int attempt = 0; attempt < ATTEMPTS && lowest > 0; attempt++) {
+			long bytes = 0;
+			for (int i = 0; i < MEASURED_TICKS; i++) {
+				final long before = threads.getThreadAllocatedBytes(id);
+				pSimulation.tick();
+				final long after = threads.getThreadAllocatedBytes(id);
+				// Reading the counters allocates a copy, so this is not counted
+				final PhysicsStats stats = pSimulation.getLevel().getStats();
+				bytes += after - before - stats.getTotal(PhysicsStats.Counter.ALLOCATED);
+			}
+			lowest = Math.min(lowest, bytes);
+		}
+		return lowest;
+	}
+}
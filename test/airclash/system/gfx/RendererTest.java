@@ -0,0 +1,159 @@
+package airclash.system.gfx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.awt.Dimension;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import airclash.system.gfx.RecordingBackend.Op;
+
+/**
+ * Draws a fixed scene with a recording backend and checks the draw calls,
+ * texture binds and state changes that reach the backend.
+ *
+ * @author Andreas Textor
+ */
+public class RendererTest {
+	/** The size of the window and of the atlas pages. */
+	private static final int SIZE = 256;
+
+	/** The size of the images on the pages. */
+	private static final int IMAGE_SIZE = 32;
+
+	/** The backend that records the drawing. */
+	private RecordingBackend backend;
+
+	/** The renderer that is tested. */
+	private Renderer renderer;
+
+	/** The first atlas page. */
+	private Texture page1;
+
+	/** The second atlas page. */
+	private Texture page2;
+
+	/** An image on the first page. */
+	private Texture imageA;
+
+	/** Another image on the first page. */
+	private Texture imageB;
+
+	/** An image on the second page. */
+	private Texture imageC;
+
+	/**
+	 * Creates the renderer and the textures. No texture is loaded, the
+	 * recording backend only compares them.
+	 */
+	@Before
+	public void setUp() {
+		this.backend = new RecordingBackend();
+		this.renderer = new Renderer(this.backend, new Dimension(SIZE, SIZE));
+		this.page1 = createPage(1);
+		this.page2 = createPage(2);
+		this.imageA = new Texture(this.page1, 0, 0, IMAGE_SIZE, IMAGE_SIZE);
+		this.imageB = new Texture(this.page1, IMAGE_SIZE, 0, IMAGE_SIZE, IMAGE_SIZE);
+		this.imageC = new Texture(this.page2, 0, 0, IMAGE_SIZE, IMAGE_SIZE);
+	}
+
+	/**
+	 * Creates an atlas page.
+	 * @param pId The texture id
+	 * @return The page
+	 */
+	private static Texture createPage(final int pId) {
+		final Texture page = new Texture(0, pId);
+		page.setWidth(SIZE);
+		page.setHeight(SIZE);
+		page.setTextureWidth(SIZE);
+		page.setTextureHeight(SIZE);
+		return page;
+	}
+
+	/**
+	 * Draws the scene: the background, images of two pages mixed, a box on
+	 * top of them, and images that are flushed twice with the same state.
+	 */
+	private void drawScene() {
+		this.renderer.beginFrame();
+		this.renderer.drawBackground();
+		this.renderer.drawImage(this.imageA, 0, 0);
+		this.renderer.drawImage(this.imageC, 40, 0);
+		this.renderer.drawImage(this.imageB, 80, 0);
+		this.renderer.drawSimpleBox(100, 100, 20, 20, 1, 0, 0, 0.5f);
+		this.renderer.drawImage(this.imageA, 0, 40);
+		this.renderer.drawImage(this.imageB, 40, 40);
+		this.renderer.resetTransform();
+		this.renderer.drawImage(this.imageA, 0, 80);
+		this.renderer.flush();
+	}
+
+	/**
+	 * The scene needs one draw call for the background, one per page for
+	 * the mixed images, one for the box and one for each later flush. Only
+	 * the binds and states of the last flush repeat what was already set.
+	 */
+	@Test
+	public void countsOfScene() {
+		drawScene();
+		assertEquals(6, this.backend.getDrawCalls());
+		assertEquals(32, this.backend.getVertices());
+		assertEquals(4, this.backend.getTextureBinds());
+		assertEquals(1, this.backend.getRedundantBinds());
+		assertEquals(17, this.backend.getStateChanges());
+		assertEquals(5, this.backend.getRedundantStateChanges());
+	}
+
+	/**
+	 * The images of one page are drawn together, even if an image of
+	 * another page was drawn between them, and the box is drawn after them.
+	 */
+	@Test
+	public void imagesAreGroupedByPage() {
+		drawScene();
+		final int first = find(Op.DRAW_QUADS, 0);
+		assertSame(this.page1, this.backend.getTexture((int)this.backend.getArg(first, 0)));
+		assertEquals(2, (int)this.backend.getArg(first, 2));
+		final int second = find(Op.DRAW_QUADS, first + 1);
+		assertEquals(first + 2, second);
+		assertSame(this.page2, this.backend.getTexture((int)this.backend.getArg(second, 0)));
+		assertEquals(1, (int)this.backend.getArg(second, 2));
+		final int box = find(Op.BEGIN, second);
+		assertEquals(RenderBackend.Primitive.QUADS.ordinal(), (int)this.backend.getArg(box, 0));
+		assertEquals(0.5f, this.backend.getArg(box - 1, 3), 0.0f);
+	}
+
+	/**
+	 * Resetting the backend forgets the state, so drawing the scene again
+	 * gives the same counts.
+	 */
+	@Test
+	public void sceneAfterReset() {
+		drawScene();
+		final int commands = this.backend.getCommandCount();
+		this.backend.reset();
+		drawScene();
+		assertEquals(commands, this.backend.getCommandCount());
+		assertEquals(6, this.backend.getDrawCalls());
+		assertEquals(1, this.backend.getRedundantBinds());
+		assertEquals(5, this.backend.getRedundantStateChanges());
+	}
+
+	/**
+	 * Finds a recorded command.
+	 * @param pOp The operation of the command
+	 * @param pStart The index to start searching at
+	 * @return The index of the first command with the operation
+	 */
+	private int find(final Op pOp, final int pStart) {
+		for (int i = pStart; i < this.backend.getCommandCount(); i++) {
+			if (this.backend.getOp(i) == pOp) {
+				return i;
+			}
+		}
+		throw new AssertionError("No " + pOp + " after " + pStart);
+	}
+}
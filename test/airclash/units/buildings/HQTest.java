@@ -0,0 +1,79 @@
+package airclash.units.buildings;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import airclash.system.exceptions.InvalidResourceException;
+import airclash.system.gfx.TextureLoader;
+
+/**
+ * Tests adding and removing the modules of a HQ.
+ *
+ * @author Andreas Textor
+ */
+public class HQTest {
+	/**
+	 * Loads no textures, the tests run without display.
+	 */
+	@BeforeClass
+	public static void setUpHeadless() {
+		TextureLoader.getInstance().setHeadless(true);
+	}
+
+	/**
+	 * Builds a row of three modules to the right of the HQ element.
+	 * @return The HQ
+	 * @throws InvalidResourceException Thrown when a texture can't be loaded
+	 */
+	private static HQ createRow() throws InvalidResourceException {
+		final HQ hq = new HQ(null);
+		assertTrue(hq.addModule(new HQModule(), 1, 0));
+		assertTrue(hq.addModule(new HQModule(), 2, 0));
+		assertTrue(hq.addModule(new HQModule(), 3, 0));
+		assertEquals(4, hq.getCellCount());
+		return hq;
+	}
+
+	/**
+	 * A module can't be added while removed modules have not been split
+	 * off yet, and the cells stay as they were.
+	 * @throws InvalidResourceException Thrown when a texture can't be loaded
+	 */
+	@Test
+	public void addWhileRemovalIsPending() throws InvalidResourceException {
+		final HQ hq = createRow();
+		assertNotNull(hq.removeModule(2, 0));
+		assertFalse(hq.addModule(new HQModule(), 0, 1));
+		assertEquals(null, hq.getModule(0, 1));
+		assertEquals(3, hq.getCellCount());
+	}
+
+	/**
+	 * After the fragments are split off, modules can be added again, also
+	 * in the cells that were freed.
+	 * @throws InvalidResourceException Thrown when a texture can't be loaded
+	 */
+	@Test
+	public void addAfterRemove() throws InvalidResourceException {
+		final HQ hq = createRow();
+		assertNotNull(hq.removeModule(2, 0));
+		final List<Fragment> fragments = hq.detachFragments();
+		assertEquals(1, fragments.size());
+		assertEquals(1, fragments.get(0).getCellCount());
+		assertEquals(2, hq.getCellCount());
+
+		assertTrue(hq.addModule(new HQModule(), 0, 1));
+		assertTrue(hq.addModule(new HQModule(), 2, 0));
+		assertEquals(4, hq.getCellCount());
+		assertTrue(hq.isConnected(2, 0));
+		assertEquals(4, hq.getLayout().size());
+		assertEquals(hq.getBody(), hq.getLayout().getBody());
+	}
+}